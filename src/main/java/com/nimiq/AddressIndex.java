@@ -0,0 +1,388 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persistent local index from addresses to the transactions they sent or
+ * received, without the row limit of
+ * {@link NimiqClient#getTransactionsByAddress(String, int)}.
+ * <p>
+ * For each address the index keeps a posting list of (block height,
+ * transaction index) pairs. Posting lists are stored in memory-mapped files as
+ * chains of small chunks with delta-encoded heights, so appending a block only
+ * touches the last chunk of each involved address. The index is fed with blocks
+ * including full transactions, either as a {@link BlockListener} or, to roll
+ * back blocks rewound by forks, as a {@link ChainListener}.
+ * <p>
+ * Changes become durable with {@link #flush()}. After a crash the index rolls
+ * back to the last fully indexed block when it is opened.
+ */
+public class AddressIndex implements BlockListener, ChainListener, Closeable {
+
+    private static final String ADDRESS_FILE = "addresses.dat";
+    private static final String POSTING_FILE = "postings.dat";
+
+    private static final int MAGIC = 0x4e514149; // "NQAI"
+    private static final int VERSION = 1;
+    private static final int REGION_SIZE = 1 << 24;
+
+    // Header: magic, version, height, address count, chunk count
+    private static final int HEADER_SIZE = 32;
+    // Record: address, head chunk + 1, last height, number of postings
+    private static final int RECORD_SIZE = 32;
+    // Chunk: previous chunk + 1, used payload bytes, payload
+    private static final int CHUNK_SIZE = 64;
+    private static final int CHUNK_HEADER_SIZE = 5;
+    private static final int PAYLOAD_SIZE = CHUNK_SIZE - CHUNK_HEADER_SIZE;
+
+    private final MappedRegions addressFile;
+    private final MappedRegions postingFile;
+    private final HashKeySet addresses = new HashKeySet(NimiqUtils.ADDRESS_SIZE, 1 << 16);
+    private int height;
+    private int addressCount;
+    private int chunkCount;
+
+    /**
+     * Opens the index in the given directory, creating it if necessary.
+     *
+     * @param directory The directory holding the index files
+     * @throws IOException if the index can't be opened
+     */
+    public AddressIndex(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        addressFile = new MappedRegions(directory.resolve(ADDRESS_FILE), REGION_SIZE);
+        postingFile = new MappedRegions(directory.resolve(POSTING_FILE), REGION_SIZE);
+        if (addressFile.isEmpty()) {
+            addressFile.ensure(HEADER_SIZE);
+            addressFile.putInt(0, MAGIC);
+            addressFile.putInt(4, VERSION);
+            writeHeader();
+            return;
+        }
+        if (addressFile.getInt(0) != MAGIC || addressFile.getInt(4) != VERSION) {
+            close();
+            throw new IOException("Not an address index: " + directory);
+        }
+        height = addressFile.getInt(8);
+        addressCount = addressFile.getInt(12);
+        chunkCount = addressFile.getInt(16);
+        byte[] address = new byte[NimiqUtils.ADDRESS_SIZE];
+        for (int id = 0; id < addressCount; id++) {
+            long record = recordOffset(id);
+            for (int i = 0; i < address.length; i++) {
+                address[i] = addressFile.get(record + i);
+            }
+            addresses.intern(NimiqUtils.toHex(address));
+            // Drop postings of a block that was not completely indexed
+            truncate(id, height + 1);
+        }
+    }
+
+    /**
+     * @return Height of the last indexed block, or 0 if the index is empty.
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Number of indexed addresses.
+     */
+    public synchronized int size() {
+        return addressCount;
+    }
+
+    /**
+     * Adds the transactions of a block to the index. The first block may have any
+     * height, the following ones must succeed it without gaps.
+     *
+     * @param block The block to add, including full transactions
+     * @throws IOException if the index files can't be extended
+     */
+    public synchronized void add(Block block) throws IOException {
+        if (height != 0 && block.getNumber() != height + 1) {
+            throw new IllegalArgumentException("Expected block #" + (height + 1) + " but got #" + block.getNumber());
+        }
+        List<Transaction> transactions = block.getTransactions();
+        if (transactions != null) {
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction tx = transactions.get(i);
+                if (tx.getFrom() == null) {
+                    throw new IllegalArgumentException("Block #" + block.getNumber() + " lacks full transactions");
+                }
+                append(addressId(tx.getFrom()), block.getNumber(), i);
+                if (!tx.getTo().equals(tx.getFrom())) {
+                    append(addressId(tx.getTo()), block.getNumber(), i);
+                }
+            }
+        }
+        height = block.getNumber();
+        writeHeader();
+    }
+
+    /**
+     * Removes the transactions of the last indexed block from the index.
+     *
+     * @param block The last indexed block, including full transactions
+     */
+    public synchronized void remove(Block block) {
+        if (block.getNumber() != height) {
+            throw new IllegalArgumentException("Expected block #" + height + " but got #" + block.getNumber());
+        }
+        Set<String> involved = new LinkedHashSet<>();
+        if (block.getTransactions() != null) {
+            for (Transaction tx : block.getTransactions()) {
+                if (tx.getFrom() == null) {
+                    throw new IllegalArgumentException("Block #" + block.getNumber() + " lacks full transactions");
+                }
+                involved.add(tx.getFrom());
+                involved.add(tx.getTo());
+            }
+        }
+        for (String address : involved) {
+            int id = addresses.idOf(address);
+            if (id >= 0) {
+                truncate(id, block.getNumber());
+            }
+        }
+        height = block.getNumber() - 1;
+        writeHeader();
+    }
+
+    /**
+     * Returns all indexed transactions of an address, in chain order. Use
+     * {@link #getPostingHeight(long)} and {@link #getPostingIndex(long)} to decode
+     * the postings.
+     *
+     * @param address User friendly (NQ-address) or hex-encoded address
+     * @return The postings of the address.
+     */
+    public synchronized long[] getPostings(String address) {
+        int id = addresses.idOf(NimiqUtils.toHex(NimiqUtils.parseAddress(address)));
+        if (id < 0) {
+            return new long[0];
+        }
+        long record = recordOffset(id);
+        long[] postings = new long[addressFile.getInt(record + 28)];
+        int end = postings.length;
+        int[] entries = new int[PAYLOAD_SIZE];
+        for (int chunk = addressFile.getInt(record + 20) - 1; chunk >= 0; chunk = postingFile
+                .getInt(chunkOffset(chunk)) - 1) {
+            int count = decode(chunk, entries, null);
+            end -= count;
+            for (int i = 0; i < count; i++) {
+                postings[end + i] = ((long) entries[i * 2] << 32) | entries[i * 2 + 1];
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * @param address User friendly (NQ-address) or hex-encoded address
+     * @return Number of indexed transactions of the address.
+     */
+    public synchronized int getCount(String address) {
+        int id = addresses.idOf(NimiqUtils.toHex(NimiqUtils.parseAddress(address)));
+        return id < 0 ? 0 : addressFile.getInt(recordOffset(id) + 28);
+    }
+
+    /**
+     * @param posting A posting returned by {@link #getPostings(String)}
+     * @return Height of the block containing the transaction.
+     */
+    public static int getPostingHeight(long posting) {
+        return (int) (posting >>> 32);
+    }
+
+    /**
+     * @param posting A posting returned by {@link #getPostings(String)}
+     * @return Index of the transaction in the block.
+     */
+    public static int getPostingIndex(long posting) {
+        return (int) posting;
+    }
+
+    @Override
+    public void onBlock(Block block) {
+        blockConnected(block);
+    }
+
+    @Override
+    public void blockConnected(Block block) {
+        try {
+            add(block);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void blockDisconnected(Block block) {
+        remove(block);
+    }
+
+    /**
+     * Forces all changes to be written to the storage device.
+     */
+    public synchronized void flush() {
+        postingFile.force();
+        addressFile.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        postingFile.close();
+        addressFile.close();
+    }
+
+    private void writeHeader() {
+        addressFile.putInt(8, height);
+        addressFile.putInt(12, addressCount);
+        addressFile.putInt(16, chunkCount);
+    }
+
+    private static long recordOffset(int id) {
+        return HEADER_SIZE + (long) id * RECORD_SIZE;
+    }
+
+    private static long chunkOffset(int chunk) {
+        return (long) chunk * CHUNK_SIZE;
+    }
+
+    private int addressId(String address) throws IOException {
+        int id = addresses.intern(address);
+        if (id == addressCount) {
+            long record = recordOffset(id);
+            addressFile.ensure(record + RECORD_SIZE);
+            byte[] bytes = NimiqUtils.fromHex(address);
+            for (int i = 0; i < bytes.length; i++) {
+                addressFile.put(record + i, bytes[i]);
+            }
+            addressFile.putInt(record + 20, 0);
+            addressFile.putInt(record + 24, 0);
+            addressFile.putInt(record + 28, 0);
+            addressCount++;
+        }
+        return id;
+    }
+
+    private void append(int id, int height, int index) throws IOException {
+        long record = recordOffset(id);
+        int head = addressFile.getInt(record + 20) - 1;
+        int lastHeight = addressFile.getInt(record + 24);
+        int used = head < 0 ? PAYLOAD_SIZE : postingFile.get(chunkOffset(head) + 4);
+        int delta = height - lastHeight;
+        if (used + varIntSize(delta) + varIntSize(index) > PAYLOAD_SIZE) {
+            // Start a new chunk, with the absolute height as first entry
+            int chunk = chunkCount++;
+            postingFile.ensure(chunkOffset(chunk + 1));
+            postingFile.putInt(chunkOffset(chunk), head + 1);
+            addressFile.putInt(record + 20, chunk + 1);
+            head = chunk;
+            used = 0;
+            delta = height;
+        }
+        long offset = chunkOffset(head) + CHUNK_HEADER_SIZE + used;
+        offset = writeVarInt(offset, delta);
+        offset = writeVarInt(offset, index);
+        postingFile.put(chunkOffset(head) + 4, (byte) (offset - chunkOffset(head) - CHUNK_HEADER_SIZE));
+        addressFile.putInt(record + 24, height);
+        addressFile.putInt(record + 28, addressFile.getInt(record + 28) + 1);
+    }
+
+    /**
+     * Removes all postings of an address from the given height on.
+     */
+    private void truncate(int id, int fromHeight) {
+        long record = recordOffset(id);
+        int[] entries = new int[PAYLOAD_SIZE];
+        int[] offsets = new int[PAYLOAD_SIZE / 2 + 1];
+        int head = addressFile.getInt(record + 20) - 1;
+        int removed = 0;
+        while (head >= 0) {
+            int count = decode(head, entries, offsets);
+            int keep = count;
+            while (keep > 0 && entries[(keep - 1) * 2] >= fromHeight) {
+                keep--;
+            }
+            removed += count - keep;
+            if (keep > 0) {
+                postingFile.put(chunkOffset(head) + 4, (byte) offsets[keep]);
+                addressFile.putInt(record + 24, entries[(keep - 1) * 2]);
+                break;
+            }
+            // The chunk is empty now, it is left unused
+            head = postingFile.getInt(chunkOffset(head)) - 1;
+            addressFile.putInt(record + 20, head + 1);
+            addressFile.putInt(record + 24, 0);
+        }
+        addressFile.putInt(record + 28, addressFile.getInt(record + 28) - removed);
+    }
+
+    /**
+     * Decodes the entries of a chunk into (height, index) pairs and, optionally,
+     * the payload offset at which each entry ends.
+     *
+     * @return The number of entries.
+     */
+    private int decode(int chunk, int[] entries, int[] offsets) {
+        long start = chunkOffset(chunk) + CHUNK_HEADER_SIZE;
+        int used = postingFile.get(chunkOffset(chunk) + 4);
+        int position = 0;
+        int count = 0;
+        int height = 0;
+        while (position < used) {
+            long[] result = readVarInt(start + position);
+            height += (int) result[0];
+            position = (int) (result[1] - start);
+            result = readVarInt(start + position);
+            position = (int) (result[1] - start);
+            entries[count * 2] = height;
+            entries[count * 2 + 1] = (int) result[0];
+            count++;
+            if (offsets != null) {
+                offsets[count] = position;
+            }
+        }
+        return count;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private long writeVarInt(long offset, int value) {
+        while ((value & ~0x7f) != 0) {
+            postingFile.put(offset++, (byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        postingFile.put(offset++, (byte) value);
+        return offset;
+    }
+
+    /**
+     * @return The value and the offset after it.
+     */
+    private long[] readVarInt(long offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = postingFile.get(offset++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return new long[] { value, offset };
+    }
+}
@@ -0,0 +1,31 @@
+package com.nimiq;
+
+/**
+ * Listener for transactions involving watched addresses.
+ *
+ * @see AddressWatcher
+ */
+public interface AddressListener {
+
+    /**
+     * Called for each transaction in a new block that is sent from or to a
+     * watched address. A transaction between two watched addresses is reported
+     * once for each of them.
+     *
+     * @param address     User friendly address (NQ-address) of the watched
+     *                    account
+     * @param transaction The transaction
+     */
+    public void onTransaction(String address, Transaction transaction);
+
+    /**
+     * Called for each transaction of a watched address that was in a block
+     * removed from the main chain due to a fork.
+     *
+     * @param address     User friendly address (NQ-address) of the watched
+     *                    account
+     * @param transaction The reverted transaction
+     */
+    public default void onTransactionReverted(String address, Transaction transaction) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.nimiq;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches any number of addresses for transactions, at the cost of one RPC call
+ * per block instead of one per address.
+ * <p>
+ * The watcher is fed with blocks including full transactions, either as a
+ * {@link BlockListener} of a {@link BlockPoller} or, to be notified of
+ * transactions reverted by forks, as a {@link ChainListener} of a
+ * {@link ChainFollower}. The sender and recipient of every transaction are
+ * matched against the watched addresses, which are kept as binary keys in a
+ * compact hash set.
+ */
+public class AddressWatcher implements BlockListener, ChainListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AddressWatcher.class);
+
+    private final HashKeySet addresses = new HashKeySet(NimiqUtils.ADDRESS_SIZE, 1024);
+    private final List<AddressListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param listener The listener to add
+     */
+    public void addListener(AddressListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener The listener to remove
+     */
+    public void removeListener(AddressListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching an address.
+     *
+     * @param address User friendly (NQ-address) or hex-encoded address
+     * @return true if the address wasn't watched before
+     */
+    public synchronized boolean watch(String address) {
+        return addresses.add(NimiqUtils.toHex(NimiqUtils.parseAddress(address)));
+    }
+
+    /**
+     * Stops watching an address.
+     *
+     * @param address User friendly (NQ-address) or hex-encoded address
+     * @return true if the address was watched
+     */
+    public synchronized boolean unwatch(String address) {
+        return addresses.remove(NimiqUtils.toHex(NimiqUtils.parseAddress(address)));
+    }
+
+    /**
+     * @param address User friendly (NQ-address) or hex-encoded address
+     * @return Whether the address is watched.
+     */
+    public synchronized boolean isWatched(String address) {
+        return addresses.contains(NimiqUtils.toHex(NimiqUtils.parseAddress(address)));
+    }
+
+    /**
+     * @return Number of watched addresses.
+     */
+    public synchronized int size() {
+        return addresses.size();
+    }
+
+    /**
+     * Reports the transactions of watched addresses in a new block.
+     *
+     * @param block The new block, including full transactions
+     */
+    @Override
+    public void onBlock(Block block) {
+        match(block, false);
+    }
+
+    @Override
+    public void blockConnected(Block block) {
+        match(block, false);
+    }
+
+    @Override
+    public void blockDisconnected(Block block) {
+        match(block, true);
+    }
+
+    private void match(Block block, boolean reverted) {
+        List<Transaction> transactions = block.getTransactions();
+        if (transactions == null) {
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            if (transaction.getFrom() == null) {
+                throw new IllegalArgumentException("Block #" + block.getNumber() + " lacks full transactions");
+            }
+            boolean from;
+            boolean to;
+            synchronized (this) {
+                from = addresses.contains(transaction.getFrom());
+                to = addresses.contains(transaction.getTo());
+            }
+            if (from) {
+                fire(transaction.getFromAddress(), transaction, reverted);
+            }
+            if (to) {
+                fire(transaction.getToAddress(), transaction, reverted);
+            }
+        }
+    }
+
+    private void fire(String address, Transaction transaction, boolean reverted) {
+        for (AddressListener listener : listeners) {
+            try {
+                if (reverted) {
+                    listener.onTransactionReverted(address, transaction);
+                } else {
+                    listener.onTransaction(address, transaction);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Address listener failed on transaction {}", transaction.getHash(), e);
+            }
+        }
+    }
+}
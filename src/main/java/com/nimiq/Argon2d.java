@@ -0,0 +1,296 @@
+package com.nimiq;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Argon2d hash function version 1.3 (RFC 9106), which Nimiq uses for the proof
+ * of work of blocks with one iteration over 512 KiB of memory in one lane.
+ * <p>
+ * An instance allocates its memory once and reuses it for every hash, so it is
+ * meant to be kept per thread. Lanes are filled one after another.
+ */
+final class Argon2d {
+
+    /**
+     * Memory of the Nimiq proof of work in KiB.
+     */
+    static final int NIMIQ_MEMORY = 512;
+
+    private static final byte[] NIMIQ_SALT = "nimiqrocks!".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 0x13;
+    private static final int BLOCK_WORDS = 128;
+    private static final int BLOCK_SIZE = BLOCK_WORDS * 8;
+    private static final int SLICES = 4;
+    private static final int H0_SIZE = 64;
+
+    private final int memory;
+    private final int iterations;
+    private final int lanes;
+    private final int laneLength;
+    private final int segmentLength;
+    private final byte[] salt;
+    private final byte[] secret;
+    private final byte[] associatedData;
+    private final int outputSize;
+
+    private final long[] blocks;
+    private final long[] r = new long[BLOCK_WORDS];
+    private final long[] q = new long[BLOCK_WORDS];
+    private final Blake2b blake2b = new Blake2b();
+    private byte[] h0Input = new byte[0];
+    // Input of the first blocks: length, H0, block index and lane
+    private final byte[] blockInput = new byte[4 + H0_SIZE + 4 + 4];
+    private final byte[] blockBytes = new byte[BLOCK_SIZE];
+    private final byte[] finalInput = new byte[4 + BLOCK_SIZE];
+    private final byte[] chain = new byte[64];
+
+    /**
+     * Creates an instance for the Nimiq proof of work.
+     */
+    Argon2d() {
+        this(NIMIQ_MEMORY, 1, 1, NIMIQ_SALT, new byte[0], new byte[0], Blake2b.HASH_SIZE);
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param memory         Memory in KiB, at least 8 per lane
+     * @param iterations     Number of passes over the memory
+     * @param lanes          Degree of parallelism
+     * @param salt           The salt, at least 8 bytes
+     * @param secret         The secret value, possibly empty
+     * @param associatedData The associated data, possibly empty
+     * @param outputSize     Size of the hash in bytes, at least 4
+     */
+    Argon2d(int memory, int iterations, int lanes, byte[] salt, byte[] secret, byte[] associatedData,
+            int outputSize) {
+        if (lanes < 1 || memory < 8 * lanes || iterations < 1 || outputSize < 4) {
+            throw new IllegalArgumentException("Invalid Argon2d parameters");
+        }
+        this.memory = memory;
+        this.iterations = iterations;
+        this.lanes = lanes;
+        this.segmentLength = memory / (SLICES * lanes);
+        this.laneLength = segmentLength * SLICES;
+        this.salt = salt.clone();
+        this.secret = secret.clone();
+        this.associatedData = associatedData.clone();
+        this.outputSize = outputSize;
+        this.blocks = new long[laneLength * lanes * BLOCK_WORDS];
+    }
+
+    /**
+     * @return The size of the hash in bytes.
+     */
+    int getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * @return The hash of a range of the password.
+     */
+    byte[] hash(byte[] password, int offset, int length) {
+        byte[] out = new byte[outputSize];
+        hash(password, offset, length, out, 0);
+        return out;
+    }
+
+    /**
+     * Hashes a range of the password into an array without allocating.
+     */
+    void hash(byte[] password, int offset, int length, byte[] out, int outOffset) {
+        // Initial hash H0 of the parameters and inputs
+        int size = 4 * 10 + length + salt.length + secret.length + associatedData.length;
+        if (h0Input.length < size) {
+            h0Input = new byte[size];
+        }
+        int pos = 0;
+        pos = putInt(h0Input, pos, lanes);
+        pos = putInt(h0Input, pos, outputSize);
+        pos = putInt(h0Input, pos, memory);
+        pos = putInt(h0Input, pos, iterations);
+        pos = putInt(h0Input, pos, VERSION);
+        pos = putInt(h0Input, pos, 0); // Argon2d
+        pos = putBytes(h0Input, pos, password, offset, length);
+        pos = putBytes(h0Input, pos, salt, 0, salt.length);
+        pos = putBytes(h0Input, pos, secret, 0, secret.length);
+        pos = putBytes(h0Input, pos, associatedData, 0, associatedData.length);
+        blake2b.digest(h0Input, 0, pos, blockInput, 4, H0_SIZE);
+
+        // First two blocks of each lane
+        for (int lane = 0; lane < lanes; lane++) {
+            for (int i = 0; i < 2; i++) {
+                putInt(blockInput, 4 + H0_SIZE, i);
+                putInt(blockInput, 4 + H0_SIZE + 4, lane);
+                hashPrime(blockInput, blockInput.length, blockBytes, 0, BLOCK_SIZE);
+                int block = (lane * laneLength + i) * BLOCK_WORDS;
+                for (int w = 0; w < BLOCK_WORDS; w++) {
+                    blocks[block + w] = getLong(blockBytes, w * 8);
+                }
+            }
+        }
+
+        for (int pass = 0; pass < iterations; pass++) {
+            for (int slice = 0; slice < SLICES; slice++) {
+                for (int lane = 0; lane < lanes; lane++) {
+                    fillSegment(pass, slice, lane);
+                }
+            }
+        }
+
+        // XOR of the last blocks of all lanes
+        for (int w = 0; w < BLOCK_WORDS; w++) {
+            long word = 0;
+            for (int lane = 0; lane < lanes; lane++) {
+                word ^= blocks[((lane + 1) * laneLength - 1) * BLOCK_WORDS + w];
+            }
+            putLong(finalInput, 4 + w * 8, word);
+        }
+        hashPrime(finalInput, finalInput.length, out, outOffset, outputSize);
+    }
+
+    private void fillSegment(int pass, int slice, int lane) {
+        int laneStart = lane * laneLength;
+        int index = pass == 0 && slice == 0 ? 2 : 0;
+        for (; index < segmentLength; index++) {
+            int current = slice * segmentLength + index;
+            int previous = current == 0 ? laneLength - 1 : current - 1;
+            long pseudoRandom = blocks[(laneStart + previous) * BLOCK_WORDS];
+
+            int refLane = pass == 0 && slice == 0 ? lane : (int) ((pseudoRandom >>> 32) % lanes);
+            boolean sameLane = refLane == lane;
+            long areaSize;
+            if (pass == 0) {
+                areaSize = sameLane ? current - 1 : slice * segmentLength + (index == 0 ? -1 : 0);
+            } else {
+                areaSize = sameLane ? laneLength - segmentLength + index - 1
+                        : laneLength - segmentLength + (index == 0 ? -1 : 0);
+            }
+            long x = pseudoRandom & 0xffffffffL;
+            x = (x * x) >>> 32;
+            long relative = areaSize - 1 - ((areaSize * x) >>> 32);
+            int start = pass == 0 || slice == SLICES - 1 ? 0 : (slice + 1) * segmentLength;
+            int reference = (int) ((start + relative) % laneLength);
+
+            compress((laneStart + previous) * BLOCK_WORDS, (refLane * laneLength + reference) * BLOCK_WORDS,
+                    (laneStart + current) * BLOCK_WORDS, pass > 0);
+        }
+    }
+
+    /**
+     * Compression function G of two blocks into a third block, which is either
+     * overwritten or XORed with the result.
+     */
+    private void compress(int x, int y, int out, boolean xor) {
+        long[] b = blocks;
+        for (int w = 0; w < BLOCK_WORDS; w++) {
+            long word = b[x + w] ^ b[y + w];
+            r[w] = word;
+            q[w] = word;
+        }
+        for (int i = 0; i < 8; i++) {
+            int row = 16 * i;
+            round(q, row, row + 1, row + 2, row + 3, row + 4, row + 5, row + 6, row + 7, row + 8, row + 9,
+                    row + 10, row + 11, row + 12, row + 13, row + 14, row + 15);
+        }
+        for (int i = 0; i < 8; i++) {
+            int column = 2 * i;
+            round(q, column, column + 1, column + 16, column + 17, column + 32, column + 33, column + 48,
+                    column + 49, column + 64, column + 65, column + 80, column + 81, column + 96, column + 97,
+                    column + 112, column + 113);
+        }
+        if (xor) {
+            for (int w = 0; w < BLOCK_WORDS; w++) {
+                b[out + w] ^= q[w] ^ r[w];
+            }
+        } else {
+            for (int w = 0; w < BLOCK_WORDS; w++) {
+                b[out + w] = q[w] ^ r[w];
+            }
+        }
+    }
+
+    private static void round(long[] v, int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7, int v8,
+            int v9, int v10, int v11, int v12, int v13, int v14, int v15) {
+        mix(v, v0, v4, v8, v12);
+        mix(v, v1, v5, v9, v13);
+        mix(v, v2, v6, v10, v14);
+        mix(v, v3, v7, v11, v15);
+        mix(v, v0, v5, v10, v15);
+        mix(v, v1, v6, v11, v12);
+        mix(v, v2, v7, v8, v13);
+        mix(v, v3, v4, v9, v14);
+    }
+
+    private static void mix(long[] v, int a, int b, int c, int d) {
+        long va = v[a];
+        long vb = v[b];
+        long vc = v[c];
+        long vd = v[d];
+        va = multiplyAdd(va, vb);
+        vd = Long.rotateRight(vd ^ va, 32);
+        vc = multiplyAdd(vc, vd);
+        vb = Long.rotateRight(vb ^ vc, 24);
+        va = multiplyAdd(va, vb);
+        vd = Long.rotateRight(vd ^ va, 16);
+        vc = multiplyAdd(vc, vd);
+        vb = Long.rotateRight(vb ^ vc, 63);
+        v[a] = va;
+        v[b] = vb;
+        v[c] = vc;
+        v[d] = vd;
+    }
+
+    private static long multiplyAdd(long x, long y) {
+        return x + y + 2 * (x & 0xffffffffL) * (y & 0xffffffffL);
+    }
+
+    /**
+     * Variable length hash function H'. The first 4 bytes of the input are
+     * reserved for the output size.
+     */
+    private void hashPrime(byte[] input, int length, byte[] out, int outOffset, int size) {
+        putInt(input, 0, size);
+        if (size <= 64) {
+            blake2b.digest(input, 0, length, out, outOffset, size);
+            return;
+        }
+        int rounds = (size + 31) / 32 - 2;
+        blake2b.digest(input, 0, length, chain, 0, 64);
+        System.arraycopy(chain, 0, out, outOffset, 32);
+        for (int i = 1; i < rounds; i++) {
+            blake2b.digest(chain, 0, 64, chain, 0, 64);
+            System.arraycopy(chain, 0, out, outOffset + i * 32, 32);
+        }
+        blake2b.digest(chain, 0, 64, out, outOffset + rounds * 32, size - rounds * 32);
+    }
+
+    private static int putInt(byte[] out, int offset, int value) {
+        out[offset] = (byte) value;
+        out[offset + 1] = (byte) (value >>> 8);
+        out[offset + 2] = (byte) (value >>> 16);
+        out[offset + 3] = (byte) (value >>> 24);
+        return offset + 4;
+    }
+
+    private static int putBytes(byte[] out, int offset, byte[] data, int dataOffset, int length) {
+        offset = putInt(out, offset, length);
+        System.arraycopy(data, dataOffset, out, offset, length);
+        return offset + length;
+    }
+
+    private static void putLong(byte[] out, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            out[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private static long getLong(byte[] in, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (in[offset + i] & 0xffL);
+        }
+        return value;
+    }
+}
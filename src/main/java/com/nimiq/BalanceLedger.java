@@ -0,0 +1,303 @@
+package com.nimiq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Incremental ledger of account balances, which answers queries for balances
+ * at past heights locally.
+ * <p>
+ * The ledger is fed with blocks including full transactions, either as a
+ * {@link BlockListener} or, to handle forks, as a {@link ChainListener}. Each
+ * block is applied to the current balances: the value and fee of every
+ * transaction are debited from the sender and the value is credited to the
+ * recipient, the miner is credited the block reward and the fees. The changes
+ * of each block are kept as a delta, and a full copy of the balances is kept
+ * every few blocks. A balance at a past height is computed from the closest
+ * copy or the current balances by applying the deltas in between, and rewound
+ * blocks are rolled back by applying their delta in reverse. Deltas and copies
+ * are only kept for a bounded number of recent blocks, older heights can't be
+ * queried or rolled back.
+ * <p>
+ * The ledger only knows balances that it has seen change, so it must start
+ * from the complete balances at its start height. Even the genesis block has
+ * pre-allocated accounts, so there is no empty starting point.
+ */
+public class BalanceLedger implements BlockListener, ChainListener {
+
+    /**
+     * Default number of blocks between two copies of the balances.
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1000;
+
+    /**
+     * Default number of recent blocks whose balances can be queried.
+     */
+    public static final int DEFAULT_MAX_HISTORY = 100_000;
+
+    private static class Delta {
+
+        final int[] ids;
+        final long[] amounts;
+
+        Delta(int[] ids, long[] amounts) {
+            this.ids = ids;
+            this.amounts = amounts;
+        }
+    }
+
+    private final IntToLongFunction blockReward;
+    private final int snapshotInterval;
+    private final int maxHistory;
+    private final HashKeySet addresses = new HashKeySet(NimiqUtils.ADDRESS_SIZE, 1 << 16);
+    private final List<Delta> deltas = new ArrayList<>();
+    private final TreeMap<Integer, long[]> snapshots = new TreeMap<>();
+    private long[] balances = new long[1 << 16];
+    // Oldest height whose balances can be computed
+    private int base;
+    private int height;
+
+    /**
+     * Creates a ledger with the default snapshot interval and history.
+     *
+     * @param height      Height of the block after which the balances are given,
+     *                    the next added block must succeed it
+     * @param balances    Hex-encoded addresses with all their balances in Luna
+     * @param blockReward Function returning the block reward, without fees, at a
+     *                    height in Luna
+     */
+    public BalanceLedger(int height, Map<String, Long> balances, IntToLongFunction blockReward) {
+        this(height, balances, blockReward, DEFAULT_SNAPSHOT_INTERVAL, DEFAULT_MAX_HISTORY);
+    }
+
+    /**
+     * Creates a ledger.
+     *
+     * @param height           Height of the block after which the balances are
+     *                         given, the next added block must succeed it
+     * @param balances         Hex-encoded addresses with all their balances in
+     *                         Luna
+     * @param blockReward      Function returning the block reward, without fees,
+     *                         at a height in Luna
+     * @param snapshotInterval Number of blocks between two copies of the balances
+     * @param maxHistory       Number of recent blocks whose balances can be
+     *                         queried and that can be rolled back
+     */
+    public BalanceLedger(int height, Map<String, Long> balances, IntToLongFunction blockReward,
+            int snapshotInterval, int maxHistory) {
+        if (snapshotInterval < 1 || maxHistory < 1) {
+            throw new IllegalArgumentException("Invalid ledger configuration");
+        }
+        this.blockReward = blockReward;
+        this.snapshotInterval = snapshotInterval;
+        this.maxHistory = maxHistory;
+        this.base = height;
+        this.height = height;
+        for (Map.Entry<String, Long> entry : balances.entrySet()) {
+            this.balances[addressId(entry.getKey())] = entry.getValue();
+        }
+        snapshots.put(height, Arrays.copyOf(this.balances, addresses.size()));
+    }
+
+    /**
+     * @return Height of the last applied block.
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Oldest height whose balances can be queried.
+     */
+    public synchronized int getOldestHeight() {
+        return base;
+    }
+
+    /**
+     * @param address User friendly (NQ-address) or hex-encoded address
+     * @return The current balance of the address in Luna.
+     */
+    public synchronized long getBalance(String address) {
+        int id = addresses.idOf(toHex(address));
+        return id < 0 ? 0 : balances[id];
+    }
+
+    /**
+     * Returns the balance of an address after the block at a given height.
+     *
+     * @param address User friendly (NQ-address) or hex-encoded address
+     * @param height  The height, between the oldest height and the height of the
+     *                last applied block
+     * @return The balance in Luna.
+     */
+    public synchronized long balanceAt(String address, int height) {
+        checkHeight(height);
+        int id = addresses.idOf(toHex(address));
+        if (id < 0) {
+            return 0;
+        }
+        Map.Entry<Integer, long[]> snapshot = snapshots.floorEntry(height);
+        if (snapshot == null || this.height - height < height - snapshot.getKey()) {
+            long balance = balances[id];
+            for (int h = this.height; h > height; h--) {
+                balance -= amountOf(delta(h), id);
+            }
+            return balance;
+        }
+        long balance = id < snapshot.getValue().length ? snapshot.getValue()[id] : 0;
+        for (int h = snapshot.getKey() + 1; h <= height; h++) {
+            balance += amountOf(delta(h), id);
+        }
+        return balance;
+    }
+
+    /**
+     * Returns all balances after the block at a given height.
+     *
+     * @param height The height, between the oldest height and the height of the
+     *               last applied block
+     * @return Hex-encoded addresses with their non-zero balances in Luna.
+     */
+    public synchronized Map<String, Long> snapshotAt(int height) {
+        checkHeight(height);
+        Map.Entry<Integer, long[]> snapshot = snapshots.floorEntry(height);
+        long[] values;
+        if (snapshot == null || this.height - height < height - snapshot.getKey()) {
+            values = Arrays.copyOf(balances, addresses.size());
+            for (int h = this.height; h > height; h--) {
+                apply(values, delta(h), -1);
+            }
+        } else {
+            values = Arrays.copyOf(snapshot.getValue(), addresses.size());
+            for (int h = snapshot.getKey() + 1; h <= height; h++) {
+                apply(values, delta(h), 1);
+            }
+        }
+        Map<String, Long> result = new HashMap<>();
+        addresses.forEach(address -> {
+            long balance = values[addresses.idOf(address)];
+            if (balance != 0) {
+                result.put(address, balance);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Applies a block to the balances.
+     *
+     * @param block The block succeeding the last applied block, including full
+     *              transactions
+     */
+    public synchronized void add(Block block) {
+        if (block.getNumber() != height + 1) {
+            throw new IllegalArgumentException("Expected block #" + (height + 1) + " but got #" + block.getNumber());
+        }
+        List<Transaction> transactions = block.getTransactions() != null ? block.getTransactions()
+                : new ArrayList<>();
+        int[] ids = new int[transactions.size() * 2 + 1];
+        long[] amounts = new long[ids.length];
+        long fees = 0;
+        int i = 0;
+        for (Transaction tx : transactions) {
+            if (tx.getFrom() == null) {
+                throw new IllegalArgumentException("Block #" + block.getNumber() + " lacks full transactions");
+            }
+            ids[i] = addressId(tx.getFrom());
+            amounts[i++] = -(tx.getValue() + tx.getFee());
+            ids[i] = addressId(tx.getTo());
+            amounts[i++] = tx.getValue();
+            fees += tx.getFee();
+        }
+        ids[i] = addressId(block.getMiner());
+        amounts[i] = blockReward.applyAsLong(block.getNumber()) + fees;
+
+        Delta delta = new Delta(ids, amounts);
+        apply(balances, delta, 1);
+        deltas.add(delta);
+        height = block.getNumber();
+        if (height % snapshotInterval == 0) {
+            snapshots.put(height, Arrays.copyOf(balances, addresses.size()));
+        }
+        // Drop the oldest history in chunks, so removing from the list is cheap
+        if (height - base >= maxHistory + snapshotInterval) {
+            int oldest = height - maxHistory;
+            deltas.subList(0, oldest - base).clear();
+            snapshots.headMap(oldest).clear();
+            base = oldest;
+        }
+    }
+
+    /**
+     * Rolls back the last applied block.
+     *
+     * @param block The last applied block
+     */
+    public synchronized void remove(Block block) {
+        if (block.getNumber() != height || height == base) {
+            throw new IllegalArgumentException("Block #" + block.getNumber() + " is not the last applied block");
+        }
+        apply(balances, deltas.remove(deltas.size() - 1), -1);
+        snapshots.remove(height);
+        height--;
+    }
+
+    @Override
+    public void onBlock(Block block) {
+        add(block);
+    }
+
+    @Override
+    public void blockConnected(Block block) {
+        add(block);
+    }
+
+    @Override
+    public void blockDisconnected(Block block) {
+        remove(block);
+    }
+
+    private void checkHeight(int height) {
+        if (height < base || height > this.height) {
+            throw new IllegalArgumentException(
+                    "Height " + height + " is outside of the ledger range " + base + "-" + this.height);
+        }
+    }
+
+    private Delta delta(int height) {
+        return deltas.get(height - base - 1);
+    }
+
+    private static long amountOf(Delta delta, int id) {
+        long amount = 0;
+        for (int i = 0; i < delta.ids.length; i++) {
+            if (delta.ids[i] == id) {
+                amount += delta.amounts[i];
+            }
+        }
+        return amount;
+    }
+
+    private static void apply(long[] values, Delta delta, int sign) {
+        for (int i = 0; i < delta.ids.length; i++) {
+            values[delta.ids[i]] += sign * delta.amounts[i];
+        }
+    }
+
+    private static String toHex(String address) {
+        return NimiqUtils.toHex(NimiqUtils.parseAddress(address));
+    }
+
+    private int addressId(String address) {
+        int id = addresses.intern(toHex(address));
+        if (id == balances.length) {
+            balances = Arrays.copyOf(balances, balances.length * 2);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,313 @@
+package com.nimiq;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Captures the balances of a large set of addresses at a single block height,
+ * for example for a proof of reserves.
+ * <p>
+ * The accounts are fetched with concurrent workers, possibly spread over
+ * multiple nodes, which take the addresses in batches. As the chain may advance
+ * while fetching, the head is recorded before and after. The blocks in between
+ * are scanned for transactions and rewards touching the addresses, and only
+ * those addresses are fetched again, until the head block stays the same. If a
+ * fork replaced the block that was the head before, all addresses are fetched
+ * again. The heads are compared by hash, and all nodes must be at the same head
+ * before and after a round, so that every balance belongs to the same block.
+ * The result is written to a file stamped with the height of the snapshot.
+ */
+public class BalanceSnapshotter {
+
+    /**
+     * Number of addresses a worker takes at once.
+     */
+    public static final int BATCH_SIZE = 64;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalanceSnapshotter.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 1_000;
+    private static final int MAX_ROUNDS = 10;
+
+    /**
+     * Outcome of a snapshot.
+     */
+    public static class Report {
+
+        private final int height;
+        private final int accounts;
+        private final int refetched;
+        private final int rounds;
+        private final long duration;
+
+        Report(int height, int accounts, int refetched, int rounds, long duration) {
+            this.height = height;
+            this.accounts = accounts;
+            this.refetched = refetched;
+            this.rounds = rounds;
+            this.duration = duration;
+        }
+
+        /**
+         * @return Height of the block after which the balances were captured.
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return Number of captured accounts.
+         */
+        public int getAccounts() {
+            return accounts;
+        }
+
+        /**
+         * @return Number of accounts fetched again because they changed during the
+         *         snapshot.
+         */
+        public int getRefetched() {
+            return refetched;
+        }
+
+        /**
+         * @return Number of fetch rounds until the head stayed the same.
+         */
+        public int getRounds() {
+            return rounds;
+        }
+
+        /**
+         * @return Time to completion in milliseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * @return Number of fetched accounts per second.
+         */
+        public double getThroughput() {
+            return (accounts + refetched) * 1000.0 / Math.max(duration, 1);
+        }
+    }
+
+    private final List<NimiqClient> clients;
+    private final int threads;
+
+    /**
+     * Creates a snapshotter.
+     *
+     * @param clients The clients to fetch the accounts with, the workers are
+     *                assigned to them round-robin
+     * @param threads Number of concurrent workers
+     */
+    public BalanceSnapshotter(List<NimiqClient> clients, int threads) {
+        if (clients.isEmpty() || threads < 1) {
+            throw new IllegalArgumentException("Invalid snapshotter configuration");
+        }
+        this.clients = clients;
+        this.threads = threads;
+    }
+
+    /**
+     * Captures the balances of a set of addresses and writes them to a file. The
+     * file starts with a line {@code # height <height>}, followed by a line
+     * {@code <address>,<balance in Luna>} for each address in hex.
+     *
+     * @param addresses User friendly (NQ-address) or hex-encoded addresses
+     * @param file      The file to write the snapshot to
+     * @return The report of the snapshot.
+     * @throws IOException          if the file can't be written
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    public Report snapshot(Collection<String> addresses, Path file) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        HashKeySet ids = new HashKeySet(NimiqUtils.ADDRESS_SIZE, addresses.size());
+        List<String> unique = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            String hex = NimiqUtils.toHex(NimiqUtils.parseAddress(address));
+            if (ids.intern(hex) == unique.size()) {
+                unique.add(hex);
+            }
+        }
+        long[] balances = new long[unique.size()];
+        NimiqClient client = clients.get(0);
+
+        int[] all = new int[unique.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        int[] pending = all;
+        int refetched = 0;
+        int rounds = 0;
+        Block head = null;
+        while (true) {
+            if (++rounds > MAX_ROUNDS) {
+                throw new IllegalStateException("The chain head kept moving for " + MAX_ROUNDS + " rounds");
+            }
+            if (head == null) {
+                head = commonHead();
+                if (head == null) {
+                    LOGGER.info("The nodes are at different heads, waiting for them to agree");
+                    Thread.sleep(RETRY_DELAY);
+                    continue;
+                }
+            }
+            fetch(unique, pending, balances);
+            if (pending != all) {
+                refetched += pending.length;
+            }
+            Block current = commonHead();
+            if (current == null) {
+                LOGGER.info("The nodes moved to different heads, fetching all accounts again");
+                head = null;
+                pending = all;
+                continue;
+            }
+            if (current.getHash().equals(head.getHash())) {
+                break;
+            }
+            // Collect the addresses touched by the blocks since the last head
+            boolean[] changed = new boolean[unique.size()];
+            int count = 0;
+            Block previous = head;
+            for (int number = head.getNumber() + 1; number <= current.getNumber(); number++) {
+                Block block = client.getBlockByNumber(number, true);
+                if (block == null || !block.getParentHash().equals(previous.getHash())) {
+                    count = -1;
+                    break;
+                }
+                List<String> touched = new ArrayList<>();
+                touched.add(block.getMiner());
+                if (block.getTransactions() != null) {
+                    for (Transaction tx : block.getTransactions()) {
+                        touched.add(tx.getFrom());
+                        touched.add(tx.getTo());
+                    }
+                }
+                for (String address : touched) {
+                    int id = ids.idOf(address);
+                    if (id >= 0 && !changed[id]) {
+                        changed[id] = true;
+                        count++;
+                    }
+                }
+                previous = block;
+            }
+            // A reorg at the same or a lower height leaves nothing to scan
+            if (count < 0 || !previous.getHash().equals(current.getHash())) {
+                LOGGER.info("Fork below block #{}, fetching all accounts again", current.getNumber());
+                head = current;
+                pending = all;
+                continue;
+            }
+            head = previous;
+            pending = new int[count];
+            for (int id = 0, i = 0; id < changed.length; id++) {
+                if (changed[id]) {
+                    pending[i++] = id;
+                }
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.US_ASCII)) {
+            writer.write("# height " + head.getNumber());
+            writer.newLine();
+            for (int i = 0; i < balances.length; i++) {
+                writer.write(unique.get(i));
+                writer.write(',');
+                writer.write(String.valueOf(balances[i]));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Report report = new Report(head.getNumber(), balances.length, refetched, rounds,
+                System.currentTimeMillis() - start);
+        LOGGER.info("Captured {} accounts at block #{} in {} ms ({} accounts/s, {} fetched again)",
+                report.getAccounts(), report.getHeight(), report.getDuration(), (long) report.getThroughput(),
+                report.getRefetched());
+        return report;
+    }
+
+    /**
+     * @return The head block all nodes agree on, or null if they are at
+     *         different heads.
+     */
+    private Block commonHead() {
+        Block head = null;
+        for (NimiqClient client : clients) {
+            Block block = client.getBlockByNumber(client.getBlockNumber(), false);
+            if (head != null && !head.getHash().equals(block.getHash())) {
+                return null;
+            }
+            head = block;
+        }
+        return head;
+    }
+
+    private void fetch(List<String> addresses, int[] pending, long[] balances) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-balance-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                NimiqClient client = clients.get(i % clients.size());
+                workers.add(executor.submit(() -> {
+                    int from;
+                    while ((from = next.getAndAdd(BATCH_SIZE)) < pending.length) {
+                        for (int j = from; j < Math.min(from + BATCH_SIZE, pending.length); j++) {
+                            int id = pending[j];
+                            balances[id] = fetch(client, addresses.get(id)).getBalance();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Fetching accounts failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Account fetch(NimiqClient client, String address) throws InterruptedException {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return client.getAccount(address);
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(RETRY_DELAY * attempt);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.nimiq;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unkeyed BLAKE2b hash function (RFC 7693), which Nimiq uses for transaction
+ * and block hashes and for addresses.
+ * <p>
+ * The static methods allocate their state on each call. An instance keeps its
+ * state for repeated hashing into existing arrays, as needed by Argon2d.
+ */
+final class Blake2b {
+
+    /**
+     * Size of a Nimiq hash in bytes.
+     */
+    static final int HASH_SIZE = 32;
+
+    private static final long[] IV = {
+            0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+            0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L };
+
+    private static final byte[][] SIGMA = {
+            { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 },
+            { 14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3 },
+            { 11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4 },
+            { 7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8 },
+            { 9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13 },
+            { 2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9 },
+            { 12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11 },
+            { 13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10 },
+            { 6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5 },
+            { 10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0 } };
+
+    private static final int BLOCK_SIZE = 128;
+
+    private final long[] h = new long[8];
+    private final long[] m = new long[16];
+    private final long[] v = new long[16];
+
+    /**
+     * Creates reusable state for hashing without allocation.
+     */
+    Blake2b() {
+    }
+
+    /**
+     * Hashes a range of the data into an array. The output may overlap the input.
+     *
+     * @param outputSize Size of the hash in bytes, from 1 to 64
+     */
+    void digest(byte[] data, int offset, int length, byte[] out, int outOffset, int outputSize) {
+        if (outputSize < 1 || outputSize > 64) {
+            throw new IllegalArgumentException("Invalid hash size: " + outputSize);
+        }
+        System.arraycopy(IV, 0, h, 0, 8);
+        h[0] ^= 0x01010000L ^ outputSize;
+        int end = offset + length;
+        long counter = 0;
+        do {
+            int size = Math.min(BLOCK_SIZE, end - offset);
+            counter += size;
+            for (int i = 0; i < 16; i++) {
+                m[i] = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                m[i >> 3] |= (data[offset + i] & 0xffL) << ((i & 7) * 8);
+            }
+            offset += size;
+            compress(h, m, v, counter, offset == end);
+        } while (offset < end);
+
+        for (int i = 0; i < outputSize; i++) {
+            out[outOffset + i] = (byte) (h[i >> 3] >>> ((i & 7) * 8));
+        }
+    }
+
+    /**
+     * @return The 32 byte hash of the data.
+     */
+    static byte[] hash(byte[] data) {
+        return digest(data, 0, data.length, HASH_SIZE);
+    }
+
+    /**
+     * @return The 32 byte hash of a range of the data.
+     */
+    static byte[] hash(byte[] data, int offset, int length) {
+        return digest(data, offset, length, HASH_SIZE);
+    }
+
+    /**
+     * Hashes a range of the data.
+     *
+     * @param outputSize Size of the hash in bytes, from 1 to 64
+     * @return The hash.
+     */
+    static byte[] digest(byte[] data, int offset, int length, int outputSize) {
+        return digest(ByteBuffer.wrap(data), offset, length, outputSize);
+    }
+
+    /**
+     * @return The 32 byte hash of a range of the buffer, independent of its
+     *         position and limit.
+     */
+    static byte[] hash(ByteBuffer data, int offset, int length) {
+        return digest(data, offset, length, HASH_SIZE);
+    }
+
+    /**
+     * Hashes a range of the buffer, independent of its position and limit.
+     *
+     * @param outputSize Size of the hash in bytes, from 1 to 64
+     * @return The hash.
+     */
+    static byte[] digest(ByteBuffer data, int offset, int length, int outputSize) {
+        if (outputSize < 1 || outputSize > 64) {
+            throw new IllegalArgumentException("Invalid hash size: " + outputSize);
+        }
+        long[] h = IV.clone();
+        h[0] ^= 0x01010000L ^ outputSize;
+        long[] m = new long[16];
+        long[] v = new long[16];
+        int end = offset + length;
+        long counter = 0;
+        do {
+            int size = Math.min(BLOCK_SIZE, end - offset);
+            counter += size;
+            for (int i = 0; i < 16; i++) {
+                m[i] = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                m[i >> 3] |= (data.get(offset + i) & 0xffL) << ((i & 7) * 8);
+            }
+            offset += size;
+            compress(h, m, v, counter, offset == end);
+        } while (offset < end);
+
+        byte[] out = new byte[outputSize];
+        for (int i = 0; i < outputSize; i++) {
+            out[i] = (byte) (h[i >> 3] >>> ((i & 7) * 8));
+        }
+        return out;
+    }
+
+    private static void compress(long[] h, long[] m, long[] v, long counter, boolean last) {
+        System.arraycopy(h, 0, v, 0, 8);
+        System.arraycopy(IV, 0, v, 8, 8);
+        v[12] ^= counter;
+        if (last) {
+            v[14] = ~v[14];
+        }
+        for (byte[] s : SIGMA) {
+            mix(v, 0, 4, 8, 12, m[s[0]], m[s[1]]);
+            mix(v, 1, 5, 9, 13, m[s[2]], m[s[3]]);
+            mix(v, 2, 6, 10, 14, m[s[4]], m[s[5]]);
+            mix(v, 3, 7, 11, 15, m[s[6]], m[s[7]]);
+            mix(v, 0, 5, 10, 15, m[s[8]], m[s[9]]);
+            mix(v, 1, 6, 11, 12, m[s[10]], m[s[11]]);
+            mix(v, 2, 7, 8, 13, m[s[12]], m[s[13]]);
+            mix(v, 3, 4, 9, 14, m[s[14]], m[s[15]]);
+        }
+        // The last two rounds repeat the first two permutations
+        for (int r = 0; r < 2; r++) {
+            byte[] s = SIGMA[r];
+            mix(v, 0, 4, 8, 12, m[s[0]], m[s[1]]);
+            mix(v, 1, 5, 9, 13, m[s[2]], m[s[3]]);
+            mix(v, 2, 6, 10, 14, m[s[4]], m[s[5]]);
+            mix(v, 3, 7, 11, 15, m[s[6]], m[s[7]]);
+            mix(v, 0, 5, 10, 15, m[s[8]], m[s[9]]);
+            mix(v, 1, 6, 11, 12, m[s[10]], m[s[11]]);
+            mix(v, 2, 7, 8, 13, m[s[12]], m[s[13]]);
+            mix(v, 3, 4, 9, 14, m[s[14]], m[s[15]]);
+        }
+        for (int i = 0; i < 8; i++) {
+            h[i] ^= v[i] ^ v[i + 8];
+        }
+    }
+
+    private static void mix(long[] v, int a, int b, int c, int d, long x, long y) {
+        v[a] += v[b] + x;
+        v[d] = Long.rotateRight(v[d] ^ v[a], 32);
+        v[c] += v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 24);
+        v[a] += v[b] + y;
+        v[d] = Long.rotateRight(v[d] ^ v[a], 16);
+        v[c] += v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 63);
+    }
+}
@@ -0,0 +1,397 @@
+package com.nimiq;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append-only local archive of blocks, stored in memory-mapped segment files
+ * next to a fixed-width height to offset index.
+ * <p>
+ * Blocks are stored in a compact binary form (hashes and addresses as raw
+ * bytes) and must be appended in order of their height. Reads are served
+ * straight from the mapped files, without any RPC calls. The archive supports a
+ * single writer and any number of concurrent readers.
+ * <p>
+ * Since the archive can't be rewound, {@link #sync(NimiqClient, int)} leaves
+ * out the most recent blocks that might still change due to forks.
+ */
+public class BlockArchive implements Closeable {
+
+    /**
+     * Default size of a segment file in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final String INDEX_FILE = "index.dat";
+    private static final String SEGMENT_FILE = "segment-%05d.dat";
+
+    private static final int MAGIC = 0x4e514241; // "NQBA"
+    private static final int VERSION = 1;
+    private static final int INDEX_HEADER_SIZE = 24;
+    private static final int INDEX_ENTRY_SIZE = 8;
+    private static final int INDEX_GROWTH = 1 << 16;
+
+    private static final int FLAG_TRANSACTIONS = 1;
+    private static final int FLAG_FULL_TRANSACTIONS = 2;
+
+    private static final int HASH_SIZE = 32;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final FileChannel indexChannel;
+    private volatile MappedByteBuffer index;
+    private volatile int firstHeight;
+    private volatile int count;
+    private long writePosition;
+    private volatile boolean closed;
+
+    /**
+     * Opens the archive in the given directory with the default segment size,
+     * creating it if necessary.
+     *
+     * @param directory The directory holding the archive files
+     * @throws IOException if the archive can't be opened
+     */
+    public BlockArchive(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the archive in the given directory, creating it if necessary.
+     *
+     * @param directory   The directory holding the archive files
+     * @param segmentSize The size of the segment files in bytes, only used for a
+     *                    new archive
+     * @throws IOException if the archive can't be opened
+     */
+    public BlockArchive(Path directory, int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        indexChannel = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (indexChannel.size() == 0) {
+            index = mapIndex(INDEX_GROWTH);
+            index.putInt(0, MAGIC);
+            index.putInt(4, VERSION);
+            index.putInt(8, segmentSize);
+            this.segmentSize = segmentSize;
+        } else {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+            if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+                indexChannel.close();
+                throw new IOException("Not a block archive: " + directory);
+            }
+            this.segmentSize = index.getInt(8);
+            firstHeight = index.getInt(12);
+            count = index.getInt(16);
+        }
+        if (count > 0) {
+            long last = index.getLong(entryOffset(count - 1));
+            MappedByteBuffer segment = segment((int) (last / this.segmentSize));
+            writePosition = last + 4 + segment.getInt((int) (last % this.segmentSize));
+        }
+    }
+
+    /**
+     * @return Height of the first archived block, or 0 if the archive is empty.
+     */
+    public int getFirstHeight() {
+        return firstHeight;
+    }
+
+    /**
+     * @return Height of the last archived block, or 0 if the archive is empty.
+     */
+    public int getLastHeight() {
+        int count = this.count;
+        return count == 0 ? 0 : firstHeight + count - 1;
+    }
+
+    /**
+     * @return Number of archived blocks.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param height Height of a block
+     * @return Whether the block at the given height is archived.
+     */
+    public boolean contains(int height) {
+        int count = this.count;
+        return count > 0 && height >= firstHeight && height < firstHeight + count;
+    }
+
+    /**
+     * Appends a block to the archive. The first block may have any height, the
+     * following ones must succeed it without gaps.
+     *
+     * @param block The block to append, with or without full transactions
+     * @throws IOException if the block can't be written
+     */
+    public synchronized void append(Block block) throws IOException {
+        ensureOpen();
+        if (count > 0 && block.getNumber() != firstHeight + count) {
+            throw new IllegalArgumentException(
+                    "Expected block #" + (firstHeight + count) + " but got #" + block.getNumber());
+        }
+        byte[] record = encode(block);
+        if (record.length + 4 > segmentSize) {
+            throw new IllegalArgumentException("Block #" + block.getNumber() + " exceeds the segment size");
+        }
+
+        long position = writePosition;
+        if (position % segmentSize + 4 + record.length > segmentSize) {
+            position = (position / segmentSize + 1) * segmentSize;
+        }
+        int segment = (int) (position / segmentSize);
+        int offset = (int) (position % segmentSize);
+        ByteBuffer data = slice(segment(segment), offset, 4 + record.length);
+        data.putInt(record.length);
+        data.put(record);
+
+        int entry = count;
+        if (entryOffset(entry) + INDEX_ENTRY_SIZE > index.capacity()) {
+            index = mapIndex(entry + INDEX_GROWTH);
+        }
+        index.putLong(entryOffset(entry), position);
+        if (entry == 0) {
+            firstHeight = block.getNumber();
+            index.putInt(12, firstHeight);
+        }
+        index.putInt(16, entry + 1);
+        writePosition = position + 4 + record.length;
+        count = entry + 1;
+    }
+
+    /**
+     * Appends all blocks the node has beyond the last archived one, except for the
+     * given number of most recent blocks. An empty archive is filled from the
+     * genesis block.
+     *
+     * @param client        The client to fetch the blocks with
+     * @param confirmations Number of confirmations a block needs before it is
+     *                      archived
+     * @return Number of appended blocks.
+     * @throws IOException if a block can't be written
+     */
+    public int sync(NimiqClient client, int confirmations) throws IOException {
+        int head = client.getBlockNumber() - confirmations;
+        int next = count == 0 ? 1 : getLastHeight() + 1;
+        int appended = 0;
+        for (int height = next; height <= head; height++) {
+            append(client.getBlockByNumber(height, true));
+            appended++;
+        }
+        if (appended > 0) {
+            flush();
+        }
+        return appended;
+    }
+
+    /**
+     * Returns the archived block at the given height. Confirmations are not
+     * archived and always reported as 0.
+     *
+     * @param height Height of the block
+     * @return The block, or null if it is not archived.
+     */
+    public Block get(int height) {
+        ByteBuffer raw = getRaw(height);
+        return raw == null ? null : decode(raw);
+    }
+
+    /**
+     * Returns the encoded block at the given height as a read-only view of the
+     * mapped file, without copying it.
+     *
+     * @param height Height of the block
+     * @return The encoded block, or null if it is not archived.
+     */
+    public ByteBuffer getRaw(int height) {
+        ensureOpen();
+        if (!contains(height)) {
+            return null;
+        }
+        long position = index.getLong(entryOffset(height - firstHeight));
+        MappedByteBuffer segment = segments.get((int) (position / segmentSize));
+        int offset = (int) (position % segmentSize);
+        return slice(segment, offset + 4, segment.getInt(offset)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Forces all appended blocks to be written to the storage device.
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        index.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        indexChannel.close();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Archive is closed");
+        }
+    }
+
+    private static int entryOffset(int entry) {
+        return INDEX_HEADER_SIZE + entry * INDEX_ENTRY_SIZE;
+    }
+
+    private MappedByteBuffer mapIndex(int entries) throws IOException {
+        return indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, entryOffset(entries));
+    }
+
+    private MappedByteBuffer segment(int segment) throws IOException {
+        while (segments.size() <= segment) {
+            Path file = directory.resolve(String.format(SEGMENT_FILE, segments.size()));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            }
+        }
+        return segments.get(segment);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        ((Buffer) duplicate).position(offset);
+        ((Buffer) duplicate).limit(offset + length);
+        return duplicate.slice();
+    }
+
+    // Encoding
+
+    private static byte[] encode(Block block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<Transaction> transactions = block.getTransactions();
+        boolean full = transactions != null && transactions.stream().allMatch(tx -> tx.getFrom() != null);
+        out.writeByte((transactions != null ? FLAG_TRANSACTIONS : 0) | (full ? FLAG_FULL_TRANSACTIONS : 0));
+        out.writeInt(block.getNumber());
+        writeHex(out, block.getHash(), HASH_SIZE);
+        writeHex(out, block.getPow(), HASH_SIZE);
+        writeHex(out, block.getParentHash(), HASH_SIZE);
+        out.writeInt(block.getNonce());
+        writeHex(out, block.getBodyHash(), HASH_SIZE);
+        writeHex(out, block.getAccountHash(), HASH_SIZE);
+        writeHex(out, block.getMiner(), NimiqUtils.ADDRESS_SIZE);
+        writeString(out, block.getDifficulty());
+        byte[] extraData = NimiqUtils.fromHex(block.getExtraData() != null ? block.getExtraData() : "");
+        out.writeByte(extraData.length);
+        out.write(extraData);
+        out.writeInt(block.getSize());
+        out.writeInt(block.getTimestamp());
+        if (transactions != null) {
+            out.writeShort(transactions.size());
+            for (Transaction tx : transactions) {
+                writeHex(out, tx.getHash(), HASH_SIZE);
+                if (full) {
+                    writeHex(out, tx.getFrom(), NimiqUtils.ADDRESS_SIZE);
+                    writeHex(out, tx.getTo(), NimiqUtils.ADDRESS_SIZE);
+                    out.writeLong(tx.getValue());
+                    out.writeLong(tx.getFee());
+                    byte[] data = NimiqUtils.fromHex(tx.getData() != null ? tx.getData() : "");
+                    out.writeShort(data.length);
+                    out.write(data);
+                    out.writeByte(tx.getFlags());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeHex(DataOutputStream out, String hex, int size) throws IOException {
+        byte[] bytes = NimiqUtils.fromHex(hex);
+        if (bytes.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " bytes but got: " + hex);
+        }
+        out.write(bytes);
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.US_ASCII);
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Block decode(ByteBuffer in) {
+        int flags = in.get();
+        Block block = new Block();
+        block.setNumber(in.getInt());
+        block.setHash(readHex(in, HASH_SIZE));
+        block.setPow(readHex(in, HASH_SIZE));
+        block.setParentHash(readHex(in, HASH_SIZE));
+        block.setNonce(in.getInt());
+        block.setBodyHash(readHex(in, HASH_SIZE));
+        block.setAccountHash(readHex(in, HASH_SIZE));
+        byte[] miner = readBytes(in, NimiqUtils.ADDRESS_SIZE);
+        block.setMiner(NimiqUtils.toHex(miner));
+        block.setMinerAddress(NimiqUtils.toUserFriendlyAddress(miner));
+        block.setDifficulty(new String(readBytes(in, in.get() & 0xff), StandardCharsets.US_ASCII));
+        block.setExtraData(readHex(in, in.get() & 0xff));
+        block.setSize(in.getInt());
+        block.setTimestamp(in.getInt());
+        if ((flags & FLAG_TRANSACTIONS) != 0) {
+            int size = in.getShort() & 0xffff;
+            List<Transaction> transactions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Transaction tx = new Transaction(readHex(in, HASH_SIZE));
+                if ((flags & FLAG_FULL_TRANSACTIONS) != 0) {
+                    tx.setBlockHash(block.getHash());
+                    tx.setBlockNumber(block.getNumber());
+                    tx.setTimestamp(block.getTimestamp());
+                    tx.setTransactionIndex(i);
+                    byte[] from = readBytes(in, NimiqUtils.ADDRESS_SIZE);
+                    tx.setFrom(NimiqUtils.toHex(from));
+                    tx.setFromAddress(NimiqUtils.toUserFriendlyAddress(from));
+                    byte[] to = readBytes(in, NimiqUtils.ADDRESS_SIZE);
+                    tx.setTo(NimiqUtils.toHex(to));
+                    tx.setToAddress(NimiqUtils.toUserFriendlyAddress(to));
+                    tx.setValue(in.getLong());
+                    tx.setFee(in.getLong());
+                    tx.setData(readHex(in, in.getShort() & 0xffff));
+                    tx.setFlags(in.get() & 0xff);
+                }
+                transactions.add(tx);
+            }
+            block.setTransactions(transactions);
+        }
+        return block;
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int size) {
+        byte[] bytes = new byte[size];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readHex(ByteBuffer in, int size) {
+        return NimiqUtils.toHex(readBytes(in, size));
+    }
+}
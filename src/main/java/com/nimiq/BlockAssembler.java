@@ -0,0 +1,221 @@
+package com.nimiq;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Assembles blocks locally from a {@link BlockTemplate}, so that the extra
+ * data of a template can be varied across many workers without requesting a
+ * template for each of them.
+ * <p>
+ * The body hash is the merkle root over the miner address, the extra data, the
+ * transactions and the pruned accounts. The miner address and the extra data
+ * are always the two leftmost leaves, so the root follows from their hashes and
+ * the {@link BlockTemplate.Body#getMerkleHashes() merkle hashes} of the
+ * template. The miner address itself can't be changed locally, as the accounts
+ * hash of the header includes the block reward paid to it.
+ * <p>
+ * A serialized block is the 146 byte header, the interlink, a byte marking the
+ * presence of the body, and the body: miner address, extra data with a one byte
+ * length, the transactions and the pruned accounts, each with a two byte count.
+ */
+public class BlockAssembler {
+
+    /**
+     * Size of a serialized block header in bytes.
+     */
+    public static final int HEADER_SIZE = 2 + 4 * Blake2b.HASH_SIZE + 4 + 4 + 4 + 4;
+
+    /**
+     * Maximum size of the extra data in bytes.
+     */
+    public static final int MAX_EXTRA_DATA_SIZE = 255;
+
+    private final BlockTemplate.Header header;
+    private final byte[] minerAddress;
+    private final byte[] minerAddressHash;
+    private final byte[][] merkleHashes;
+    private final byte[] interlink;
+    // Serialized transactions and pruned accounts, with their counts
+    private final byte[] bodyTail;
+
+    /**
+     * Creates an assembler.
+     *
+     * @param template The block template
+     * @throws IllegalArgumentException if the body hash of the template can't be
+     *                                  recomputed from its merkle hashes
+     */
+    public BlockAssembler(BlockTemplate template) {
+        BlockTemplate.Body body = template.getBody();
+        this.header = template.getHeader();
+        this.minerAddress = NimiqUtils.parseAddress(body.getMinerAddr());
+        this.minerAddressHash = Blake2b.hash(minerAddress);
+        String extraData = body.getExtraData() != null ? body.getExtraData() : "";
+        String[] hashes = body.getMerkleHashes() != null ? body.getMerkleHashes() : new String[0];
+        // Skip the sibling of the miner address if the path includes it, it's the
+        // hash of the extra data being replaced
+        int skip = hashes.length > 0
+                && hashes[0].equals(NimiqUtils.toHex(Blake2b.hash(NimiqUtils.fromHex(extraData)))) ? 1 : 0;
+        this.merkleHashes = new byte[hashes.length - skip][];
+        for (int i = 0; i < merkleHashes.length; i++) {
+            merkleHashes[i] = NimiqUtils.fromHex(hashes[i + skip]);
+        }
+        this.interlink = NimiqUtils.fromHex(template.getInterlink());
+
+        ByteArrayOutputStream tail = new ByteArrayOutputStream();
+        writeList(tail, body.getTransactions());
+        writeList(tail, body.getPrunedAccounts());
+        this.bodyTail = tail.toByteArray();
+
+        if (!getBodyHash(extraData).equals(body.getHash())) {
+            throw new IllegalArgumentException("Body hash of block template doesn't match its merkle hashes");
+        }
+    }
+
+    /**
+     * @return The height of the assembled blocks.
+     */
+    public int getHeight() {
+        return header.getHeight();
+    }
+
+    /**
+     * @param extraData Hex-encoded extra data
+     * @return The hex-encoded body hash of a block with the extra data.
+     */
+    public String getBodyHash(String extraData) {
+        return NimiqUtils.toHex(bodyHash(extraData(extraData)));
+    }
+
+    /**
+     * Serializes the header of a block.
+     *
+     * @param extraData Hex-encoded extra data
+     * @param timestamp The timestamp in seconds
+     * @param nonce     The nonce
+     * @return The serialized header, of which the last 4 bytes are the nonce.
+     */
+    public byte[] header(String extraData, int timestamp, int nonce) {
+        return serializeHeader(header, bodyHash(extraData(extraData)), timestamp, nonce);
+    }
+
+    /**
+     * Serializes a block for {@link NimiqClient#submitBlock(String)}.
+     *
+     * @param extraData Hex-encoded extra data
+     * @param timestamp The timestamp in seconds
+     * @param nonce     The nonce
+     * @return The hex-encoded block.
+     */
+    public String block(String extraData, int timestamp, int nonce) {
+        byte[] extra = extraData(extraData);
+        ByteBuffer block = ByteBuffer.allocate(HEADER_SIZE + interlink.length + 1 + minerAddress.length + 1
+                + extra.length + bodyTail.length);
+        block.put(serializeHeader(header, bodyHash(extra), timestamp, nonce));
+        block.put(interlink);
+        block.put((byte) 1);
+        block.put(minerAddress);
+        block.put((byte) extra.length);
+        block.put(extra);
+        block.put(bodyTail);
+        return NimiqUtils.toHex(block.array());
+    }
+
+    /**
+     * Checks whether a block was assembled from the template, with any extra data,
+     * timestamp and nonce.
+     *
+     * @param block The serialized block
+     * @return Whether the block equals the one assembled with its extra data,
+     *         timestamp and nonce.
+     */
+    public boolean isAssembled(byte[] block) {
+        int offset = HEADER_SIZE + interlink.length + 1 + minerAddress.length;
+        if (block.length <= offset || block.length <= offset + (block[offset] & 0xff)) {
+            return false;
+        }
+        byte[] extra = Arrays.copyOfRange(block, offset + 1, offset + 1 + (block[offset] & 0xff));
+        ByteBuffer header = ByteBuffer.wrap(block, 0, HEADER_SIZE);
+        int timestamp = header.getInt(HEADER_SIZE - 8);
+        int nonce = header.getInt(HEADER_SIZE - 4);
+        String assembled = block(NimiqUtils.toHex(extra), timestamp, nonce);
+        return Arrays.equals(NimiqUtils.fromHex(assembled), block);
+    }
+
+    /**
+     * Serializes a block header.
+     *
+     * @param version       The version
+     * @param prevHash      Hex-encoded hash of the previous block
+     * @param interlinkHash Hex-encoded hash of the interlink
+     * @param bodyHash      Hex-encoded hash of the body
+     * @param accountsHash  Hex-encoded hash of the accounts tree
+     * @param nBits         The compact target
+     * @param height        The height
+     * @param timestamp     The timestamp in seconds
+     * @param nonce         The nonce
+     * @return The {@link #HEADER_SIZE} byte header.
+     */
+    public static byte[] serializeHeader(int version, String prevHash, String interlinkHash, String bodyHash,
+            String accountsHash, int nBits, int height, int timestamp, int nonce) {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE);
+        out.putShort((short) version);
+        out.put(hash(prevHash));
+        out.put(hash(interlinkHash));
+        out.put(hash(bodyHash));
+        out.put(hash(accountsHash));
+        out.putInt(nBits);
+        out.putInt(height);
+        out.putInt(timestamp);
+        out.putInt(nonce);
+        return out.array();
+    }
+
+    private static byte[] serializeHeader(BlockTemplate.Header header, byte[] bodyHash, int timestamp, int nonce) {
+        return serializeHeader(header.getVersion(), header.getPrevHash(), header.getInterlinkHash(),
+                NimiqUtils.toHex(bodyHash), header.getAccountsHash(), header.getnBits(), header.getHeight(), timestamp,
+                nonce);
+    }
+
+    private byte[] bodyHash(byte[] extraData) {
+        byte[] pair = new byte[2 * Blake2b.HASH_SIZE];
+        System.arraycopy(minerAddressHash, 0, pair, 0, Blake2b.HASH_SIZE);
+        System.arraycopy(Blake2b.hash(extraData), 0, pair, Blake2b.HASH_SIZE, Blake2b.HASH_SIZE);
+        byte[] root = Blake2b.hash(pair);
+        // The path of the leftmost leaves only has siblings on the right
+        for (byte[] sibling : merkleHashes) {
+            System.arraycopy(root, 0, pair, 0, Blake2b.HASH_SIZE);
+            System.arraycopy(sibling, 0, pair, Blake2b.HASH_SIZE, Blake2b.HASH_SIZE);
+            root = Blake2b.hash(pair);
+        }
+        return root;
+    }
+
+    private static byte[] extraData(String extraData) {
+        byte[] bytes = NimiqUtils.fromHex(extraData);
+        if (bytes.length > MAX_EXTRA_DATA_SIZE) {
+            throw new IllegalArgumentException("Extra data too large: " + bytes.length);
+        }
+        return bytes;
+    }
+
+    private static byte[] hash(String hex) {
+        byte[] hash = NimiqUtils.fromHex(hex);
+        if (hash.length != Blake2b.HASH_SIZE) {
+            throw new IllegalArgumentException("Invalid hash: " + hex);
+        }
+        return hash;
+    }
+
+    private static void writeList(ByteArrayOutputStream out, String[] items) {
+        int count = items != null ? items.length : 0;
+        out.write(count >>> 8);
+        out.write(count);
+        for (int i = 0; i < count; i++) {
+            byte[] item = NimiqUtils.fromHex(items[i]);
+            out.write(item, 0, item.length);
+        }
+    }
+}
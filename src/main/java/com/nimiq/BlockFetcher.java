@@ -0,0 +1,305 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Fetches ranges of blocks with concurrent workers, possibly spread over
+ * multiple nodes, and delivers them in strict order of height.
+ * <p>
+ * Fetched blocks are reassembled in a bounded reorder buffer. Workers wait
+ * while the buffer is full, so a slow consumer throttles the fetching instead
+ * of piling up blocks in memory. With a checkpoint file configured, the height
+ * of the last delivered block is saved periodically and an interrupted fetch
+ * resumes after it.
+ */
+public class BlockFetcher {
+
+    /**
+     * Default number of blocks that can be fetched ahead of the consumer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /**
+     * Default number of delivered blocks between two checkpoints.
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 1_000;
+
+    private final List<NimiqClient> clients;
+    private final int threads;
+    private final int bufferSize;
+    private final boolean includeTransactions;
+    private Path checkpoint;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Creates a fetcher for blocks with full transactions.
+     *
+     * @param client  The client to fetch the blocks with
+     * @param threads Number of concurrent workers
+     */
+    public BlockFetcher(NimiqClient client, int threads) {
+        this(Collections.singletonList(client), threads, DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /**
+     * Creates a fetcher.
+     *
+     * @param clients             The clients to fetch the blocks with, the workers
+     *                            are assigned to them round-robin
+     * @param threads             Number of concurrent workers
+     * @param bufferSize          Number of blocks that can be fetched ahead of the
+     *                            consumer
+     * @param includeTransactions If true the blocks contain the full transaction
+     *                            objects, if false only the hashes
+     */
+    public BlockFetcher(List<NimiqClient> clients, int threads, int bufferSize, boolean includeTransactions) {
+        if (clients.isEmpty() || threads < 1 || bufferSize < threads) {
+            throw new IllegalArgumentException("Invalid fetcher configuration");
+        }
+        this.clients = clients;
+        this.threads = threads;
+        this.bufferSize = bufferSize;
+        this.includeTransactions = includeTransactions;
+    }
+
+    /**
+     * Enables checkpointing. A fetch then starts after the height in the
+     * checkpoint file, if it exists.
+     *
+     * @param file     The checkpoint file
+     * @param interval Number of delivered blocks between two checkpoints
+     */
+    public void setCheckpoint(Path file, int interval) {
+        this.checkpoint = file;
+        this.checkpointInterval = interval;
+    }
+
+    /**
+     * @return Whether checkpointing is enabled.
+     */
+    public boolean hasCheckpoint() {
+        return checkpoint != null;
+    }
+
+    /**
+     * @return Height of the last delivered block saved in the checkpoint file, or
+     *         0 if there is none.
+     * @throws IOException if the checkpoint file can't be read
+     */
+    public int getCheckpoint() throws IOException {
+        if (checkpoint == null || !Files.exists(checkpoint)) {
+            return 0;
+        }
+        return Integer.parseInt(new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim());
+    }
+
+    /**
+     * Fetches a range of blocks and passes them to the consumer in order of
+     * height. Blocks up to the checkpoint are skipped.
+     *
+     * @param from     Height of the first block
+     * @param to       Height of the last block
+     * @param consumer The consumer, called on the calling thread
+     * @return Number of delivered blocks.
+     * @throws IOException           if the checkpoint can't be read or written
+     * @throws InterruptedException  if the calling thread was interrupted
+     * @throws IllegalStateException if a block in the range doesn't exist
+     */
+    public int fetch(int from, int to, BlockListener consumer) throws IOException, InterruptedException {
+        int delivered = 0;
+        try (Run run = new Run(Math.max(from, getCheckpoint() + 1), to)) {
+            Block block;
+            while ((block = run.take()) != null) {
+                consumer.onBlock(block);
+                delivered++;
+                if (checkpoint != null && (delivered % checkpointInterval == 0 || block.getNumber() == to)) {
+                    saveCheckpoint(block.getNumber());
+                }
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Returns an ordered spliterator over a range of blocks, which starts fetching
+     * on the first traversal. Blocks up to the checkpoint are skipped. The
+     * spliterator should be traversed completely, otherwise the workers keep
+     * waiting for buffer space.
+     *
+     * @param from Height of the first block
+     * @param to   Height of the last block
+     * @return The spliterator
+     */
+    public Spliterator<Block> spliterator(int from, int to) {
+        return new Spliterators.AbstractSpliterator<Block>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+
+            private Run run;
+            private int delivered;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Block> action) {
+                try {
+                    if (run == null) {
+                        run = new Run(Math.max(from, getCheckpoint() + 1), to);
+                    }
+                    Block block = run.take();
+                    if (block == null) {
+                        run.close();
+                        return false;
+                    }
+                    action.accept(block);
+                    delivered++;
+                    if (checkpoint != null && (delivered % checkpointInterval == 0 || block.getNumber() == to)) {
+                        saveCheckpoint(block.getNumber());
+                    }
+                    return true;
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while fetching blocks", e);
+                } catch (RuntimeException e) {
+                    close();
+                    throw e;
+                }
+            }
+
+            private void close() {
+                if (run != null) {
+                    run.close();
+                }
+            }
+        };
+    }
+
+    private void saveCheckpoint(int height) throws IOException {
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temp, String.valueOf(height).getBytes(StandardCharsets.US_ASCII));
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private class Run implements Closeable {
+
+        private final int to;
+        private final Block[] buffer = new Block[bufferSize];
+        private final Semaphore space = new Semaphore(bufferSize);
+        private final AtomicInteger next;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition filled = lock.newCondition();
+        private final ExecutorService executor;
+        private volatile RuntimeException failure;
+        private int height;
+
+        Run(int from, int to) {
+            this.to = to;
+            this.next = new AtomicInteger(from);
+            this.height = from;
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "nimiq-block-fetcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < threads; i++) {
+                NimiqClient client = clients.get(i % clients.size());
+                executor.execute(() -> work(client));
+            }
+        }
+
+        private void work(NimiqClient client) {
+            try {
+                while (failure == null) {
+                    space.acquire();
+                    int number = next.getAndIncrement();
+                    if (number > to) {
+                        return;
+                    }
+                    Block block = fetch(client, number);
+                    if (block == null) {
+                        throw new IllegalStateException("Block #" + number + " not found");
+                    }
+                    lock.lock();
+                    try {
+                        buffer[number % bufferSize] = block;
+                        filled.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    filled.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private Block fetch(NimiqClient client, int height) throws InterruptedException {
+            for (int attempt = 1;; attempt++) {
+                try {
+                    return client.getBlockByNumber(height, includeTransactions);
+                } catch (RuntimeException e) {
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    Thread.sleep(RETRY_DELAY * attempt);
+                }
+            }
+        }
+
+        Block take() throws InterruptedException {
+            if (height > to) {
+                return null;
+            }
+            int slot = height % bufferSize;
+            Block block;
+            lock.lock();
+            try {
+                while ((block = buffer[slot]) == null) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    filled.await();
+                }
+                buffer[slot] = null;
+            } finally {
+                lock.unlock();
+            }
+            space.release();
+            height++;
+            return block;
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.nimiq;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The interlink of a block, which references for each depth {@code i} the
+ * latest preceding block whose proof of work is at least {@code 2^i} times
+ * harder than the target of the block.
+ * <p>
+ * Blocks returned by the node lack their interlink, but the interlink of a
+ * block follows from the interlink, hash, proof of work and target of its
+ * parent and its own target. Starting from a known interlink, such as the one
+ * of the genesis block from {@link #genesis(String)} or the interlink of a
+ * {@link BlockTemplate}, the interlinks of all following blocks can be
+ * computed with {@link #next(String, String, int, int)}.
+ * <p>
+ * A hash that repeats the previous one, or the parent hash for the first, is
+ * marked in the repeat bits instead of being serialized again. The hash of the
+ * interlink is the merkle root over the hashed repeat bits, the hash of the
+ * genesis block of the network and the remaining hashes.
+ */
+public final class BlockInterlink {
+
+    /**
+     * Hex-encoded hash of the genesis block of the main network.
+     */
+    public static final String MAIN_GENESIS_HASH = "264aaf8a4f9828a76c550635da078eb466306a189fcc03710bee9f649c869d12";
+
+    private static final String ZERO_HASH = NimiqUtils.toHex(new byte[Blake2b.HASH_SIZE]);
+
+    // Height of the maximum target 2^240
+    private static final int MAX_TARGET_HEIGHT = 240;
+
+    private final List<String> hashes;
+    private final String genesisHash;
+    private final byte[] repeatBits;
+    private final List<byte[]> compressed = new ArrayList<>();
+    private final String hash;
+
+    /**
+     * Creates an interlink.
+     *
+     * @param hashes      Hex-encoded block hashes, from the lowest depth
+     * @param prevHash    Hex-encoded hash of the parent of the block
+     * @param genesisHash Hex-encoded hash of the genesis block of the network
+     */
+    public BlockInterlink(List<String> hashes, String prevHash, String genesisHash) {
+        this.hashes = Collections.unmodifiableList(new ArrayList<>(hashes));
+        this.genesisHash = genesisHash;
+        this.repeatBits = new byte[(hashes.size() + 7) / 8];
+        String last = prevHash;
+        for (int i = 0; i < hashes.size(); i++) {
+            if (hashes.get(i).equalsIgnoreCase(last)) {
+                repeatBits[i / 8] |= 0x80 >>> (i % 8);
+            } else {
+                last = hashes.get(i);
+                compressed.add(NimiqUtils.fromHex(last));
+            }
+        }
+        List<byte[]> leaves = new ArrayList<>(compressed.size() + 2);
+        leaves.add(Blake2b.hash(repeatBits));
+        leaves.add(NimiqUtils.fromHex(genesisHash));
+        leaves.addAll(compressed);
+        this.hash = NimiqUtils.toHex(merkleRoot(leaves));
+    }
+
+    private BlockInterlink(String genesisHash) {
+        this.hashes = Collections.emptyList();
+        this.genesisHash = genesisHash;
+        this.repeatBits = new byte[0];
+        this.hash = ZERO_HASH;
+    }
+
+    /**
+     * Returns the empty interlink of the genesis block. The genesis block can't
+     * commit to its own hash, so its header carries the zero hash instead of an
+     * interlink hash.
+     *
+     * @param genesisHash Hex-encoded hash of the genesis block of the network,
+     *                    for example {@link #MAIN_GENESIS_HASH}
+     * @return The interlink of the genesis block.
+     */
+    public static BlockInterlink genesis(String genesisHash) {
+        return new BlockInterlink(genesisHash);
+    }
+
+    /**
+     * Parses a serialized interlink, such as the one of a {@link BlockTemplate}.
+     *
+     * @param interlink   Hex-encoded serialized interlink
+     * @param prevHash    Hex-encoded hash of the parent of the block
+     * @param genesisHash Hex-encoded hash of the genesis block of the network
+     * @return The interlink.
+     * @throws IllegalArgumentException if the interlink is malformed
+     */
+    public static BlockInterlink parse(String interlink, String prevHash, String genesisHash) {
+        ByteBuffer in = ByteBuffer.wrap(NimiqUtils.fromHex(interlink));
+        if (!in.hasRemaining()) {
+            throw new IllegalArgumentException("Empty interlink");
+        }
+        int count = in.get() & 0xff;
+        byte[] repeatBits = new byte[(count + 7) / 8];
+        List<String> hashes = new ArrayList<>(count);
+        String last = prevHash;
+        byte[] hash = new byte[Blake2b.HASH_SIZE];
+        if (in.remaining() < repeatBits.length) {
+            throw new IllegalArgumentException("Truncated interlink");
+        }
+        in.get(repeatBits);
+        for (int i = 0; i < count; i++) {
+            if ((repeatBits[i / 8] & (0x80 >>> (i % 8))) == 0) {
+                if (in.remaining() < hash.length) {
+                    throw new IllegalArgumentException("Truncated interlink");
+                }
+                in.get(hash);
+                last = NimiqUtils.toHex(hash);
+            }
+            hashes.add(last);
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after interlink");
+        }
+        return new BlockInterlink(hashes, prevHash, genesisHash);
+    }
+
+    /**
+     * @return Hex-encoded block hashes, from the lowest depth.
+     */
+    public List<String> getHashes() {
+        return hashes;
+    }
+
+    /**
+     * @return The hex-encoded hash of the interlink, as in the block header.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Computes the interlink of the child of the block with this interlink. The
+     * block hash is included as often as its proof of work is harder than the
+     * next target, the hashes of this interlink follow, shifted by the change of
+     * the target depth.
+     *
+     * @param blockHash Hex-encoded hash of the block
+     * @param pow       Hex-encoded proof of work of the block
+     * @param nBits     Compact target of the block
+     * @param nextNBits Compact target of the child
+     * @return The interlink of the child.
+     */
+    public BlockInterlink next(String blockHash, String pow, int nBits, int nextNBits) {
+        int nextTargetDepth = depth(Miner.compactToTarget(nextNBits));
+        int occurrences = Math.max(depth(NimiqUtils.fromHex(pow)) - nextTargetDepth + 1, 0);
+        int omitted = Math.max(occurrences + nextTargetDepth - depth(Miner.compactToTarget(nBits)), 0);
+        List<String> next = new ArrayList<>(Collections.nCopies(occurrences, blockHash));
+        if (omitted < hashes.size()) {
+            next.addAll(hashes.subList(omitted, hashes.size()));
+        }
+        return new BlockInterlink(next, blockHash, genesisHash);
+    }
+
+    /**
+     * @param target Big-endian target or hash
+     * @return How many times harder the target is than the maximum target, in
+     *         powers of two.
+     */
+    static int depth(byte[] target) {
+        // Like core-js, ceil(log2(target)) of the nearest double
+        double value = new BigInteger(1, target).doubleValue();
+        int exponent = Math.getExponent(value);
+        int height = value == Math.scalb(1.0, exponent) ? exponent : exponent + 1;
+        return MAX_TARGET_HEIGHT - height;
+    }
+
+    /**
+     * @return The merkle root over leaf hashes, splitting the leaves in the
+     *         middle, rounded up.
+     */
+    private static byte[] merkleRoot(List<byte[]> leaves) {
+        if (leaves.size() == 1) {
+            return leaves.get(0);
+        }
+        int middle = (leaves.size() + 1) / 2;
+        byte[] left = merkleRoot(leaves.subList(0, middle));
+        byte[] right = merkleRoot(leaves.subList(middle, leaves.size()));
+        byte[] pair = Arrays.copyOf(left, 2 * Blake2b.HASH_SIZE);
+        System.arraycopy(right, 0, pair, Blake2b.HASH_SIZE, Blake2b.HASH_SIZE);
+        return Blake2b.hash(pair);
+    }
+}
@@ -0,0 +1,17 @@
+package com.nimiq;
+
+/**
+ * Listener for new blocks on the main chain.
+ *
+ * @see BlockPoller
+ */
+@FunctionalInterface
+public interface BlockListener {
+
+    /**
+     * Called for each new block, in order of height.
+     *
+     * @param block The new block
+     */
+    public void onBlock(Block block);
+}
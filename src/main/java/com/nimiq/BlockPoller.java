@@ -0,0 +1,220 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls the node for new blocks and dispatches them to all subscribed
+ * {@link BlockListener}s.
+ * <p>
+ * The polling interval adapts to the expected block time: right after a block
+ * arrived the head is polled rarely, and more often as the next block becomes
+ * due. Each new block is fetched exactly once, including any heights skipped
+ * between two polls, no matter how many listeners are subscribed. A single
+ * poller is meant to be shared by all consumers of a node.
+ * <p>
+ * Listeners are called on the polling thread, one block after another. Closing
+ * the poller doesn't wait for a backlog of blocks to be dispatched, the polling
+ * thread stops after the current block.
+ */
+public class BlockPoller implements Closeable {
+
+    /**
+     * Expected time between two blocks in milliseconds.
+     */
+    public static final long BLOCK_TIME = 60_000;
+
+    /**
+     * Default minimum time between two polls in milliseconds.
+     */
+    public static final long DEFAULT_MIN_INTERVAL = 1_000;
+
+    /**
+     * Default maximum time between two polls in milliseconds.
+     */
+    public static final long DEFAULT_MAX_INTERVAL = 20_000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockPoller.class);
+
+    private final NimiqClient client;
+    private final boolean includeTransactions;
+    private final long minInterval;
+    private final long maxInterval;
+    private final List<BlockListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object pollLock = new Object();
+
+    private ScheduledExecutorService executor;
+    private volatile int height = -1;
+    private volatile long lastBlockTime;
+
+    /**
+     * Creates a poller that fetches blocks with full transactions.
+     *
+     * @param client The client to poll
+     */
+    public BlockPoller(NimiqClient client) {
+        this(client, true, DEFAULT_MIN_INTERVAL, DEFAULT_MAX_INTERVAL);
+    }
+
+    /**
+     * Creates a poller.
+     *
+     * @param client              The client to poll
+     * @param includeTransactions If true the blocks contain the full transaction
+     *                            objects, if false only the hashes
+     * @param minInterval         Minimum time between two polls in milliseconds
+     * @param maxInterval         Maximum time between two polls in milliseconds
+     */
+    public BlockPoller(NimiqClient client, boolean includeTransactions, long minInterval, long maxInterval) {
+        if (minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Invalid polling intervals");
+        }
+        this.client = client;
+        this.includeTransactions = includeTransactions;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * @return The client this poller fetches blocks from.
+     */
+    public NimiqClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return Height of the last dispatched block, or -1 if nothing was polled yet.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Subscribes a listener to new blocks. Starts polling from the current head if
+     * the poller isn't running yet.
+     *
+     * @param listener The listener to add
+     */
+    public void addListener(BlockListener listener) {
+        listeners.add(listener);
+        start();
+    }
+
+    /**
+     * Unsubscribes a listener.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeListener(BlockListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts polling, dispatching blocks above the current head.
+     */
+    public synchronized void start() {
+        if (executor == null) {
+            start(-1);
+        }
+    }
+
+    /**
+     * Starts polling, dispatching all blocks above the given height first.
+     *
+     * @param height Height of the last block that was already processed, or -1
+     *               to start from the current head
+     */
+    public synchronized void start(int height) {
+        if (executor != null) {
+            throw new IllegalStateException("Poller is already running");
+        }
+        synchronized (pollLock) {
+            this.height = height;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-block-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor = executor;
+        executor.execute(() -> run(executor));
+    }
+
+    /**
+     * Polls the head once and dispatches all new blocks. Called periodically once
+     * the poller is started.
+     *
+     * @return Number of dispatched blocks.
+     */
+    public int poll() {
+        return poll(null);
+    }
+
+    private int poll(ScheduledExecutorService owner) {
+        synchronized (pollLock) {
+            int head = client.getBlockNumber();
+            if (height < 0) {
+                height = head;
+                lastBlockTime = System.currentTimeMillis();
+                return 0;
+            }
+            int dispatched = 0;
+            // The polling thread stops early once its executor is shut down
+            while (height < head && (owner == null || !owner.isShutdown())) {
+                Block block = client.getBlockByNumber(height + 1, includeTransactions);
+                for (BlockListener listener : listeners) {
+                    try {
+                        listener.onBlock(block);
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Block listener failed on block #{}", block.getNumber(), e);
+                    }
+                }
+                height = block.getNumber();
+                dispatched++;
+            }
+            if (dispatched > 0) {
+                lastBlockTime = System.currentTimeMillis();
+            }
+            return dispatched;
+        }
+    }
+
+    /**
+     * Stops polling.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void run(ScheduledExecutorService executor) {
+        long delay;
+        try {
+            poll(executor);
+            delay = nextDelay();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Polling the head failed", e);
+            delay = maxInterval;
+        }
+        synchronized (this) {
+            if (!executor.isShutdown()) {
+                executor.schedule(() -> run(executor), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private long nextDelay() {
+        long remaining = lastBlockTime + BLOCK_TIME - System.currentTimeMillis();
+        return Math.max(minInterval, Math.min(maxInterval, remaining / 2));
+    }
+}
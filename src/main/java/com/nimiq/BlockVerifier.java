@@ -0,0 +1,217 @@
+package com.nimiq;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Verifies blocks locally, so that blocks from untrusted nodes or from a cache
+ * don't need to be trusted.
+ * <p>
+ * The header of a {@link Block} is rebuilt from its fields: version 1, parent
+ * hash, interlink hash, body hash, accounts hash, the compact target derived
+ * from the difficulty, height, timestamp and nonce. Blocks returned by the node
+ * lack the interlink, so {@link #verifyAll(List, BlockInterlink, boolean)}
+ * computes it along a chain of blocks from the interlink of the first one, see
+ * {@link BlockInterlink}. The block hash is the BLAKE2b hash of the header, and
+ * the proof of work is its Argon2d hash, which must be at most the target.
+ * <p>
+ * The difficulty is a rounded decimal, so compact targets near the one derived
+ * from it are tried as well, nearest first, and the one whose header matches
+ * the block hash is used. The difficulty of that target must round to the
+ * difficulty of the block, so a tampered difficulty is detected.
+ */
+public final class BlockVerifier {
+
+    private static final int VERSION = 1;
+    private static final int NBITS_OFFSET = 2 + 4 * Blake2b.HASH_SIZE;
+    private static final int MAX_COMPACT_DELTA = 64;
+    private static final BigDecimal MAX_TARGET = new BigDecimal(BigInteger.ONE.shiftLeft(240));
+
+    private static final ThreadLocal<Argon2d> ARGON2D = ThreadLocal.withInitial(Argon2d::new);
+
+    private BlockVerifier() {
+    }
+
+    /**
+     * Serializes the header of a block.
+     *
+     * @param block         The block
+     * @param interlinkHash Hex-encoded hash of the interlink of the block
+     * @return The header that matches the block hash, or the header with the
+     *         nearest compact target to the difficulty if none matches.
+     */
+    public static byte[] serializeHeader(Block block, String interlinkHash) {
+        byte[] header = findHeader(block, nBits -> interlinkHash);
+        return header != null ? header
+                : serializeHeader(block, interlinkHash, difficultyToCompact(block.getDifficulty()));
+    }
+
+    /**
+     * @param block         The block
+     * @param interlinkHash Hex-encoded hash of the interlink of the block
+     * @return Whether the hash of the block matches its header fields.
+     */
+    public static boolean verifyHash(Block block, String interlinkHash) {
+        return findHeader(block, nBits -> interlinkHash) != null;
+    }
+
+    /**
+     * Verifies the hash and the proof of work of a block.
+     *
+     * @param block         The block
+     * @param interlinkHash Hex-encoded hash of the interlink of the block
+     * @return Whether the hash of the block matches its header fields, and the
+     *         Argon2d hash of the header matches the proof of work of the block,
+     *         if present, and meets the target.
+     */
+    public static boolean verify(Block block, String interlinkHash) {
+        byte[] header = findHeader(block, nBits -> interlinkHash);
+        return header != null && verifyProofOfWork(block, header);
+    }
+
+    /**
+     * Verifies a chain of consecutive blocks, such as the blocks of a
+     * {@link BlockArchive}. The interlinks are computed from the one of the first
+     * block with the proofs of work of the blocks, so a block with a wrong proof
+     * of work fails the hash of its child as well. The proofs of work are
+     * verified in parallel on all cores.
+     *
+     * @param blocks      Consecutive blocks
+     * @param interlink   The interlink of the first block, for example
+     *                    {@link BlockInterlink#genesis(String)} for block 1
+     * @param proofOfWork If true, the proof of work is verified as well,
+     *                    otherwise only the block hashes and parent hashes
+     * @return The invalid blocks, in the given order.
+     * @throws IllegalArgumentException if the block numbers aren't consecutive
+     */
+    public static List<Block> verifyAll(List<Block> blocks, BlockInterlink interlink, boolean proofOfWork) {
+        byte[][] headers = new byte[blocks.size()][];
+        boolean[] invalid = new boolean[blocks.size()];
+        Block parent = null;
+        BlockInterlink parentInterlink = null;
+        String parentPow = null;
+        int parentNBits = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            IntFunction<BlockInterlink> interlinks;
+            if (parent == null) {
+                interlinks = nBits -> interlink;
+            } else {
+                if (block.getNumber() != parent.getNumber() + 1) {
+                    throw new IllegalArgumentException("Block #" + block.getNumber() + " doesn't follow block #"
+                            + parent.getNumber());
+                }
+                invalid[i] = !block.getParentHash().equals(parent.getHash());
+                BlockInterlink previous = parentInterlink;
+                String hash = parent.getHash();
+                String pow = parentPow;
+                int previousNBits = parentNBits;
+                interlinks = nBits -> previous.next(hash, pow, previousNBits, nBits);
+            }
+            byte[] header = findHeader(block, nBits -> interlinks.apply(nBits).getHash());
+            if (header == null) {
+                invalid[i] = true;
+                int nBits = difficultyToCompact(block.getDifficulty());
+                header = serializeHeader(block, interlinks.apply(nBits).getHash(), nBits);
+            }
+            headers[i] = header;
+            parent = block;
+            parentNBits = ByteBuffer.wrap(header).getInt(NBITS_OFFSET);
+            parentInterlink = interlinks.apply(parentNBits);
+            parentPow = block.getPow() != null ? block.getPow()
+                    : NimiqUtils.toHex(ARGON2D.get().hash(header, 0, header.length));
+        }
+        if (proofOfWork) {
+            IntStream.range(0, blocks.size()).parallel().filter(i -> !invalid[i])
+                    .forEach(i -> invalid[i] = !verifyProofOfWork(blocks.get(i), headers[i]));
+        }
+        return IntStream.range(0, blocks.size()).filter(i -> invalid[i]).mapToObj(blocks::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Converts a difficulty to the compact form of its target, which is the
+     * maximum target divided by the difficulty.
+     *
+     * @param difficulty The decimal difficulty
+     * @return The compact target.
+     */
+    static int difficultyToCompact(String difficulty) {
+        BigDecimal target = MAX_TARGET.divide(new BigDecimal(difficulty), MathContext.DECIMAL128);
+        int size = (target.toBigInteger().bitLength() + 7) / 8;
+        // Round the mantissa, as the target is only approximated by the difficulty
+        BigDecimal scale = new BigDecimal(BigInteger.ONE.shiftLeft(8 * Math.abs(size - 3)));
+        BigDecimal mantissa = size >= 3 ? target.divide(scale, MathContext.DECIMAL128) : target.multiply(scale);
+        int value = mantissa.setScale(0, RoundingMode.HALF_UP).intValue();
+        if (value > 0xffffff) {
+            value >>>= 8;
+            size++;
+        }
+        // The mantissa is positive
+        if ((value & 0x00800000) != 0) {
+            value >>>= 8;
+            size++;
+        }
+        return (size << 24) | value;
+    }
+
+    /**
+     * @param nBits      A compact target
+     * @param difficulty A rounded decimal difficulty
+     * @return Whether the difficulty of the target rounds to the given one,
+     *         either to its decimal places or to its significant digits.
+     */
+    static boolean matchesDifficulty(int nBits, String difficulty) {
+        BigDecimal given = new BigDecimal(difficulty);
+        BigDecimal target = new BigDecimal(new BigInteger(1, Miner.compactToTarget(nBits)));
+        if (target.signum() == 0) {
+            return false;
+        }
+        BigDecimal exact = MAX_TARGET.divide(target, new MathContext(Math.max(given.precision() + 10, 40)));
+        if (exact.setScale(Math.max(given.scale(), 0), RoundingMode.HALF_UP).compareTo(given) == 0) {
+            return true;
+        }
+        int digits = given.stripTrailingZeros().precision();
+        return exact.round(new MathContext(digits, RoundingMode.HALF_UP)).compareTo(given) == 0;
+    }
+
+    private static boolean verifyProofOfWork(Block block, byte[] header) {
+        byte[] pow = ARGON2D.get().hash(header, 0, header.length);
+        if (block.getPow() != null && !block.getPow().equals(NimiqUtils.toHex(pow))) {
+            return false;
+        }
+        int nBits = ByteBuffer.wrap(header).getInt(NBITS_OFFSET);
+        return Miner.meetsTarget(pow, Miner.compactToTarget(nBits));
+    }
+
+    /**
+     * @return The header whose hash is the block hash and whose target matches
+     *         the difficulty, or null if there is none.
+     */
+    private static byte[] findHeader(Block block, IntFunction<String> interlinkHashes) {
+        byte[] hash = NimiqUtils.fromHex(block.getHash());
+        int nBits = difficultyToCompact(block.getDifficulty());
+        for (int i = 0; i <= 2 * MAX_COMPACT_DELTA; i++) {
+            // Nearest first: 0, 1, -1, 2, -2, ...
+            int delta = (i & 1) != 0 ? (i + 1) / 2 : -i / 2;
+            byte[] header = serializeHeader(block, interlinkHashes.apply(nBits + delta), nBits + delta);
+            if (Arrays.equals(Blake2b.hash(header), hash)) {
+                return matchesDifficulty(nBits + delta, block.getDifficulty()) ? header : null;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] serializeHeader(Block block, String interlinkHash, int nBits) {
+        return BlockAssembler.serializeHeader(VERSION, block.getParentHash(), interlinkHash, block.getBodyHash(),
+                block.getAccountHash(), nBits, block.getNumber(), block.getTimestamp(), block.getNonce());
+    }
+}
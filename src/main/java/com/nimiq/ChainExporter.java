@@ -0,0 +1,371 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exports ranges of the chain, blocks and transactions, to flat files.
+ * <p>
+ * Blocks are fetched in parallel by a {@link BlockFetcher} and written in order
+ * of height through buffered file channels, in one of two formats:
+ * <ul>
+ * <li>{@link Format#NDJSON}: {@code blocks.ndjson} with one JSON block object,
+ * including its transactions, per line. Fields that depend on the state of the
+ * node rather than the chain, the confirmations and the mempool state and
+ * validity start height of transactions, are left out, so exports of the same
+ * range are identical.</li>
+ * <li>{@link Format#COLUMNAR}: one file per column with fixed-width big-endian
+ * values. Block columns are {@code block.height}, {@code block.timestamp}
+ * (int32), {@code block.hash} (32 bytes), {@code block.miner} (int32 address
+ * id) and {@code block.transactions} (int32 count). Transaction columns are
+ * {@code tx.height} (int32), {@code tx.hash} (32 bytes), {@code tx.from},
+ * {@code tx.to} (int32 address ids), {@code tx.value} and {@code tx.fee}
+ * (int64). Addresses are dictionary-encoded: {@code addresses.dict} holds the
+ * 20 byte address for each id in order.</li>
+ * </ul>
+ * The exporter saves a checkpoint with the last exported height and the file
+ * sizes at that point. An interrupted export is resumed by running it again on
+ * the same directory: the files are truncated to the checkpoint and the export
+ * continues after it.
+ */
+public class ChainExporter {
+
+    /**
+     * Output format.
+     */
+    public enum Format {
+        NDJSON, COLUMNAR
+    }
+
+    private static final String CHECKPOINT_FILE = "export.checkpoint";
+    private static final String HEIGHT_PROPERTY = "height";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @JsonIgnoreProperties({ "confirmations" })
+    private abstract static class BlockMixIn {
+    }
+
+    // The node doesn't return the validity start height of mined transactions
+    @JsonIgnoreProperties({ "confirmations", "validityStartHeight", "valid", "inMempool" })
+    private abstract static class TransactionMixIn {
+    }
+
+    private final BlockFetcher fetcher;
+    private final Path directory;
+    private final Format format;
+    private final ObjectMapper mapper = new ObjectMapper().addMixIn(Block.class, BlockMixIn.class)
+            .addMixIn(Transaction.class, TransactionMixIn.class);
+    private int checkpointInterval = BlockFetcher.DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param fetcher   The fetcher to fetch the blocks with, which must include
+     *                  full transactions and must not have a checkpoint of its own
+     * @param directory The directory to write the files to
+     * @param format    The output format
+     * @throws IllegalArgumentException if the fetcher has a checkpoint, which
+     *                                  could skip blocks after the checkpoint of
+     *                                  the export on resume
+     */
+    public ChainExporter(BlockFetcher fetcher, Path directory, Format format) {
+        if (fetcher.hasCheckpoint()) {
+            throw new IllegalArgumentException("The fetcher must not have a checkpoint of its own");
+        }
+        this.fetcher = fetcher;
+        this.directory = directory;
+        this.format = format;
+    }
+
+    /**
+     * @param checkpointInterval Number of exported blocks between two checkpoints
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Exports a range of blocks, resuming after the checkpoint of a previous
+     * export to the same directory.
+     *
+     * @param from Height of the first block
+     * @param to   Height of the last block
+     * @return Number of exported blocks.
+     * @throws IOException          if the files can't be written
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    public int export(int from, int to) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        try (Output output = format == Format.NDJSON ? new JsonOutput() : new ColumnarOutput()) {
+            // Without a checkpoint, leftovers of an earlier export are discarded
+            int start = from;
+            Properties checkpoint = loadCheckpoint();
+            if (checkpoint != null) {
+                start = Math.max(from, Integer.parseInt(checkpoint.getProperty(HEIGHT_PROPERTY)) + 1);
+            } else {
+                checkpoint = new Properties();
+            }
+            output.restore(checkpoint);
+            int[] exported = new int[1];
+            try {
+                fetcher.fetch(start, to, block -> {
+                    try {
+                        output.write(block);
+                        if (++exported[0] % checkpointInterval == 0) {
+                            saveCheckpoint(output, block.getNumber());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (exported[0] > 0) {
+                saveCheckpoint(output, to);
+            }
+            return exported[0];
+        }
+    }
+
+    private Properties loadCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties checkpoint = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            checkpoint.load(in);
+        }
+        return checkpoint;
+    }
+
+    private void saveCheckpoint(Output output, int height) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty(HEIGHT_PROPERTY, String.valueOf(height));
+        for (Column column : output.columns.values()) {
+            column.force();
+            checkpoint.setProperty(column.name, String.valueOf(column.size()));
+        }
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            checkpoint.store(out, null);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private abstract class Output implements Closeable {
+
+        final Map<String, Column> columns = new LinkedHashMap<>();
+
+        Column column(String name) throws IOException {
+            Column column = new Column(directory, name);
+            columns.put(name, column);
+            return column;
+        }
+
+        void restore(Properties checkpoint) throws IOException {
+            for (Column column : columns.values()) {
+                column.truncate(Long.parseLong(checkpoint.getProperty(column.name, "0")));
+            }
+        }
+
+        abstract void write(Block block) throws IOException;
+
+        @Override
+        public void close() throws IOException {
+            for (Column column : columns.values()) {
+                column.close();
+            }
+        }
+    }
+
+    private class JsonOutput extends Output {
+
+        private final Column blocks;
+
+        JsonOutput() throws IOException {
+            blocks = column("blocks.ndjson");
+        }
+
+        @Override
+        void write(Block block) throws IOException {
+            try {
+                blocks.put(mapper.writeValueAsBytes(block));
+            } catch (JsonProcessingException e) {
+                throw new IOException("Failed to serialize block #" + block.getNumber(), e);
+            }
+            blocks.put((byte) '\n');
+        }
+    }
+
+    private class ColumnarOutput extends Output {
+
+        private final HashKeySet addresses = new HashKeySet(NimiqUtils.ADDRESS_SIZE, 1 << 16);
+        private final Column dictionary;
+        private final Column blockHeight;
+        private final Column blockTimestamp;
+        private final Column blockHash;
+        private final Column blockMiner;
+        private final Column blockTransactions;
+        private final Column txHeight;
+        private final Column txHash;
+        private final Column txFrom;
+        private final Column txTo;
+        private final Column txValue;
+        private final Column txFee;
+
+        ColumnarOutput() throws IOException {
+            dictionary = column("addresses.dict");
+            blockHeight = column("block.height");
+            blockTimestamp = column("block.timestamp");
+            blockHash = column("block.hash");
+            blockMiner = column("block.miner");
+            blockTransactions = column("block.transactions");
+            txHeight = column("tx.height");
+            txHash = column("tx.hash");
+            txFrom = column("tx.from");
+            txTo = column("tx.to");
+            txValue = column("tx.value");
+            txFee = column("tx.fee");
+        }
+
+        @Override
+        void restore(Properties checkpoint) throws IOException {
+            super.restore(checkpoint);
+            // Rebuild the dictionary, ids are assigned in the same order
+            byte[] entries = Files.readAllBytes(directory.resolve(dictionary.name));
+            byte[] address = new byte[NimiqUtils.ADDRESS_SIZE];
+            for (int offset = 0; offset < entries.length; offset += address.length) {
+                System.arraycopy(entries, offset, address, 0, address.length);
+                addresses.intern(NimiqUtils.toHex(address));
+            }
+        }
+
+        @Override
+        void write(Block block) throws IOException {
+            blockHeight.putInt(block.getNumber());
+            blockTimestamp.putInt(block.getTimestamp());
+            blockHash.put(NimiqUtils.fromHex(block.getHash()));
+            blockMiner.putInt(addressId(block.getMiner()));
+            blockTransactions.putInt(block.getTransactions() != null ? block.getTransactions().size() : 0);
+            if (block.getTransactions() == null) {
+                return;
+            }
+            for (Transaction tx : block.getTransactions()) {
+                if (tx.getFrom() == null) {
+                    throw new IllegalArgumentException("Block #" + block.getNumber() + " lacks full transactions");
+                }
+                txHeight.putInt(block.getNumber());
+                txHash.put(NimiqUtils.fromHex(tx.getHash()));
+                txFrom.putInt(addressId(tx.getFrom()));
+                txTo.putInt(addressId(tx.getTo()));
+                txValue.putLong(tx.getValue());
+                txFee.putLong(tx.getFee());
+            }
+        }
+
+        private int addressId(String address) throws IOException {
+            int size = addresses.size();
+            int id = addresses.intern(address);
+            if (addresses.size() > size) {
+                dictionary.put(NimiqUtils.fromHex(address));
+            }
+            return id;
+        }
+    }
+
+    private static class Column implements Closeable {
+
+        final String name;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Column(Path directory, String name) throws IOException {
+            this.name = name;
+            channel = FileChannel.open(directory.resolve(name), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+
+        long size() throws IOException {
+            return channel.position() + buffer.position();
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void truncate(long size) throws IOException {
+            flush();
+            channel.truncate(size);
+            channel.position(Math.min(size, channel.size()));
+        }
+
+        void force() throws IOException {
+            flush();
+            channel.force(false);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            ((Buffer) buffer).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            ((Buffer) buffer).clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.nimiq;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows the main chain and detects forks, emitting ordered
+ * {@link ChainListener#blockDisconnected(Block)} and
+ * {@link ChainListener#blockConnected(Block)} events.
+ * <p>
+ * The follower is fed with new blocks as a {@link BlockListener}, typically by
+ * a {@link BlockPoller}. It keeps the most recent blocks and checks that every
+ * new block links to the previous one by its parent hash. If it doesn't, the
+ * blocks of the fork are fetched backwards until they link to a kept block,
+ * the replaced blocks are disconnected and the fork blocks connected. Forks
+ * deeper than the number of kept blocks can't be followed.
+ */
+public class ChainFollower implements BlockListener {
+
+    /**
+     * Default number of recent blocks to keep.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChainFollower.class);
+
+    private final NimiqClient client;
+    private final int maxDepth;
+    private final boolean includeTransactions;
+    private final Deque<Block> blocks = new ArrayDeque<>();
+    private final List<ChainListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a follower that fetches fork blocks with full transactions and
+     * keeps the default number of recent blocks.
+     *
+     * @param client The client to fetch fork blocks with
+     */
+    public ChainFollower(NimiqClient client) {
+        this(client, DEFAULT_MAX_DEPTH, true);
+    }
+
+    /**
+     * Creates a follower.
+     *
+     * @param client              The client to fetch fork blocks with
+     * @param maxDepth            Number of recent blocks to keep, which is the
+     *                            maximum depth of a fork that can be followed
+     * @param includeTransactions If true fork blocks are fetched with the full
+     *                            transaction objects, if false only the hashes.
+     *                            Should match the blocks fed to the follower.
+     */
+    public ChainFollower(NimiqClient client, int maxDepth, boolean includeTransactions) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Invalid depth: " + maxDepth);
+        }
+        this.client = client;
+        this.maxDepth = maxDepth;
+        this.includeTransactions = includeTransactions;
+    }
+
+    /**
+     * @param listener The listener to add
+     */
+    public void addListener(ChainListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener The listener to remove
+     */
+    public void removeListener(ChainListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return The head block of the followed chain, or null if no block was seen
+     *         yet.
+     */
+    public synchronized Block getHead() {
+        return blocks.peekLast();
+    }
+
+    /**
+     * @param height Height of a block
+     * @return The kept block at the given height, or null if it isn't kept.
+     */
+    public synchronized Block getBlock(int height) {
+        Block head = blocks.peekLast();
+        if (head == null || height > head.getNumber() || height <= head.getNumber() - blocks.size()) {
+            return null;
+        }
+        Iterator<Block> iterator = blocks.descendingIterator();
+        for (int i = head.getNumber(); i > height; i--) {
+            iterator.next();
+        }
+        return iterator.next();
+    }
+
+    /**
+     * Adds a new block on top of the followed chain, resolving a fork if it
+     * doesn't link to the current head.
+     * <p>
+     * The whole branch of a fork is fetched and checked before any event is
+     * emitted, so if resolving it fails, no event is emitted and the followed
+     * chain is unchanged.
+     *
+     * @param block The new block
+     * @throws IllegalStateException if the fork is deeper than the kept blocks,
+     *                               or the main chain changed while fetching it
+     */
+    @Override
+    public synchronized void onBlock(Block block) {
+        Block head = blocks.peekLast();
+        if (head == null || (block.getNumber() == head.getNumber() + 1
+                && block.getParentHash().equals(head.getHash()))) {
+            connect(block);
+            return;
+        }
+
+        // Fetch the new branch backwards until it links to a kept block
+        Deque<Block> branch = new ArrayDeque<>();
+        branch.push(block);
+        Block first = block;
+        while (true) {
+            if (first.getNumber() - 1 <= head.getNumber()) {
+                Block ancestor = getBlock(first.getNumber() - 1);
+                if (ancestor == null) {
+                    throw new IllegalStateException("Fork at block #" + block.getNumber() + " is deeper than "
+                            + maxDepth + " blocks");
+                }
+                if (first.getParentHash().equals(ancestor.getHash())) {
+                    break;
+                }
+            }
+            Block parent = client.getBlockByNumber(first.getNumber() - 1, includeTransactions);
+            if (parent == null || !parent.getHash().equals(first.getParentHash())) {
+                throw new IllegalStateException("Main chain changed while resolving fork at block #"
+                        + first.getNumber());
+            }
+            branch.push(parent);
+            first = parent;
+        }
+
+        while (blocks.peekLast().getNumber() >= first.getNumber()) {
+            disconnect();
+        }
+        while (!branch.isEmpty()) {
+            connect(branch.pop());
+        }
+    }
+
+    private void connect(Block block) {
+        blocks.addLast(block);
+        if (blocks.size() > maxDepth) {
+            blocks.removeFirst();
+        }
+        for (ChainListener listener : listeners) {
+            try {
+                listener.blockConnected(block);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Chain listener failed on connected block #{}", block.getNumber(), e);
+            }
+        }
+    }
+
+    private void disconnect() {
+        Block block = blocks.removeLast();
+        for (ChainListener listener : listeners) {
+            try {
+                listener.blockDisconnected(block);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Chain listener failed on disconnected block #{}", block.getNumber(), e);
+            }
+        }
+    }
+}
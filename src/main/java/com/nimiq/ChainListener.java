@@ -0,0 +1,28 @@
+package com.nimiq;
+
+/**
+ * Listener for changes of the main chain, including blocks that are rewound
+ * due to forks.
+ *
+ * @see ChainFollower
+ */
+public interface ChainListener {
+
+    /**
+     * Called when a block became part of the main chain.
+     *
+     * @param block The connected block
+     */
+    public default void blockConnected(Block block) {
+    }
+
+    /**
+     * Called when a block was removed from the main chain due to a fork. Blocks
+     * are disconnected from the head downwards, before the blocks of the fork are
+     * connected.
+     *
+     * @param block The disconnected block
+     */
+    public default void blockDisconnected(Block block) {
+    }
+}
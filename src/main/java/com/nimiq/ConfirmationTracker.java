@@ -0,0 +1,241 @@
+package com.nimiq;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tracks any number of pending transactions until they reach a given number of
+ * confirmations, without polling the receipt of each transaction.
+ * <p>
+ * The tracker is fed with new blocks, either as a {@link BlockListener} of a
+ * {@link BlockPoller} or, to handle forks, as a {@link ChainListener} of a
+ * {@link ChainFollower}. The transaction hashes of each block are scanned once
+ * for tracked transactions, and the receipts are built locally. Transactions
+ * that were not mined within their validity window fail with a
+ * {@link TimeoutException}.
+ * <p>
+ * The receipt of a transaction is requested once when tracking starts, so a
+ * transaction that was already mined before is found as well. Until the first
+ * block is fed to the tracker, the head is requested from the node.
+ */
+public class ConfirmationTracker implements BlockListener, ChainListener {
+
+    /**
+     * Number of blocks a transaction stays valid after its validity start height.
+     */
+    public static final int VALIDITY_WINDOW = 120;
+
+    private static class Pending {
+
+        final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        final int validUntil;
+        Block block;
+        int index;
+
+        Pending(int validUntil) {
+            this.validUntil = validUntil;
+        }
+    }
+
+    private final NimiqClient client;
+    private final int confirmations;
+    private final Map<String, Pending> pending = new HashMap<>();
+    private int height = -1;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param client        The client to request the head and the receipts of
+     *                      newly tracked transactions from
+     * @param confirmations Number of confirmations a transaction needs, 1 meaning
+     *                      that it is in the head block
+     */
+    public ConfirmationTracker(NimiqClient client, int confirmations) {
+        if (confirmations < 1) {
+            throw new IllegalArgumentException("Invalid number of confirmations: " + confirmations);
+        }
+        this.client = client;
+        this.confirmations = confirmations;
+    }
+
+    /**
+     * @return Number of tracked transactions.
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return Height of the last seen block, or -1 if it isn't known yet.
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param hash Hex-encoded hash of the transaction
+     * @return Whether the transaction is tracked and was found in a block of the
+     *         current chain, but doesn't have enough confirmations yet.
+     */
+    public synchronized boolean isMined(String hash) {
+        Pending entry = pending.get(hash);
+        return entry != null && entry.block != null;
+    }
+
+    /**
+     * Starts tracking a transaction that was created at the height of the last
+     * seen block, or of the head of the node if no block was seen yet.
+     *
+     * @param hash Hex-encoded hash of the transaction
+     * @return A future completed with the receipt once the transaction has enough
+     *         confirmations.
+     */
+    public CompletableFuture<TransactionReceipt> track(String hash) {
+        return track(hash, head());
+    }
+
+    /**
+     * Starts tracking a transaction.
+     *
+     * @param hash                Hex-encoded hash of the transaction
+     * @param validityStartHeight The validity start height of the transaction
+     * @return A future completed with the receipt once the transaction has enough
+     *         confirmations.
+     */
+    public CompletableFuture<TransactionReceipt> track(String hash, int validityStartHeight) {
+        head();
+        Pending entry;
+        synchronized (this) {
+            entry = pending.get(hash);
+            if (entry != null) {
+                return entry.future;
+            }
+            entry = new Pending(validityStartHeight + VALIDITY_WINDOW);
+            pending.put(hash, entry);
+        }
+
+        // Blocks fed in the meantime are matched already, the receipt finds
+        // the transaction if it was mined before
+        TransactionReceipt receipt;
+        try {
+            receipt = client.getTransactionReceipt(hash);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending.remove(hash, entry);
+            }
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        if (receipt != null) {
+            Block block = new Block();
+            block.setNumber(receipt.getBlockNumber());
+            block.setHash(receipt.getBlockHash());
+            block.setTimestamp(receipt.getTimestamp());
+            TransactionReceipt confirmed = null;
+            synchronized (this) {
+                if (entry.block == null && pending.get(hash) == entry) {
+                    entry.block = block;
+                    entry.index = receipt.getTransactionIndex();
+                    int depth = height - block.getNumber() + 1;
+                    if (depth >= confirmations) {
+                        confirmed = createReceipt(hash, entry, depth);
+                        pending.remove(hash);
+                    }
+                }
+            }
+            if (confirmed != null) {
+                entry.future.complete(confirmed);
+            }
+        }
+        return entry.future;
+    }
+
+    @Override
+    public void onBlock(Block block) {
+        blockConnected(block);
+    }
+
+    @Override
+    public void blockConnected(Block block) {
+        List<Runnable> completions = new ArrayList<>();
+        synchronized (this) {
+            height = block.getNumber();
+            List<Transaction> transactions = block.getTransactions();
+            if (transactions != null) {
+                for (int i = 0; i < transactions.size(); i++) {
+                    Pending entry = pending.get(transactions.get(i).getHash());
+                    if (entry != null) {
+                        entry.block = block;
+                        entry.index = i;
+                    }
+                }
+            }
+
+            for (Iterator<Map.Entry<String, Pending>> iterator = pending.entrySet().iterator(); iterator.hasNext();) {
+                Map.Entry<String, Pending> next = iterator.next();
+                Pending entry = next.getValue();
+                if (entry.future.isDone()) {
+                    iterator.remove();
+                } else if (entry.block != null) {
+                    int depth = height - entry.block.getNumber() + 1;
+                    if (depth >= confirmations) {
+                        TransactionReceipt receipt = createReceipt(next.getKey(), entry, depth);
+                        completions.add(() -> entry.future.complete(receipt));
+                        iterator.remove();
+                    }
+                } else if (height > entry.validUntil) {
+                    TimeoutException e = new TimeoutException(
+                            "Transaction " + next.getKey() + " was not mined until block #" + entry.validUntil);
+                    completions.add(() -> entry.future.completeExceptionally(e));
+                    iterator.remove();
+                }
+            }
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    @Override
+    public synchronized void blockDisconnected(Block block) {
+        height = block.getNumber() - 1;
+        for (Pending entry : pending.values()) {
+            if (entry.block != null && entry.block.getHash().equals(block.getHash())) {
+                entry.block = null;
+            }
+        }
+    }
+
+    /**
+     * @return The height of the last seen block, requesting the head of the node
+     *         if no block was seen yet.
+     */
+    private int head() {
+        synchronized (this) {
+            if (height >= 0) {
+                return height;
+            }
+        }
+        int head = client.getBlockNumber();
+        synchronized (this) {
+            if (height < 0) {
+                height = head;
+            }
+            return height;
+        }
+    }
+
+    private static TransactionReceipt createReceipt(String hash, Pending entry, int depth) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash(hash);
+        receipt.setTransactionIndex(entry.index);
+        receipt.setBlockHash(entry.block.getHash());
+        receipt.setBlockNumber(entry.block.getNumber());
+        receipt.setConfirmations(depth);
+        receipt.setTimestamp(entry.block.getTimestamp());
+        return receipt;
+    }
+}
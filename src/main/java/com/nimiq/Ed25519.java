@@ -0,0 +1,487 @@
+package com.nimiq;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Ed25519 signatures (RFC 8032), as used by Nimiq for accounts and
+ * transactions. Field elements are 16 limbs of 16 bits, in the style of
+ * TweetNaCl, and all operations on secret data run in constant time.
+ */
+final class Ed25519 {
+
+    static final int KEY_SIZE = 32;
+    static final int SIGNATURE_SIZE = 64;
+
+    private static final BigInteger P = BigInteger.ONE.shiftLeft(255).subtract(BigInteger.valueOf(19));
+    private static final BigInteger ORDER = BigInteger.ONE.shiftLeft(252)
+            .add(new BigInteger("27742317777372353535851937790883648493"));
+
+    private static final long[] GF0 = new long[16];
+    private static final long[] GF1 = gf(BigInteger.ONE);
+    private static final long[] D;
+    private static final long[] D2;
+    private static final long[] SQRT_M1;
+    private static final long[] X = gf(
+            new BigInteger("15112221349535400772501151409588531511454012693041857206046113283949847762202"));
+    private static final long[] Y = gf(
+            new BigInteger("46316835694926478169428394003475163141307993866256225615783033603165251855960"));
+    private static final long[] L = new long[32];
+
+    // BASE[i][j] is j * 16^i times the base point, for fixed-base multiplication
+    private static final long[][][][] BASE = new long[64][16][][];
+
+    static {
+        BigInteger d = BigInteger.valueOf(-121665).multiply(BigInteger.valueOf(121666).modInverse(P)).mod(P);
+        D = gf(d);
+        D2 = gf(d.shiftLeft(1).mod(P));
+        SQRT_M1 = gf(BigInteger.valueOf(2).modPow(P.subtract(BigInteger.ONE).shiftRight(2), P));
+        byte[] order = ORDER.toByteArray();
+        for (int i = 0; i < 32; i++) {
+            L[i] = order[order.length - 1 - i] & 0xff;
+        }
+
+        long[][] b = point();
+        System.arraycopy(X, 0, b[0], 0, 16);
+        System.arraycopy(Y, 0, b[1], 0, 16);
+        System.arraycopy(GF1, 0, b[2], 0, 16);
+        mul(b[3], X, Y);
+        for (int i = 0; i < 64; i++) {
+            BASE[i][0] = identity();
+            for (int j = 1; j < 16; j++) {
+                BASE[i][j] = copy(BASE[i][j - 1]);
+                add(BASE[i][j], b);
+            }
+            // Next base: 16 times this one
+            b = copy(BASE[i][15]);
+            add(b, BASE[i][1]);
+        }
+    }
+
+    private Ed25519() {
+    }
+
+    /**
+     * @param privateKey The 32 byte private key
+     * @return The 32 byte public key.
+     */
+    static byte[] publicKey(byte[] privateKey) {
+        byte[] d = expand(privateKey);
+        long[][] p = point();
+        scalarbase(p, d);
+        byte[] publicKey = new byte[KEY_SIZE];
+        pack(publicKey, p);
+        return publicKey;
+    }
+
+    /**
+     * Signs a message.
+     *
+     * @param message    The message
+     * @param privateKey The 32 byte private key
+     * @param publicKey  The 32 byte public key of the private key
+     * @return The 64 byte signature.
+     */
+    static byte[] sign(byte[] message, byte[] privateKey, byte[] publicKey) {
+        byte[] d = expand(privateKey);
+        MessageDigest sha512 = sha512();
+        sha512.update(d, 32, 32);
+        byte[] r = reduce(sha512.digest(message));
+        byte[] signature = new byte[SIGNATURE_SIZE];
+        long[][] p = point();
+        scalarbase(p, r);
+        pack(signature, p);
+
+        sha512.update(signature, 0, 32);
+        sha512.update(publicKey);
+        byte[] h = reduce(sha512.digest(message));
+        long[] x = new long[64];
+        for (int i = 0; i < 32; i++) {
+            x[i] = r[i] & 0xff;
+        }
+        for (int i = 0; i < 32; i++) {
+            for (int j = 0; j < 32; j++) {
+                x[i + j] += (h[i] & 0xff) * (long) (d[j] & 0xff);
+            }
+        }
+        byte[] s = new byte[32];
+        modL(s, x);
+        System.arraycopy(s, 0, signature, 32, 32);
+        return signature;
+    }
+
+    /**
+     * Verifies a signature.
+     *
+     * @param signature The 64 byte signature
+     * @param message   The message
+     * @param publicKey The 32 byte public key
+     * @return Whether the signature is valid.
+     */
+    static boolean verify(byte[] signature, byte[] message, byte[] publicKey) {
+        if (signature.length != SIGNATURE_SIZE || publicKey.length != KEY_SIZE) {
+            return false;
+        }
+        long[][] q = point();
+        if (!unpackneg(q, publicKey)) {
+            return false;
+        }
+        MessageDigest sha512 = sha512();
+        sha512.update(signature, 0, 32);
+        sha512.update(publicKey);
+        byte[] h = reduce(sha512.digest(message));
+        byte[] s = new byte[32];
+        System.arraycopy(signature, 32, s, 0, 32);
+
+        long[][] p = point();
+        scalarmult(p, q, h);
+        scalarbase(q, s);
+        add(p, q);
+        byte[] t = new byte[32];
+        pack(t, p);
+        int diff = 0;
+        for (int i = 0; i < 32; i++) {
+            diff |= t[i] ^ signature[i];
+        }
+        return diff == 0;
+    }
+
+    private static MessageDigest sha512() {
+        try {
+            return MessageDigest.getInstance("SHA-512");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 is not available", e);
+        }
+    }
+
+    private static byte[] expand(byte[] privateKey) {
+        if (privateKey.length != KEY_SIZE) {
+            throw new IllegalArgumentException("Invalid private key size: " + privateKey.length);
+        }
+        byte[] d = sha512().digest(privateKey);
+        d[0] &= (byte) 248;
+        d[31] &= 127;
+        d[31] |= 64;
+        return d;
+    }
+
+    private static long[] gf(BigInteger value) {
+        long[] o = new long[16];
+        for (int i = 0; i < 16; i++) {
+            o[i] = value.shiftRight(16 * i).intValue() & 0xffff;
+        }
+        return o;
+    }
+
+    private static long[][] point() {
+        return new long[4][16];
+    }
+
+    // Field arithmetic modulo 2^255 - 19
+
+    private static void car25519(long[] o) {
+        long c = 1;
+        for (int i = 0; i < 16; i++) {
+            long v = o[i] + c + 65535;
+            c = v >> 16;
+            o[i] = v - (c << 16);
+        }
+        o[0] += c - 1 + 37 * (c - 1);
+    }
+
+    private static void sel25519(long[] p, long[] q, int b) {
+        long c = ~(b - 1);
+        for (int i = 0; i < 16; i++) {
+            long t = c & (p[i] ^ q[i]);
+            p[i] ^= t;
+            q[i] ^= t;
+        }
+    }
+
+    private static void pack25519(byte[] o, long[] n) {
+        long[] m = new long[16];
+        long[] t = n.clone();
+        car25519(t);
+        car25519(t);
+        car25519(t);
+        for (int j = 0; j < 2; j++) {
+            m[0] = t[0] - 0xffed;
+            for (int i = 1; i < 15; i++) {
+                m[i] = t[i] - 0xffff - ((m[i - 1] >> 16) & 1);
+                m[i - 1] &= 0xffff;
+            }
+            m[15] = t[15] - 0x7fff - ((m[14] >> 16) & 1);
+            int b = (int) ((m[15] >> 16) & 1);
+            m[14] &= 0xffff;
+            sel25519(t, m, 1 - b);
+        }
+        for (int i = 0; i < 16; i++) {
+            o[2 * i] = (byte) t[i];
+            o[2 * i + 1] = (byte) (t[i] >> 8);
+        }
+    }
+
+    private static boolean neq25519(long[] a, long[] b) {
+        byte[] c = new byte[32];
+        byte[] d = new byte[32];
+        pack25519(c, a);
+        pack25519(d, b);
+        int diff = 0;
+        for (int i = 0; i < 32; i++) {
+            diff |= c[i] ^ d[i];
+        }
+        return diff != 0;
+    }
+
+    private static int par25519(long[] a) {
+        byte[] d = new byte[32];
+        pack25519(d, a);
+        return d[0] & 1;
+    }
+
+    private static void unpack25519(long[] o, byte[] n) {
+        for (int i = 0; i < 16; i++) {
+            o[i] = (n[2 * i] & 0xff) + ((long) (n[2 * i + 1] & 0xff) << 8);
+        }
+        o[15] &= 0x7fff;
+    }
+
+    private static void add(long[] o, long[] a, long[] b) {
+        for (int i = 0; i < 16; i++) {
+            o[i] = a[i] + b[i];
+        }
+    }
+
+    private static void sub(long[] o, long[] a, long[] b) {
+        for (int i = 0; i < 16; i++) {
+            o[i] = a[i] - b[i];
+        }
+    }
+
+    private static void mul(long[] o, long[] a, long[] b) {
+        long[] t = new long[31];
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 16; j++) {
+                t[i + j] += a[i] * b[j];
+            }
+        }
+        for (int i = 0; i < 15; i++) {
+            t[i] += 38 * t[i + 16];
+        }
+        System.arraycopy(t, 0, o, 0, 16);
+        car25519(o);
+        car25519(o);
+    }
+
+    private static void square(long[] o, long[] a) {
+        mul(o, a, a);
+    }
+
+    private static void inv25519(long[] o, long[] i) {
+        long[] c = i.clone();
+        for (int a = 253; a >= 0; a--) {
+            square(c, c);
+            if (a != 2 && a != 4) {
+                mul(c, c, i);
+            }
+        }
+        System.arraycopy(c, 0, o, 0, 16);
+    }
+
+    private static void pow2523(long[] o, long[] i) {
+        long[] c = i.clone();
+        for (int a = 250; a >= 0; a--) {
+            square(c, c);
+            if (a != 1) {
+                mul(c, c, i);
+            }
+        }
+        System.arraycopy(c, 0, o, 0, 16);
+    }
+
+    // Group operations in extended coordinates
+
+    private static void add(long[][] p, long[][] q) {
+        long[] a = new long[16];
+        long[] b = new long[16];
+        long[] c = new long[16];
+        long[] d = new long[16];
+        long[] t = new long[16];
+        long[] e = new long[16];
+        long[] f = new long[16];
+        long[] g = new long[16];
+        long[] h = new long[16];
+        sub(a, p[1], p[0]);
+        sub(t, q[1], q[0]);
+        mul(a, a, t);
+        add(b, p[0], p[1]);
+        add(t, q[0], q[1]);
+        mul(b, b, t);
+        mul(c, p[3], q[3]);
+        mul(c, c, D2);
+        mul(d, p[2], q[2]);
+        add(d, d, d);
+        sub(e, b, a);
+        sub(f, d, c);
+        add(g, d, c);
+        add(h, b, a);
+        mul(p[0], e, f);
+        mul(p[1], h, g);
+        mul(p[2], g, f);
+        mul(p[3], e, h);
+    }
+
+    private static void cswap(long[][] p, long[][] q, int b) {
+        for (int i = 0; i < 4; i++) {
+            sel25519(p[i], q[i], b);
+        }
+    }
+
+    private static void pack(byte[] r, long[][] p) {
+        long[] tx = new long[16];
+        long[] ty = new long[16];
+        long[] zi = new long[16];
+        inv25519(zi, p[2]);
+        mul(tx, p[0], zi);
+        mul(ty, p[1], zi);
+        pack25519(r, ty);
+        r[31] ^= par25519(tx) << 7;
+    }
+
+    private static void scalarmult(long[][] p, long[][] q, byte[] s) {
+        System.arraycopy(GF0, 0, p[0], 0, 16);
+        System.arraycopy(GF1, 0, p[1], 0, 16);
+        System.arraycopy(GF1, 0, p[2], 0, 16);
+        System.arraycopy(GF0, 0, p[3], 0, 16);
+        for (int i = 255; i >= 0; i--) {
+            int b = (s[i >> 3] >> (i & 7)) & 1;
+            cswap(p, q, b);
+            add(q, p);
+            add(p, p);
+            cswap(p, q, b);
+        }
+    }
+
+    private static void scalarbase(long[][] p, byte[] s) {
+        long[][] identity = identity();
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(identity[i], 0, p[i], 0, 16);
+        }
+        long[][] t = point();
+        for (int i = 0; i < 64; i++) {
+            int nibble = (s[i >> 1] >> ((i & 1) * 4)) & 15;
+            // Select the table entry without branching on the secret
+            for (int j = 0; j < 16; j++) {
+                long mask = -(((nibble ^ j) - 1) >>> 31);
+                long[][] entry = BASE[i][j];
+                for (int k = 0; k < 4; k++) {
+                    for (int l = 0; l < 16; l++) {
+                        t[k][l] ^= mask & (t[k][l] ^ entry[k][l]);
+                    }
+                }
+            }
+            add(p, t);
+        }
+    }
+
+    private static long[][] identity() {
+        long[][] p = point();
+        System.arraycopy(GF1, 0, p[1], 0, 16);
+        System.arraycopy(GF1, 0, p[2], 0, 16);
+        return p;
+    }
+
+    private static long[][] copy(long[][] p) {
+        long[][] q = point();
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(p[i], 0, q[i], 0, 16);
+        }
+        return q;
+    }
+
+    private static boolean unpackneg(long[][] r, byte[] p) {
+        long[] t = new long[16];
+        long[] chk = new long[16];
+        long[] num = new long[16];
+        long[] den = new long[16];
+        long[] den2 = new long[16];
+        long[] den4 = new long[16];
+        long[] den6 = new long[16];
+        System.arraycopy(GF1, 0, r[2], 0, 16);
+        unpack25519(r[1], p);
+        square(num, r[1]);
+        mul(den, num, D);
+        sub(num, num, r[2]);
+        add(den, r[2], den);
+
+        square(den2, den);
+        square(den4, den2);
+        mul(den6, den4, den2);
+        mul(t, den6, num);
+        mul(t, t, den);
+
+        pow2523(t, t);
+        mul(t, t, num);
+        mul(t, t, den);
+        mul(t, t, den);
+        mul(r[0], t, den);
+
+        square(chk, r[0]);
+        mul(chk, chk, den);
+        if (neq25519(chk, num)) {
+            mul(r[0], r[0], SQRT_M1);
+        }
+        square(chk, r[0]);
+        mul(chk, chk, den);
+        if (neq25519(chk, num)) {
+            return false;
+        }
+        if (par25519(r[0]) == ((p[31] & 0xff) >> 7)) {
+            sub(r[0], GF0, r[0]);
+        }
+        mul(r[3], r[0], r[1]);
+        return true;
+    }
+
+    // Arithmetic modulo the group order
+
+    private static void modL(byte[] r, long[] x) {
+        long carry;
+        int i;
+        int j;
+        for (i = 63; i >= 32; i--) {
+            carry = 0;
+            for (j = i - 32; j < i - 12; j++) {
+                x[j] += carry - 16 * x[i] * L[j - (i - 32)];
+                carry = (x[j] + 128) >> 8;
+                x[j] -= carry << 8;
+            }
+            x[j] += carry;
+            x[i] = 0;
+        }
+        carry = 0;
+        for (j = 0; j < 32; j++) {
+            x[j] += carry - (x[31] >> 4) * L[j];
+            carry = x[j] >> 8;
+            x[j] &= 255;
+        }
+        for (j = 0; j < 32; j++) {
+            x[j] -= carry * L[j];
+        }
+        for (i = 0; i < 32; i++) {
+            x[i + 1] += x[i] >> 8;
+            r[i] = (byte) x[i];
+        }
+    }
+
+    private static byte[] reduce(byte[] hash) {
+        long[] x = new long[64];
+        for (int i = 0; i < 64; i++) {
+            x[i] = hash[i] & 0xff;
+        }
+        byte[] r = new byte[32];
+        modL(r, x);
+        return r;
+    }
+}
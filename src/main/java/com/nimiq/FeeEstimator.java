@@ -0,0 +1,233 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the fee per byte a transaction needs to be mined within a given
+ * number of blocks, without a request per estimate.
+ * <p>
+ * The estimator combines two sources, kept as histograms over the fee per byte
+ * buckets of {@link Mempool} with exponential decay:
+ * <ul>
+ * <li>Samples of {@link NimiqClient#getMempool()}: a fee suffices if all
+ * pending transactions paying at least as much fit into the target number of
+ * blocks.</li>
+ * <li>Mined blocks, fed as a {@link BlockListener}: a fee suffices if blocks
+ * accepted it often enough to include it within the target number of blocks
+ * with 95% probability. Blocks that were not nearly full accepted any
+ * fee.</li>
+ * </ul>
+ * The estimate is the higher of both, and at least the minimum fee per byte of
+ * the node. Estimates for all targets are precomputed on each update.
+ */
+public class FeeEstimator implements BlockListener, Closeable {
+
+    /**
+     * Default time between two mempool samples in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL = 10_000;
+
+    /**
+     * Largest supported target number of blocks.
+     */
+    public static final int MAX_TARGET = ConfirmationTracker.VALIDITY_WINDOW;
+
+    /**
+     * Fee per byte buckets of the mempool, in descending order.
+     */
+    static final int[] BUCKETS = { 10000, 5000, 2000, 1000, 500, 200, 100, 50, 20, 10, 5, 2, 1, 0 };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeeEstimator.class);
+
+    private static final int MAX_BLOCK_SIZE = 100_000;
+    private static final int FULL_BLOCK_SIZE = MAX_BLOCK_SIZE * 9 / 10;
+    private static final int TRANSACTIONS_PER_BLOCK = MAX_BLOCK_SIZE / TransactionFormat.BASIC_SIZE;
+    private static final double CONFIDENCE = 0.95;
+
+    private final NimiqClient client;
+    private final double mempoolDecay;
+    private final double blockDecay;
+    private final double[] pending = new double[BUCKETS.length];
+    private final double[] accepted = new double[BUCKETS.length];
+    private long minFeePerByte;
+    private volatile long[] estimates = new long[MAX_TARGET + 1];
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates an estimator with default decays.
+     *
+     * @param client The client to sample the mempool with
+     */
+    public FeeEstimator(NimiqClient client) {
+        this(client, 0.5, 0.95);
+    }
+
+    /**
+     * Creates an estimator.
+     *
+     * @param client       The client to sample the mempool with
+     * @param mempoolDecay Weight of the previous samples on a new mempool sample,
+     *                     between 0 and 1
+     * @param blockDecay   Weight of the previous blocks on a new block, between 0
+     *                     and 1
+     */
+    public FeeEstimator(NimiqClient client, double mempoolDecay, double blockDecay) {
+        if (mempoolDecay < 0 || mempoolDecay >= 1 || blockDecay < 0 || blockDecay >= 1) {
+            throw new IllegalArgumentException("Invalid decay");
+        }
+        this.client = client;
+        this.mempoolDecay = mempoolDecay;
+        this.blockDecay = blockDecay;
+    }
+
+    /**
+     * Starts sampling the mempool with the default interval.
+     */
+    public void start() {
+        start(DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Starts sampling the mempool.
+     *
+     * @param interval Time between two samples in milliseconds
+     */
+    public synchronized void start(long interval) {
+        if (executor != null) {
+            throw new IllegalStateException("Estimator is already running");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-fee-estimator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                sample();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Sampling the mempool failed", e);
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Samples the mempool and the minimum fee once. Called periodically once the
+     * estimator is started.
+     */
+    public void sample() {
+        Mempool mempool = client.getMempool();
+        long minFee = client.getMinFeePerByte();
+        synchronized (this) {
+            for (int i = 0; i < BUCKETS.length; i++) {
+                pending[i] = pending[i] * mempoolDecay
+                        + mempool.getNumberOfTransactions(BUCKETS[i]) * (1 - mempoolDecay);
+            }
+            minFeePerByte = minFee;
+            update();
+        }
+    }
+
+    @Override
+    public synchronized void onBlock(Block block) {
+        int cheapest = BUCKETS.length - 1;
+        List<Transaction> transactions = block.getTransactions();
+        if (block.getSize() >= FULL_BLOCK_SIZE && transactions != null && !transactions.isEmpty()) {
+            cheapest = 0;
+            for (Transaction tx : transactions) {
+                if (tx.getFrom() == null) {
+                    throw new IllegalArgumentException("Block #" + block.getNumber() + " lacks full transactions");
+                }
+                cheapest = Math.max(cheapest, bucketOf(tx.getFee() / sizeOf(tx)));
+            }
+        }
+        for (int i = 0; i < BUCKETS.length; i++) {
+            accepted[i] *= blockDecay;
+        }
+        accepted[cheapest] += 1 - blockDecay;
+        update();
+    }
+
+    /**
+     * @param targetBlocks Number of blocks within which the transaction should be
+     *                     mined, from 1 to {@link #MAX_TARGET}
+     * @return The estimated fee per byte in Luna.
+     */
+    public long feePerByteFor(int targetBlocks) {
+        if (targetBlocks < 1 || targetBlocks > MAX_TARGET) {
+            throw new IllegalArgumentException("Invalid target: " + targetBlocks);
+        }
+        return estimates[targetBlocks];
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void update() {
+        double acceptedTotal = 0;
+        for (double weight : accepted) {
+            acceptedTotal += weight;
+        }
+        long[] result = new long[MAX_TARGET + 1];
+        for (int target = MAX_TARGET; target >= 1; target--) {
+            // Lowest bucket whose transactions and all better paying ones fit
+            double capacity = (double) target * TRANSACTIONS_PER_BLOCK;
+            double ahead = 0;
+            int mempoolFee = BUCKETS[0];
+            for (int i = 0; i < BUCKETS.length && ahead + pending[i] < capacity; i++) {
+                ahead += pending[i];
+                mempoolFee = BUCKETS[i];
+            }
+
+            // Lowest bucket accepted by enough blocks
+            int blockFee = 0;
+            if (acceptedTotal > 0) {
+                double required = 1 - Math.pow(1 - CONFIDENCE, 1.0 / target);
+                double share = 0;
+                for (int i = BUCKETS.length - 1; i >= 0; i--) {
+                    share += accepted[i] / acceptedTotal;
+                    blockFee = BUCKETS[i];
+                    if (share >= required) {
+                        break;
+                    }
+                }
+            }
+
+            long fee = Math.max(minFeePerByte, Math.max(mempoolFee, blockFee));
+            // A longer target never needs a higher fee
+            result[target] = target < MAX_TARGET ? Math.max(fee, result[target + 1]) : fee;
+        }
+        estimates = result;
+    }
+
+    private static int bucketOf(long feePerByte) {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (feePerByte >= BUCKETS[i]) {
+                return i;
+            }
+        }
+        return BUCKETS.length - 1;
+    }
+
+    /**
+     * @return The approximate serialized size of a transaction, assuming a
+     *         signature proof for extended transactions.
+     */
+    private static int sizeOf(Transaction tx) {
+        if ((tx.getData() == null || tx.getData().isEmpty()) && tx.getFlags() == 0) {
+            return TransactionFormat.BASIC_SIZE;
+        }
+        return TransactionFormat.SIGNED_EXTENDED_SIZE + (tx.getData() != null ? tx.getData().length() / 2 : 0);
+    }
+}
@@ -0,0 +1,182 @@
+package com.nimiq;
+
+import java.util.function.Consumer;
+
+/**
+ * Compact set of fixed-size binary keys, such as hashes or addresses, given as
+ * hex strings. Keys are stored as {@code long} limbs in an open addressing
+ * table instead of as {@link String} objects. Each key is assigned an id in
+ * order of insertion, which allows to use the set as a dictionary. Not
+ * thread-safe.
+ */
+final class HashKeySet {
+
+    private final int keySize;
+    private final int limbs;
+    private long[] keys;
+    private boolean[] used;
+    private int[] ids;
+    private int size;
+    private int nextId;
+
+    /**
+     * @param keySize      Size of a key in bytes
+     * @param expectedSize Expected number of keys
+     */
+    HashKeySet(int keySize, int expectedSize) {
+        this.keySize = keySize;
+        this.limbs = (keySize + 7) / 8;
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new long[capacity * limbs];
+        used = new boolean[capacity];
+        ids = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(String hex) {
+        return find(toLimbs(hex)) >= 0;
+    }
+
+    boolean add(String hex) {
+        long[] key = toLimbs(hex);
+        if (find(key) >= 0) {
+            return false;
+        }
+        if ((size + 1) * 2 > used.length) {
+            grow();
+        }
+        insert(key, 0, nextId++);
+        size++;
+        return true;
+    }
+
+    /**
+     * @return The id of the key, or -1 if it isn't in the set.
+     */
+    int idOf(String hex) {
+        int slot = find(toLimbs(hex));
+        return slot < 0 ? -1 : ids[slot];
+    }
+
+    /**
+     * @return The id of the key, which is added if it isn't in the set yet.
+     */
+    int intern(String hex) {
+        long[] key = toLimbs(hex);
+        int slot = find(key);
+        if (slot >= 0) {
+            return ids[slot];
+        }
+        if ((size + 1) * 2 > used.length) {
+            grow();
+        }
+        size++;
+        return ids[insert(key, 0, nextId++)];
+    }
+
+    boolean remove(String hex) {
+        int slot = find(toLimbs(hex));
+        if (slot < 0) {
+            return false;
+        }
+        int mask = used.length - 1;
+        used[slot] = false;
+        size--;
+        // Shift back the following entries of the probe sequence
+        for (int next = (slot + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = home(keys, next * limbs) & mask;
+            boolean movable = slot < next ? home <= slot || home > next : home <= slot && home > next;
+            if (movable) {
+                System.arraycopy(keys, next * limbs, keys, slot * limbs, limbs);
+                ids[slot] = ids[next];
+                used[slot] = true;
+                used[next] = false;
+                slot = next;
+            }
+        }
+        return true;
+    }
+
+    void forEach(Consumer<String> action) {
+        for (int slot = 0; slot < used.length; slot++) {
+            if (used[slot]) {
+                action.accept(toHex(slot));
+            }
+        }
+    }
+
+    private long[] toLimbs(String hex) {
+        if (hex.length() != keySize * 2) {
+            throw new IllegalArgumentException("Expected " + keySize + " bytes but got: " + hex);
+        }
+        long[] key = new long[limbs];
+        for (int i = 0; i < hex.length(); i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hex string: " + hex);
+            }
+            key[i / 16] |= (long) digit << (60 - (i % 16) * 4);
+        }
+        return key;
+    }
+
+    private String toHex(int slot) {
+        StringBuilder builder = new StringBuilder(keySize * 2);
+        for (int i = 0; i < keySize * 2; i++) {
+            builder.append(Character.forDigit((int) (keys[slot * limbs + i / 16] >>> (60 - (i % 16) * 4)) & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    private int home(long[] array, int offset) {
+        return (int) (((array[offset] ^ array[offset + limbs - 1]) * 0x9e3779b97f4a7c15L) >>> 32);
+    }
+
+    private int find(long[] key) {
+        int mask = used.length - 1;
+        for (int slot = home(key, 0) & mask; used[slot]; slot = (slot + 1) & mask) {
+            if (equals(slot, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean equals(int slot, long[] key) {
+        for (int i = 0; i < limbs; i++) {
+            if (keys[slot * limbs + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int insert(long[] key, int offset, int id) {
+        int mask = used.length - 1;
+        int slot = home(key, offset) & mask;
+        while (used[slot]) {
+            slot = (slot + 1) & mask;
+        }
+        System.arraycopy(key, offset, keys, slot * limbs, limbs);
+        used[slot] = true;
+        ids[slot] = id;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        int[] oldIds = ids;
+        keys = new long[oldKeys.length * 2];
+        used = new boolean[oldUsed.length * 2];
+        ids = new int[oldIds.length * 2];
+        for (int slot = 0; slot < oldUsed.length; slot++) {
+            if (oldUsed[slot]) {
+                insert(oldKeys, slot * limbs, oldIds[slot]);
+            }
+        }
+    }
+}
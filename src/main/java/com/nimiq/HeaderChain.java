@@ -0,0 +1,408 @@
+package com.nimiq;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact in-memory chain of block headers, answering height to hash, hash to
+ * height and time to height queries.
+ * <p>
+ * Only the hash, timestamp and difficulty of each block are kept, in parallel
+ * primitive arrays indexed by height. Hashes are stored as four {@code long}
+ * limbs and indexed by an open addressing hash table, so lookups don't create
+ * any objects. The arrays are allocated in chunks of 64K blocks, so the chain
+ * grows without copying. A block takes 40 bytes plus 5 to 11 bytes in the
+ * hash table, so a chain of 2M blocks takes just under 100 MB, two thirds of
+ * which are the hashes themselves.
+ * <p>
+ * The chain is maintained with {@link #sync(NimiqClient)}, which follows the
+ * node's main chain and rewinds blocks that were replaced by a fork. Lookups can
+ * be done concurrently with syncing.
+ */
+public class HeaderChain {
+
+    private static final int LIMBS = 4;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[][] hashes = new long[0][];
+    private int[][] timestamps = new int[0][];
+    // Difficulties are rounded decimals anyway, a float keeps 7 digits
+    private float[][] difficulties = new float[0][];
+    private int[] table;
+    private int firstHeight;
+    private int size;
+
+    /**
+     * Creates an empty chain.
+     */
+    public HeaderChain() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty chain.
+     *
+     * @param initialCapacity Number of blocks to size the hash table for
+     */
+    public HeaderChain(int initialCapacity) {
+        table = new int[tableSize(Math.max(initialCapacity, 16))];
+    }
+
+    /**
+     * @return Height of the first block in the chain, or 0 if the chain is empty.
+     */
+    public int getFirstHeight() {
+        lock.readLock().lock();
+        try {
+            return size == 0 ? 0 : firstHeight;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Height of the head block, or 0 if the chain is empty.
+     */
+    public int getHeadHeight() {
+        lock.readLock().lock();
+        try {
+            return size == 0 ? 0 : firstHeight + size - 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of blocks in the chain.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param height Height of a block
+     * @return Hex-encoded hash of the block, or null if it is not in the chain.
+     */
+    public String getHash(int height) {
+        lock.readLock().lock();
+        try {
+            int index = height - firstHeight;
+            if (index < 0 || index >= size) {
+                return null;
+            }
+            StringBuilder builder = new StringBuilder(LIMBS * 16);
+            for (int i = 0; i < LIMBS; i++) {
+                String limb = Long.toHexString(limb(index, i));
+                for (int j = limb.length(); j < 16; j++) {
+                    builder.append('0');
+                }
+                builder.append(limb);
+            }
+            return builder.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param hash Hex-encoded hash of a block
+     * @return Height of the block, or -1 if it is not in the chain.
+     */
+    public int getHeight(String hash) {
+        long l0 = limb(hash, 0);
+        long l1 = limb(hash, 1);
+        long l2 = limb(hash, 2);
+        long l3 = limb(hash, 3);
+        lock.readLock().lock();
+        try {
+            int index = find(l0, l1, l2, l3);
+            return index < 0 ? -1 : firstHeight + index;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param hash Hex-encoded hash of a block
+     * @return Whether the block is in the chain.
+     */
+    public boolean contains(String hash) {
+        return getHeight(hash) >= 0;
+    }
+
+    /**
+     * @param height Height of a block
+     * @return UNIX timestamp of the block, or 0 if it is not in the chain.
+     */
+    public int getTimestamp(int height) {
+        lock.readLock().lock();
+        try {
+            int index = height - firstHeight;
+            return index < 0 || index >= size ? 0 : timestamp(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param height Height of a block
+     * @return Difficulty of the block to about seven significant digits, or 0 if
+     *         it is not in the chain.
+     */
+    public double getDifficulty(int height) {
+        lock.readLock().lock();
+        try {
+            int index = height - firstHeight;
+            return index < 0 || index >= size ? 0 : difficulties[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the last block that was created at or before the given time. Block
+     * timestamps are assumed to be non-decreasing along the chain.
+     *
+     * @param timestamp UNIX timestamp
+     * @return Height of the block, or -1 if the chain has no block that old.
+     */
+    public int getHeightAt(int timestamp) {
+        lock.readLock().lock();
+        try {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestamp(mid) <= timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high < 0 ? -1 : firstHeight + high;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a block on top of the chain. The first block may have any height, the
+     * following ones must succeed the head.
+     *
+     * @param block The block to add, transactions are not needed
+     * @throws IllegalArgumentException if the block doesn't succeed the head
+     */
+    public void add(Block block) {
+        lock.writeLock().lock();
+        try {
+            if (size > 0) {
+                if (block.getNumber() != firstHeight + size) {
+                    throw new IllegalArgumentException(
+                            "Expected block #" + (firstHeight + size) + " but got #" + block.getNumber());
+                }
+                if (!isHead(block.getParentHash())) {
+                    throw new IllegalArgumentException("Block #" + block.getNumber() + " doesn't succeed the head");
+                }
+            } else {
+                firstHeight = block.getNumber();
+            }
+            int chunk = size >>> CHUNK_BITS;
+            if (chunk == timestamps.length) {
+                addChunk();
+            }
+            if ((size + 1) * 4L > table.length * 3L) {
+                growTable();
+            }
+            String hash = block.getHash();
+            int offset = size & CHUNK_MASK;
+            for (int i = 0; i < LIMBS; i++) {
+                hashes[chunk][offset * LIMBS + i] = limb(hash, i);
+            }
+            timestamps[chunk][offset] = block.getTimestamp();
+            difficulties[chunk][offset] = Float.parseFloat(block.getDifficulty());
+            insert(size);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all blocks above the given height.
+     *
+     * @param height The new head height
+     */
+    public void rewind(int height) {
+        lock.writeLock().lock();
+        try {
+            int newSize = Math.max(0, Math.min(size, height - firstHeight + 1));
+            if (newSize == size) {
+                return;
+            }
+            while (size > newSize) {
+                remove(--size);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the chain up to date with the node's main chain. Blocks that are no
+     * longer on the main chain due to forks are rewound first. An empty chain is
+     * filled from the genesis block.
+     *
+     * @param client The client to fetch the blocks with
+     * @return Number of added blocks.
+     */
+    public int sync(NimiqClient client) {
+        int nodeHead = client.getBlockNumber();
+
+        // Rewind blocks that are no longer on the main chain
+        rewind(Math.min(getHeadHeight(), nodeHead));
+        while (size() > 0) {
+            int head = getHeadHeight();
+            if (client.getBlockByNumber(head, false).getHash().equals(getHash(head))) {
+                break;
+            }
+            rewind(head - 1);
+        }
+
+        int added = 0;
+        int height = size() > 0 ? getHeadHeight() + 1 : Math.max(firstHeight, 1);
+        while (height <= nodeHead) {
+            Block block = client.getBlockByNumber(height, false);
+            if (size() > 0 && !isHead(block.getParentHash())) {
+                // The main chain changed while syncing, continue from the predecessor
+                rewind(height - 2);
+                height--;
+                continue;
+            }
+            add(block);
+            added++;
+            height++;
+        }
+        return added;
+    }
+
+    private boolean isHead(String hash) {
+        lock.readLock().lock();
+        try {
+            int index = size - 1;
+            return index >= 0 && limb(index, 0) == limb(hash, 0) && limb(index, 1) == limb(hash, 1)
+                    && limb(index, 2) == limb(hash, 2) && limb(index, 3) == limb(hash, 3);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addChunk() {
+        int chunks = timestamps.length + 1;
+        hashes = Arrays.copyOf(hashes, chunks);
+        timestamps = Arrays.copyOf(timestamps, chunks);
+        difficulties = Arrays.copyOf(difficulties, chunks);
+        hashes[chunks - 1] = new long[CHUNK_SIZE * LIMBS];
+        timestamps[chunks - 1] = new int[CHUNK_SIZE];
+        difficulties[chunks - 1] = new float[CHUNK_SIZE];
+    }
+
+    private void growTable() {
+        table = new int[table.length * 2];
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    /**
+     * @return The smallest power of two that holds the blocks at a load factor
+     *         of at most 3/4.
+     */
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit((int) ((capacity * 4L + 2) / 3) - 1) << 1;
+    }
+
+    private long limb(int index, int limb) {
+        return hashes[index >>> CHUNK_BITS][(index & CHUNK_MASK) * LIMBS + limb];
+    }
+
+    private int timestamp(int index) {
+        return timestamps[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    private int home(int index) {
+        return home(limb(index, 0), limb(index, 3));
+    }
+
+    private static int home(long l0, long l3) {
+        return (int) (((l0 ^ l3) * 0x9e3779b97f4a7c15L) >>> 32);
+    }
+
+    private void insert(int index) {
+        int mask = table.length - 1;
+        int slot = home(index) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private void remove(int index) {
+        int mask = table.length - 1;
+        int slot = home(index) & mask;
+        while (table[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = 0;
+        // Shift back the following entries of the probe sequence
+        for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = home(table[next] - 1) & mask;
+            boolean movable = slot < next ? home <= slot || home > next : home <= slot && home > next;
+            if (movable) {
+                table[slot] = table[next];
+                table[next] = 0;
+                slot = next;
+            }
+        }
+    }
+
+    private int find(long l0, long l1, long l2, long l3) {
+        int mask = table.length - 1;
+        int slot = home(l0, l3) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int index = entry - 1;
+            if (index < size && limb(index, 0) == l0 && limb(index, 1) == l1 && limb(index, 2) == l2
+                    && limb(index, 3) == l3) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static long limb(String hash, int limb) {
+        if (hash.length() != LIMBS * 16) {
+            throw new IllegalArgumentException("Invalid hash: " + hash);
+        }
+        long value = 0;
+        for (int i = limb * 16; i < limb * 16 + 16; i++) {
+            int digit = Character.digit(hash.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hash: " + hash);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file mapped into memory in fixed-size regions, which grows on demand.
+ * Values must not cross region boundaries. Not thread-safe.
+ */
+final class MappedRegions implements Closeable {
+
+    private final FileChannel channel;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+
+    MappedRegions(Path file, int regionSize) throws IOException {
+        this.regionSize = regionSize;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ensure(channel.size());
+    }
+
+    /**
+     * @return Whether the file was empty when it was opened.
+     */
+    boolean isEmpty() {
+        return regions.isEmpty();
+    }
+
+    /**
+     * Maps the file up to the given size.
+     */
+    void ensure(long size) throws IOException {
+        while ((long) regions.size() * regionSize < size) {
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() * regionSize, regionSize));
+        }
+    }
+
+    byte get(long offset) {
+        return regions.get((int) (offset / regionSize)).get((int) (offset % regionSize));
+    }
+
+    void put(long offset, byte value) {
+        regions.get((int) (offset / regionSize)).put((int) (offset % regionSize), value);
+    }
+
+    int getInt(long offset) {
+        return regions.get((int) (offset / regionSize)).getInt((int) (offset % regionSize));
+    }
+
+    void putInt(long offset, int value) {
+        regions.get((int) (offset / regionSize)).putInt((int) (offset % regionSize), value);
+    }
+
+    void force() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
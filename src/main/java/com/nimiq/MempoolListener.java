@@ -0,0 +1,26 @@
+package com.nimiq;
+
+/**
+ * Listener for changes of the mempool.
+ *
+ * @see MempoolWatcher
+ */
+public interface MempoolListener {
+
+    /**
+     * Called when a transaction arrived in the mempool.
+     *
+     * @param transaction The full transaction object
+     */
+    public default void transactionAdded(Transaction transaction) {
+    }
+
+    /**
+     * Called when a transaction left the mempool, either because it was mined or
+     * because it was evicted.
+     *
+     * @param hash Hex-encoded hash of the transaction
+     */
+    public default void transactionRemoved(String hash) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the mempool and reports arriving and leaving transactions to all
+ * subscribed {@link MempoolListener}s.
+ * <p>
+ * Each poll only fetches the transaction hashes with
+ * {@link NimiqClient#getMempoolContent(boolean)} and diffs them against the
+ * previous snapshot, which is kept as a compact binary hash set. Full
+ * transactions are fetched only for newly arrived hashes. On the first poll all
+ * transactions in the mempool are reported as added.
+ * <p>
+ * Listeners are called on the polling thread.
+ */
+public class MempoolWatcher implements Closeable {
+
+    /**
+     * Default time between two polls in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL = 2_000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MempoolWatcher.class);
+
+    private static final int HASH_SIZE = 32;
+
+    private final NimiqClient client;
+    private final List<MempoolListener> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService executor;
+    private HashKeySet snapshot = new HashKeySet(HASH_SIZE, 0);
+
+    /**
+     * Creates a watcher.
+     *
+     * @param client The client to poll
+     */
+    public MempoolWatcher(NimiqClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @param listener The listener to add
+     */
+    public void addListener(MempoolListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener The listener to remove
+     */
+    public void removeListener(MempoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return Number of transactions in the last snapshot.
+     */
+    public synchronized int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Starts polling with the default interval.
+     */
+    public void start() {
+        start(DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Starts polling.
+     *
+     * @param interval Time between two polls in milliseconds
+     */
+    public synchronized void start(long interval) {
+        if (executor != null) {
+            throw new IllegalStateException("Watcher is already running");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-mempool-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Polling the mempool failed", e);
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Polls the mempool once and reports the changes since the last poll. Called
+     * periodically once the watcher is started.
+     */
+    public synchronized void poll() {
+        List<Transaction> content = client.getMempoolContent(false);
+        HashKeySet previous = snapshot;
+        HashKeySet current = new HashKeySet(HASH_SIZE, content.size());
+        for (Transaction entry : content) {
+            String hash = entry.getHash();
+            current.add(hash);
+            if (previous.remove(hash)) {
+                continue;
+            }
+            Transaction transaction;
+            try {
+                transaction = client.getTransactionByHash(hash);
+            } catch (RuntimeException e) {
+                transaction = null;
+            }
+            if (transaction == null) {
+                // Most likely evicted in the meantime, otherwise retried on the next poll
+                current.remove(hash);
+                continue;
+            }
+            for (MempoolListener listener : listeners) {
+                try {
+                    listener.transactionAdded(transaction);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Mempool listener failed on added transaction {}", hash, e);
+                }
+            }
+        }
+        previous.forEach(hash -> {
+            for (MempoolListener listener : listeners) {
+                try {
+                    listener.transactionRemoved(hash);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Mempool listener failed on removed transaction {}", hash, e);
+                }
+            }
+        });
+        snapshot = current;
+    }
+
+    /**
+     * Stops polling.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.nimiq;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.googlecode.jsonrpc4j.JsonRpcClientException;
+import com.googlecode.jsonrpc4j.JsonRpcMethod;
+
+/**
+ * Wraps a {@link NimiqClient} to record the duration and outcome of every call
+ * in a {@link MetricsRegistry}.
+ * <p>
+ * A call that throws a {@link JsonRpcClientException} was answered by the node
+ * and is recorded as an error with its code, any other failure is recorded as
+ * a transport error. The sizes of the request and the response are read from
+ * a per-thread counter that the transport fills in during the call.
+ */
+class MeteredClient implements InvocationHandler {
+
+    static final int REQUEST_BYTES = 0;
+    static final int RESPONSE_BYTES = 1;
+    static final int ACTIVE = 2;
+
+    private final NimiqClient client;
+    private final MetricsRegistry registry;
+    private final ThreadLocal<long[]> bytes;
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    private MeteredClient(NimiqClient client, MetricsRegistry registry, ThreadLocal<long[]> bytes) {
+        this.client = client;
+        this.registry = registry;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Creates a metered client.
+     *
+     * @param client   The client to wrap
+     * @param registry The registry to record calls in
+     * @param bytes    Per-thread counters of the request and response bytes of
+     *                 the current call, indexed by {@link #REQUEST_BYTES} and
+     *                 {@link #RESPONSE_BYTES}, or null if sizes aren't known
+     * @return The metered client.
+     */
+    static NimiqClient create(NimiqClient client, MetricsRegistry registry, ThreadLocal<long[]> bytes) {
+        return (NimiqClient) Proxy.newProxyInstance(NimiqClient.class.getClassLoader(),
+                new Class<?>[] { NimiqClient.class }, new MeteredClient(client, registry, bytes));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            try {
+                return method.invoke(client, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        String name = names.computeIfAbsent(method, MeteredClient::rpcName);
+        long[] counts = bytes != null ? bytes.get() : new long[3];
+        counts[REQUEST_BYTES] = 0;
+        counts[RESPONSE_BYTES] = 0;
+        counts[ACTIVE] = 1;
+        long start = System.nanoTime();
+        try {
+            Object result = method.invoke(client, args);
+            registry.recordSuccess(name, System.nanoTime() - start, counts[REQUEST_BYTES], counts[RESPONSE_BYTES]);
+            return result;
+        } catch (InvocationTargetException e) {
+            long duration = System.nanoTime() - start;
+            Throwable cause = e.getCause();
+            JsonRpcClientException error = rpcError(cause);
+            if (error != null) {
+                registry.recordError(name, duration, counts[REQUEST_BYTES], counts[RESPONSE_BYTES], error.getCode());
+            } else {
+                registry.recordTransportError(name, duration, counts[REQUEST_BYTES]);
+            }
+            throw cause;
+        } finally {
+            counts[ACTIVE] = 0;
+        }
+    }
+
+    private static String rpcName(Method method) {
+        JsonRpcMethod annotation = method.getAnnotation(JsonRpcMethod.class);
+        return annotation != null ? annotation.value() : method.getName();
+    }
+
+    private static JsonRpcClientException rpcError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonRpcClientException) {
+                return (JsonRpcClientException) cause;
+            }
+        }
+        return null;
+    }
+}
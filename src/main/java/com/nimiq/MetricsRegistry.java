@@ -0,0 +1,43 @@
+package com.nimiq;
+
+/**
+ * Receives measurements of RPC calls from a client created with
+ * {@link NimiqClientFactory#getClient(MetricsRegistry)}.
+ * <p>
+ * Methods are called on the calling thread right after each call, so
+ * implementations must be thread-safe and fast. {@link RpcMetrics} is the
+ * built-in implementation.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Records a successful call.
+     *
+     * @param method        The RPC method
+     * @param durationNanos Duration of the call in nanoseconds
+     * @param requestBytes  Size of the JSON request
+     * @param responseBytes Size of the JSON response
+     */
+    public void recordSuccess(String method, long durationNanos, long requestBytes, long responseBytes);
+
+    /**
+     * Records a call that the node answered with an error.
+     *
+     * @param method        The RPC method
+     * @param durationNanos Duration of the call in nanoseconds
+     * @param requestBytes  Size of the JSON request
+     * @param responseBytes Size of the JSON response
+     * @param code          The JSON-RPC error code
+     */
+    public void recordError(String method, long durationNanos, long requestBytes, long responseBytes, int code);
+
+    /**
+     * Records a call that failed without an answer of the node, such as on a
+     * connection error or timeout.
+     *
+     * @param method        The RPC method
+     * @param durationNanos Duration of the call in nanoseconds
+     * @param requestBytes  Size of the JSON request, or 0 if it wasn't sent
+     */
+    public void recordTransportError(String method, long durationNanos, long requestBytes);
+}
@@ -0,0 +1,279 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Mines blocks locally with the work instructions of
+ * {@link NimiqClient#getWork(String, String)}.
+ * <p>
+ * Every thread searches its own share of the nonces with its own Argon2d
+ * memory, allocated once. The work is requested again periodically, so that
+ * new blocks and transactions are picked up. A header whose hash meets the
+ * target of the work is submitted with {@link NimiqClient#submitBlock(String)}
+ * once, and the search pauses until the next work arrives.
+ */
+public class Miner implements Closeable {
+
+    /**
+     * Default time between two work requests in milliseconds.
+     */
+    public static final long DEFAULT_WORK_INTERVAL = 5_000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Miner.class);
+
+    private static final String ALGORITHM = "nimiq-argon2";
+    private static final int NONCE_SIZE = 4;
+
+    /**
+     * Work being mined.
+     */
+    private static class Job {
+
+        private final byte[] header;
+        private final String suffix;
+        private final byte[] target;
+
+        Job(Work work) {
+            this.header = NimiqUtils.fromHex(work.getData());
+            this.suffix = work.getSuffix();
+            this.target = compactToTarget(work.getTarget());
+        }
+    }
+
+    private final NimiqClient client;
+    private final String address;
+    private final String extraData;
+    private final int threads;
+    private final AtomicReference<Job> job = new AtomicReference<>();
+    private final LongAdder hashes = new LongAdder();
+    private final AtomicLong blocksFound = new AtomicLong();
+    private volatile double hashrate;
+    private long lastHashes;
+    private long lastSample;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    /**
+     * Creates a miner that uses all cores.
+     *
+     * @param client    The client to request work from and submit blocks to
+     * @param address   The miner address
+     * @param extraData Hex-encoded extra data of the mined blocks
+     */
+    public Miner(NimiqClient client, String address, String extraData) {
+        this(client, address, extraData, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a miner.
+     *
+     * @param client    The client to request work from and submit blocks to
+     * @param address   The miner address
+     * @param extraData Hex-encoded extra data of the mined blocks
+     * @param threads   Number of mining threads
+     */
+    public Miner(NimiqClient client, String address, String extraData, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.client = client;
+        this.address = address;
+        this.extraData = extraData;
+        this.threads = threads;
+    }
+
+    /**
+     * Starts mining with the default work interval.
+     */
+    public void start() {
+        start(DEFAULT_WORK_INTERVAL);
+    }
+
+    /**
+     * Starts mining.
+     *
+     * @param workInterval Time between two work requests in milliseconds
+     */
+    public synchronized void start(long workInterval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Miner is already running");
+        }
+        lastSample = System.nanoTime();
+        lastHashes = hashes.sum();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-miner-work");
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-miner");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            int first = i;
+            workers.execute(() -> search(first));
+        }
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, workInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Number of hashes computed since creation.
+     */
+    public long getHashes() {
+        return hashes.sum();
+    }
+
+    /**
+     * @return Hashes per second over the last work interval.
+     */
+    public double getHashrate() {
+        return hashrate;
+    }
+
+    /**
+     * @return Number of blocks found and submitted since creation.
+     */
+    public long getBlocksFound() {
+        return blocksFound.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            workers.shutdownNow();
+            scheduler = null;
+            workers = null;
+            synchronized (job) {
+                job.set(null);
+                job.notifyAll();
+            }
+        }
+    }
+
+    private void refresh() {
+        long now = System.nanoTime();
+        long total = hashes.sum();
+        hashrate = (total - lastHashes) * 1e9 / Math.max(now - lastSample, 1);
+        lastHashes = total;
+        lastSample = now;
+        try {
+            Work work = client.getWork(address, extraData);
+            if (!ALGORITHM.equals(work.getAlgorithm())) {
+                LOGGER.warn("Unsupported mining algorithm {}", work.getAlgorithm());
+                return;
+            }
+            Job next = new Job(work);
+            synchronized (job) {
+                // Keep searching the remaining nonces of unchanged work
+                Job current = job.get();
+                if (current == null || !Arrays.equals(current.header, next.header)
+                        || !current.suffix.equals(next.suffix) || !Arrays.equals(current.target, next.target)) {
+                    job.set(next);
+                    job.notifyAll();
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Requesting work failed", e);
+        }
+    }
+
+    private void search(int first) {
+        Argon2d argon2d = new Argon2d();
+        byte[] hash = new byte[argon2d.getOutputSize()];
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Job current;
+                synchronized (job) {
+                    while ((current = job.get()) == null) {
+                        job.wait();
+                    }
+                }
+                byte[] header = current.header.clone();
+                int nonceOffset = header.length - NONCE_SIZE;
+                for (long nonce = first; nonce <= 0xffffffffL && job.get() == current; nonce += threads) {
+                    header[nonceOffset] = (byte) (nonce >>> 24);
+                    header[nonceOffset + 1] = (byte) (nonce >>> 16);
+                    header[nonceOffset + 2] = (byte) (nonce >>> 8);
+                    header[nonceOffset + 3] = (byte) nonce;
+                    argon2d.hash(header, 0, header.length, hash, 0);
+                    hashes.increment();
+                    if (meetsTarget(hash, current.target) && job.compareAndSet(current, null)) {
+                        submit(header, current.suffix);
+                        break;
+                    }
+                }
+                // Wait for the next work once the nonces are exhausted
+                synchronized (job) {
+                    while (job.get() == current) {
+                        job.wait();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(byte[] header, String suffix) {
+        blocksFound.incrementAndGet();
+        String block = NimiqUtils.toHex(header) + suffix;
+        ScheduledExecutorService scheduler = this.scheduler;
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.execute(() -> {
+            try {
+                client.submitBlock(block);
+                LOGGER.info("Submitted block with header {}", NimiqUtils.toHex(header));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Submitting block failed", e);
+            }
+            refresh();
+        });
+    }
+
+    /**
+     * Expands the compact form of a target, as in the nBits field of a header.
+     *
+     * @param compact The compact target
+     * @return The 32 byte big-endian target.
+     */
+    static byte[] compactToTarget(int compact) {
+        int exponent = compact >>> 24;
+        BigInteger target = BigInteger.valueOf(compact & 0xffffff).shiftLeft(8 * (exponent - 3));
+        byte[] bytes = target.toByteArray();
+        byte[] result = new byte[Blake2b.HASH_SIZE];
+        int length = Math.min(bytes.length, result.length);
+        System.arraycopy(bytes, bytes.length - length, result, result.length - length, length);
+        return result;
+    }
+
+    /**
+     * @return Whether the big-endian hash is at most the target.
+     */
+    static boolean meetsTarget(byte[] hash, byte[] target) {
+        for (int i = 0; i < target.length; i++) {
+            int a = hash[i] & 0xff;
+            int b = target[i] & 0xff;
+            if (a != b) {
+                return a < b;
+            }
+        }
+        return true;
+    }
+}
@@ -1,10 +1,14 @@
 package com.nimiq;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.Map;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.googlecode.jsonrpc4j.JsonRpcClient;
 import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
 import com.googlecode.jsonrpc4j.ProxyUtil;
 
@@ -13,7 +17,50 @@ import com.googlecode.jsonrpc4j.ProxyUtil;
  */
 public class NimiqClientFactory {
 
+    /**
+     * Counts the JSON bytes of the current call of a metered client.
+     */
+    private static class ByteCounter implements JsonRpcClient.RequestListener {
+
+        private final ThreadLocal<long[]> bytes = ThreadLocal.withInitial(() -> new long[3]);
+
+        @Override
+        public void onBeforeRequestSent(JsonRpcClient client, ObjectNode request) {
+            count(client, request, MeteredClient.REQUEST_BYTES);
+        }
+
+        @Override
+        public void onBeforeResponseProcessed(JsonRpcClient client, ObjectNode response) {
+            count(client, response, MeteredClient.RESPONSE_BYTES);
+        }
+
+        private void count(JsonRpcClient client, ObjectNode node, int index) {
+            long[] counts = bytes.get();
+            if (counts[MeteredClient.ACTIVE] == 0) {
+                return;
+            }
+            long[] size = new long[1];
+            try {
+                client.getObjectMapper().writeValue(new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                        size[0]++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        size[0] += len;
+                    }
+                }, node);
+            } catch (IOException e) {
+                // Can't happen while writing to memory
+            }
+            counts[index] += size[0];
+        }
+    }
+
     private final JsonRpcHttpClient jsonRpcClient;
+    private ByteCounter byteCounter;
 
     /**
      * Creates the {@link NimiqClientFactory} class for the given URL.
@@ -46,4 +93,23 @@ public class NimiqClientFactory {
     public NimiqClient getClient() {
         return ProxyUtil.createClientProxy(NimiqClient.class.getClassLoader(), NimiqClient.class, jsonRpcClient);
     }
+
+    /**
+     * Create the {@link NimiqClient} class that records the duration, outcome
+     * and JSON sizes of every call in a registry, such as {@link RpcMetrics}.
+     *
+     * @param registry The registry
+     * @return The client instance
+     */
+    public NimiqClient getClient(MetricsRegistry registry) {
+        ByteCounter counter;
+        synchronized (this) {
+            if (byteCounter == null) {
+                byteCounter = new ByteCounter();
+                jsonRpcClient.setRequestListener(byteCounter);
+            }
+            counter = byteCounter;
+        }
+        return MeteredClient.create(getClient(), registry, counter.bytes);
+    }
 }
@@ -10,6 +10,15 @@ public final class NimiqUtils {
 
     public static final BigDecimal LUNAS_PER_COIN = BigDecimal.valueOf(100_000);
 
+    /**
+     * Size of an address in bytes.
+     */
+    public static final int ADDRESS_SIZE = 20;
+
+    private static final char[] HEX_ALPHABET = "0123456789abcdef".toCharArray();
+    private static final String BASE32_ALPHABET = "0123456789ABCDEFGHJKLMNPQRSTUVXY";
+    private static final String COUNTRY_CODE = "NQ";
+
     private NimiqUtils() {
     }
 
@@ -32,4 +41,146 @@ public final class NimiqUtils {
     public static BigDecimal lunasToCoins(long lunas) {
         return BigDecimal.valueOf(lunas).divide(LUNAS_PER_COIN);
     }
+
+    /**
+     * Convert bytes to a lower case hex string.
+     *
+     * @param bytes Bytes to encode
+     * @return Hex-encoded bytes
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_ALPHABET[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_ALPHABET[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Convert a hex string to bytes.
+     *
+     * @param hex Hex-encoded bytes, in upper or lower case
+     * @return Decoded bytes
+     * @throws IllegalArgumentException if the string is not valid hex
+     */
+    public static byte[] fromHex(String hex) {
+        if ((hex.length() & 1) != 0) {
+            throw new IllegalArgumentException("Odd length hex string: " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex string: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Convert a 20 byte address to its user friendly form (NQ-address).
+     *
+     * @param address Address bytes
+     * @return User friendly address, e.g. "NQ07 0000 0000 0000 0000 0000 0000 0000 0000"
+     */
+    public static String toUserFriendlyAddress(byte[] address) {
+        if (address.length != ADDRESS_SIZE) {
+            throw new IllegalArgumentException("Invalid address length: " + address.length);
+        }
+        String base32 = toBase32(address);
+        int check = 98 - ibanCheck(base32 + COUNTRY_CODE + "00");
+        String plain = COUNTRY_CODE + (check < 10 ? "0" : "") + check + base32;
+        StringBuilder builder = new StringBuilder(plain.length() + plain.length() / 4);
+        for (int i = 0; i < plain.length(); i += 4) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(plain, i, i + 4);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Convert a user friendly address (NQ-address) to its 20 bytes.
+     *
+     * @param address User friendly address, with or without spaces
+     * @return Address bytes
+     * @throws IllegalArgumentException if the address is malformed or its
+     *                                  checksum doesn't match
+     */
+    public static byte[] fromUserFriendlyAddress(String address) {
+        String plain = address.replace(" ", "").toUpperCase();
+        if (plain.length() != 36 || !plain.startsWith(COUNTRY_CODE)) {
+            throw new IllegalArgumentException("Invalid address: " + address);
+        }
+        if (ibanCheck(plain.substring(4) + plain.substring(0, 4)) != 1) {
+            throw new IllegalArgumentException("Invalid address checksum: " + address);
+        }
+        return fromBase32(plain.substring(4), address);
+    }
+
+    /**
+     * Convert an address given in either the user friendly (NQ-address) or the
+     * hex-encoded form to its 20 bytes.
+     *
+     * @param address User friendly or hex-encoded address
+     * @return Address bytes
+     * @throws IllegalArgumentException if the address is malformed
+     */
+    public static byte[] parseAddress(String address) {
+        if (address.length() == ADDRESS_SIZE * 2) {
+            return fromHex(address);
+        }
+        return fromUserFriendlyAddress(address);
+    }
+
+    private static String toBase32(byte[] bytes) {
+        StringBuilder builder = new StringBuilder((bytes.length * 8 + 4) / 5);
+        int buffer = 0;
+        int bits = 0;
+        for (byte b : bytes) {
+            buffer = (buffer << 8) | (b & 0xff);
+            bits += 8;
+            while (bits >= 5) {
+                bits -= 5;
+                builder.append(BASE32_ALPHABET.charAt((buffer >> bits) & 0x1f));
+            }
+        }
+        if (bits > 0) {
+            builder.append(BASE32_ALPHABET.charAt((buffer << (5 - bits)) & 0x1f));
+        }
+        return builder.toString();
+    }
+
+    private static byte[] fromBase32(String base32, String address) {
+        byte[] bytes = new byte[base32.length() * 5 / 8];
+        int buffer = 0;
+        int bits = 0;
+        int index = 0;
+        for (int i = 0; i < base32.length(); i++) {
+            int value = BASE32_ALPHABET.indexOf(base32.charAt(i));
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid address: " + address);
+            }
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                bytes[index++] = (byte) (buffer >> bits);
+            }
+        }
+        return bytes;
+    }
+
+    private static int ibanCheck(String str) {
+        int remainder = 0;
+        for (int i = 0; i < str.length(); i++) {
+            int digit = Character.digit(str.charAt(i), 36);
+            remainder = digit < 10 ? (remainder * 10 + digit) % 97 : (remainder * 100 + digit) % 97;
+        }
+        return remainder;
+    }
 }
@@ -0,0 +1,255 @@
+package com.nimiq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans bulk payouts, such as pool rewards or exchange withdrawals, from a set
+ * of hot wallets.
+ * <p>
+ * The balances of the source wallets are requested once. Payouts are assigned
+ * from the largest amount down, each to the next wallet in turn that can still
+ * cover it, so the transactions are spread evenly across the wallets instead of
+ * queuing up behind a single sender. Each transaction pays the fee per byte
+ * estimated for the target number of blocks on top of its amount. The
+ * transactions of each wallet are split into batches of at most the batch size,
+ * ordered so that the first batch of every wallet comes before the second batch
+ * of any wallet. Payouts that no wallet can cover are left unpaid.
+ */
+public class PayoutPlanner {
+
+    /**
+     * Default maximum number of transactions per batch, which is the number of
+     * pending transactions a node accepts per sender.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Transactions of a single wallet to be submitted together.
+     */
+    public static class Batch {
+
+        private final String from;
+        private final List<OutgoingTransaction> transactions;
+        private final long value;
+        private final long fee;
+
+        Batch(String from, List<OutgoingTransaction> transactions) {
+            this.from = from;
+            this.transactions = Collections.unmodifiableList(transactions);
+            long value = 0;
+            long fee = 0;
+            for (OutgoingTransaction tx : transactions) {
+                value += tx.getValue();
+                fee += tx.getFee();
+            }
+            this.value = value;
+            this.fee = fee;
+        }
+
+        /**
+         * @return The address of the sending wallet.
+         */
+        public String getFrom() {
+            return from;
+        }
+
+        /**
+         * @return The unsigned transactions.
+         */
+        public List<OutgoingTransaction> getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * @return Total value of the transactions in Luna.
+         */
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * @return Total fee of the transactions in Luna.
+         */
+        public long getFee() {
+            return fee;
+        }
+    }
+
+    /**
+     * Result of planning payouts.
+     */
+    public static class Plan {
+
+        private final List<Batch> batches;
+        private final Map<String, Long> unpaid;
+        private final long value;
+        private final long fee;
+
+        Plan(List<Batch> batches, Map<String, Long> unpaid) {
+            this.batches = Collections.unmodifiableList(batches);
+            this.unpaid = Collections.unmodifiableMap(unpaid);
+            long value = 0;
+            long fee = 0;
+            for (Batch batch : batches) {
+                value += batch.getValue();
+                fee += batch.getFee();
+            }
+            this.value = value;
+            this.fee = fee;
+        }
+
+        /**
+         * @return The batches in submission order.
+         */
+        public List<Batch> getBatches() {
+            return batches;
+        }
+
+        /**
+         * @return Amounts in Luna by recipient that no wallet could cover.
+         */
+        public Map<String, Long> getUnpaid() {
+            return unpaid;
+        }
+
+        /**
+         * @return Total value of all planned transactions in Luna.
+         */
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * @return Total fee of all planned transactions in Luna.
+         */
+        public long getFee() {
+            return fee;
+        }
+    }
+
+    private final NimiqClient client;
+    private final FeeEstimator feeEstimator;
+    private final int batchSize;
+
+    /**
+     * Creates a planner with the default batch size.
+     *
+     * @param client       The client to request the balances with
+     * @param feeEstimator The estimator of the fee per byte
+     */
+    public PayoutPlanner(NimiqClient client, FeeEstimator feeEstimator) {
+        this(client, feeEstimator, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a planner.
+     *
+     * @param client       The client to request the balances with
+     * @param feeEstimator The estimator of the fee per byte
+     * @param batchSize    Maximum number of transactions per batch
+     */
+    public PayoutPlanner(NimiqClient client, FeeEstimator feeEstimator, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        this.client = client;
+        this.feeEstimator = feeEstimator;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Plans payouts.
+     *
+     * @param payouts      Amounts in Luna by recipient address
+     * @param sources      Addresses of the wallets to pay from
+     * @param targetBlocks Number of blocks within which the transactions should be
+     *                     mined
+     * @return The plan.
+     */
+    public Plan plan(Map<String, Long> payouts, List<String> sources, int targetBlocks) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No source wallets");
+        }
+        String[] recipients = new String[payouts.size()];
+        long[] amounts = new long[payouts.size()];
+        Integer[] order = new Integer[payouts.size()];
+        int count = 0;
+        for (Map.Entry<String, Long> payout : payouts.entrySet()) {
+            NimiqUtils.parseAddress(payout.getKey());
+            if (payout.getValue() <= 0) {
+                throw new IllegalArgumentException("Invalid amount for " + payout.getKey() + ": " + payout.getValue());
+            }
+            recipients[count] = payout.getKey();
+            amounts[count] = payout.getValue();
+            order[count] = count;
+            count++;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> amounts[i]).reversed());
+
+        long feePerByte = feeEstimator.feePerByteFor(targetBlocks);
+        int wallets = sources.size();
+        Account.Type[] types = new Account.Type[wallets];
+        long[] balances = new long[wallets];
+        long[] fees = new long[wallets];
+        List<List<OutgoingTransaction>> assigned = new ArrayList<>(wallets);
+        for (int w = 0; w < wallets; w++) {
+            Account account = client.getAccount(sources.get(w));
+            types[w] = account.getType() != null ? account.getType() : Account.Type.BASIC;
+            balances[w] = account.getBalance();
+            int size = types[w] == Account.Type.BASIC ? TransactionFormat.BASIC_SIZE
+                    : TransactionFormat.SIGNED_EXTENDED_SIZE;
+            fees[w] = feePerByte * size;
+            assigned.add(new ArrayList<>());
+        }
+
+        Map<String, Long> unpaid = new LinkedHashMap<>();
+        int next = 0;
+        for (Integer i : order) {
+            int w = next;
+            while (balances[w] < amounts[i] + fees[w]) {
+                w = (w + 1) % wallets;
+                if (w == next) {
+                    w = -1;
+                    break;
+                }
+            }
+            if (w < 0) {
+                unpaid.put(recipients[i], amounts[i]);
+                continue;
+            }
+            OutgoingTransaction tx = new OutgoingTransaction();
+            tx.setFrom(sources.get(w));
+            tx.setFromType(types[w]);
+            tx.setTo(recipients[i]);
+            tx.setToType(Account.Type.BASIC);
+            tx.setValue(amounts[i]);
+            tx.setFee(fees[w]);
+            assigned.get(w).add(tx);
+            balances[w] -= amounts[i] + fees[w];
+            next = (w + 1) % wallets;
+        }
+
+        List<Batch> batches = new ArrayList<>();
+        for (int start = 0;; start += batchSize) {
+            int added = 0;
+            for (int w = 0; w < wallets; w++) {
+                List<OutgoingTransaction> txs = assigned.get(w);
+                if (start < txs.size()) {
+                    batches.add(new Batch(sources.get(w),
+                            new ArrayList<>(txs.subList(start, Math.min(start + batchSize, txs.size())))));
+                    added++;
+                }
+            }
+            if (added == 0) {
+                break;
+            }
+        }
+        return new Plan(batches, unpaid);
+    }
+}
@@ -0,0 +1,75 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@link RpcMetrics} to Prometheus over HTTP at {@code GET /metrics}, in
+ * the text exposition format.
+ */
+public class PrometheusEndpoint implements Closeable {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final RpcMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+
+    /**
+     * Creates and starts an endpoint.
+     *
+     * @param metrics     The metrics to serve
+     * @param bindAddress The address to listen on
+     * @throws IOException if the server can't be bound
+     */
+    public PrometheusEndpoint(RpcMetrics metrics, InetSocketAddress bindAddress) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(bindAddress, 0);
+        this.handlers = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return The address the endpoint listens on.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.nimiq;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link MetricsRegistry} that keeps counters and a latency histogram
+ * per RPC method.
+ * <p>
+ * Recording is lock-free, so the registry can be shared by many threads. Call
+ * latencies are kept in log-linear buckets with a relative error of at most
+ * 1/32, so percentiles are accurate over the full range from microseconds to
+ * timeouts without any sampling. The metrics can be exported in the Prometheus
+ * text format with {@link #toPrometheus()}, or served with a
+ * {@link PrometheusEndpoint}.
+ */
+public class RpcMetrics implements MetricsRegistry {
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    /**
+     * Metrics of one RPC method.
+     */
+    public static class MethodMetrics {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder transportErrors = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final ConcurrentMap<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private MethodMetrics() {
+        }
+
+        /**
+         * @return Number of calls, including failed ones.
+         */
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        /**
+         * @return Number of calls answered with an error, by JSON-RPC error code.
+         */
+        public Map<Integer, Long> getErrors() {
+            Map<Integer, Long> result = new TreeMap<>();
+            errors.forEach((code, count) -> result.put(code, count.sum()));
+            return result;
+        }
+
+        /**
+         * @return Number of calls that failed without an answer.
+         */
+        public long getTransportErrors() {
+            return transportErrors.sum();
+        }
+
+        /**
+         * @return Total size of the JSON requests in bytes.
+         */
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        /**
+         * @return Total size of the JSON responses in bytes.
+         */
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        /**
+         * @return Total duration of the calls in nanoseconds.
+         */
+        public long getTotalLatency() {
+            return latency.getSum();
+        }
+
+        /**
+         * @return Longest duration of a call in nanoseconds.
+         */
+        public long getMaxLatency() {
+            return latency.getMax();
+        }
+
+        /**
+         * @param percentile The percentile, from 0 to 100
+         * @return Duration in nanoseconds that the given percentage of calls
+         *         didn't exceed, within 1/32 of it, or 0 if there were no calls.
+         */
+        public long getLatencyPercentile(double percentile) {
+            return latency.getPercentile(percentile);
+        }
+
+        private void record(long durationNanos, long request, long response) {
+            calls.increment();
+            requestBytes.add(request);
+            responseBytes.add(response);
+            latency.record(durationNanos);
+        }
+    }
+
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordSuccess(String method, long durationNanos, long requestBytes, long responseBytes) {
+        metrics(method).record(durationNanos, requestBytes, responseBytes);
+    }
+
+    @Override
+    public void recordError(String method, long durationNanos, long requestBytes, long responseBytes, int code) {
+        MethodMetrics metrics = metrics(method);
+        metrics.errors.computeIfAbsent(code, key -> new LongAdder()).increment();
+        metrics.record(durationNanos, requestBytes, responseBytes);
+    }
+
+    @Override
+    public void recordTransportError(String method, long durationNanos, long requestBytes) {
+        MethodMetrics metrics = metrics(method);
+        metrics.transportErrors.increment();
+        metrics.record(durationNanos, requestBytes, 0);
+    }
+
+    /**
+     * @return The metrics of all called methods, by method name.
+     */
+    public Map<String, MethodMetrics> getMethods() {
+        return Collections.unmodifiableMap(new TreeMap<>(methods));
+    }
+
+    /**
+     * @param method The RPC method
+     * @return The metrics of the method, or null if it wasn't called.
+     */
+    public MethodMetrics getMethod(String method) {
+        return methods.get(method);
+    }
+
+    /**
+     * Exports the metrics in the Prometheus text exposition format, with the
+     * method as label and the latency as a summary in seconds.
+     *
+     * @return The metrics.
+     */
+    public String toPrometheus() {
+        Map<String, MethodMetrics> snapshot = getMethods();
+        StringBuilder out = new StringBuilder();
+
+        header(out, "nimiq_rpc_calls_total", "counter", "Number of RPC calls.");
+        snapshot.forEach((method, metrics) -> sample(out, "nimiq_rpc_calls_total", method, null, metrics.getCalls()));
+
+        header(out, "nimiq_rpc_errors_total", "counter", "Number of RPC calls answered with an error.");
+        snapshot.forEach((method, metrics) -> metrics.getErrors().forEach(
+                (code, count) -> sample(out, "nimiq_rpc_errors_total", method, "code=\"" + code + "\"", count)));
+
+        header(out, "nimiq_rpc_transport_errors_total", "counter", "Number of RPC calls that failed without an answer.");
+        snapshot.forEach((method, metrics) -> sample(out, "nimiq_rpc_transport_errors_total", method, null,
+                metrics.getTransportErrors()));
+
+        header(out, "nimiq_rpc_request_bytes_total", "counter", "Size of the RPC requests in bytes.");
+        snapshot.forEach((method, metrics) -> sample(out, "nimiq_rpc_request_bytes_total", method, null,
+                metrics.getRequestBytes()));
+
+        header(out, "nimiq_rpc_response_bytes_total", "counter", "Size of the RPC responses in bytes.");
+        snapshot.forEach((method, metrics) -> sample(out, "nimiq_rpc_response_bytes_total", method, null,
+                metrics.getResponseBytes()));
+
+        header(out, "nimiq_rpc_latency_seconds", "summary", "Duration of the RPC calls in seconds.");
+        snapshot.forEach((method, metrics) -> {
+            for (double quantile : QUANTILES) {
+                sample(out, "nimiq_rpc_latency_seconds", method, "quantile=\"" + quantile + "\"",
+                        seconds(metrics.getLatencyPercentile(100 * quantile)));
+            }
+            sample(out, "nimiq_rpc_latency_seconds_sum", method, null, seconds(metrics.getTotalLatency()));
+            sample(out, "nimiq_rpc_latency_seconds_count", method, null, metrics.getCalls());
+        });
+        return out.toString();
+    }
+
+    private MethodMetrics metrics(String method) {
+        MethodMetrics metrics = methods.get(method);
+        return metrics != null ? metrics : methods.computeIfAbsent(method, key -> new MethodMetrics());
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String method, String label, Object value) {
+        out.append(name).append("{method=\"").append(escape(method)).append('"');
+        if (label != null) {
+            out.append(',').append(label);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
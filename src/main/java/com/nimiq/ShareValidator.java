@@ -0,0 +1,302 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Validates the shares of pool miners, which are block headers whose
+ * Argon2d hash meets a share target that is easier than the block target.
+ * <p>
+ * Headers are hashed on a fixed number of threads, each with its own Argon2d
+ * memory, allocated once. Submission blocks while the maximum number of shares
+ * is pending, so a flood of shares can't exhaust the memory. Duplicates are
+ * rejected before hashing by a 64 bit fingerprint of the header in a set of
+ * recent shares, which keeps between one and two times its capacity of the
+ * most recent fingerprints.
+ */
+public class ShareValidator implements Closeable {
+
+    /**
+     * Default number of recent shares remembered for duplicate detection.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+
+    /**
+     * Outcome of validating a share.
+     */
+    public enum Result {
+        /**
+         * The hash meets the share target.
+         */
+        SHARE,
+        /**
+         * The hash meets the block target, so the header is a block.
+         */
+        BLOCK,
+        /**
+         * The hash doesn't meet the share target.
+         */
+        INSUFFICIENT,
+        /**
+         * The header was already validated recently.
+         */
+        DUPLICATE,
+        /**
+         * The header has an invalid size.
+         */
+        MALFORMED
+    }
+
+    /**
+     * Set of 64 bit fingerprints in two generations of open addressing tables.
+     * When the current generation reaches the capacity, it replaces the previous
+     * one.
+     */
+    private static class RecentSet {
+
+        private final int capacity;
+        private long[] current;
+        private long[] previous;
+        private int size;
+
+        RecentSet(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+            this.capacity = capacity;
+            this.current = new long[tableSize];
+            this.previous = new long[tableSize];
+        }
+
+        /**
+         * @return Whether the fingerprint was added, or false if it is present.
+         */
+        synchronized boolean add(long fingerprint) {
+            if (contains(previous, fingerprint) || contains(current, fingerprint)) {
+                return false;
+            }
+            if (size == capacity) {
+                long[] cleared = previous;
+                Arrays.fill(cleared, 0);
+                previous = current;
+                current = cleared;
+                size = 0;
+            }
+            int mask = current.length - 1;
+            int slot = (int) mix(fingerprint) & mask;
+            while (current[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            current[slot] = fingerprint;
+            size++;
+            return true;
+        }
+
+        private static boolean contains(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            for (int slot = (int) mix(fingerprint) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                if (table[slot] == fingerprint) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            return value ^ (value >>> 33);
+        }
+    }
+
+    /**
+     * Validation of a queued share.
+     */
+    private class Task implements Runnable {
+
+        private final byte[] header;
+        private final int shareTarget;
+        private final int blockTarget;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+
+        Task(byte[] header, int shareTarget, int blockTarget) {
+            this.header = header;
+            this.shareTarget = shareTarget;
+            this.blockTarget = blockTarget;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(check(header, shareTarget, blockTarget));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                space.release();
+            }
+        }
+
+        /**
+         * Fails a share that was dropped from the queue.
+         */
+        void cancel() {
+            future.completeExceptionally(new IllegalStateException("The validator is closed"));
+            space.release();
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore space;
+    private final RecentSet recent;
+    private final ThreadLocal<Argon2d> argon2d = ThreadLocal.withInitial(Argon2d::new);
+    private final ThreadLocal<Blake2b> blake2b = ThreadLocal.withInitial(Blake2b::new);
+    private final AtomicLong shares = new AtomicLong();
+    private final AtomicLong blocks = new AtomicLong();
+    private final AtomicLong insufficient = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    /**
+     * Creates a validator that uses all cores.
+     */
+    public ShareValidator() {
+        this(Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors(),
+                DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a validator.
+     *
+     * @param threads    Number of hashing threads
+     * @param maxPending Number of shares that may wait for validation
+     * @param capacity   Number of recent shares remembered at least for duplicate
+     *                   detection
+     */
+    public ShareValidator(int threads, int maxPending, int capacity) {
+        if (threads < 1 || maxPending < threads || capacity < 1) {
+            throw new IllegalArgumentException("Invalid validator configuration");
+        }
+        this.space = new Semaphore(maxPending);
+        this.recent = new RecentSet(capacity);
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-share-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Validates a share of work from {@link NimiqClient#getWork(String, String)}.
+     *
+     * @param work        The work, whose target is the block target
+     * @param nonce       The nonce found by the miner
+     * @param shareTarget Compact form of the share target
+     * @return A future completed with the result.
+     * @throws InterruptedException if the calling thread was interrupted while
+     *                              waiting for space
+     */
+    public CompletableFuture<Result> validate(Work work, int nonce, int shareTarget) throws InterruptedException {
+        byte[] header = NimiqUtils.fromHex(work.getData());
+        if (header.length == BlockAssembler.HEADER_SIZE) {
+            for (int i = 0; i < 4; i++) {
+                header[header.length - 4 + i] = (byte) (nonce >>> (24 - 8 * i));
+            }
+        }
+        return validate(header, shareTarget, work.getTarget());
+    }
+
+    /**
+     * Validates a share, such as a header from
+     * {@link BlockAssembler#header(String, int, int)}.
+     *
+     * @param header      The serialized header including the nonce
+     * @param shareTarget Compact form of the share target
+     * @param blockTarget Compact form of the block target
+     * @return A future completed with the result.
+     * @throws InterruptedException if the calling thread was interrupted while
+     *                              waiting for space
+     */
+    public CompletableFuture<Result> validate(byte[] header, int shareTarget, int blockTarget)
+            throws InterruptedException {
+        if (header.length != BlockAssembler.HEADER_SIZE) {
+            return CompletableFuture.completedFuture(Result.MALFORMED);
+        }
+        Task task = new Task(header.clone(), shareTarget, blockTarget);
+        space.acquire();
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            space.release();
+            throw new IllegalStateException("The validator is closed", e);
+        }
+        return task.future;
+    }
+
+    /**
+     * @return Number of valid shares, including blocks.
+     */
+    public long getShares() {
+        return shares.get();
+    }
+
+    /**
+     * @return Number of shares that were blocks.
+     */
+    public long getBlocks() {
+        return blocks.get();
+    }
+
+    /**
+     * @return Number of shares that didn't meet the share target.
+     */
+    public long getInsufficient() {
+        return insufficient.get();
+    }
+
+    /**
+     * @return Number of duplicate shares.
+     */
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * Stops the validation. Shares that are still queued fail with an
+     * {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        for (Runnable task : executor.shutdownNow()) {
+            ((Task) task).cancel();
+        }
+    }
+
+    private Result check(byte[] header, int shareTarget, int blockTarget) {
+        byte[] fingerprint = new byte[8];
+        blake2b.get().digest(header, 0, header.length, fingerprint, 0, fingerprint.length);
+        long key = 0;
+        for (byte b : fingerprint) {
+            key = (key << 8) | (b & 0xff);
+        }
+        if (!recent.add(key != 0 ? key : 1)) {
+            duplicates.incrementAndGet();
+            return Result.DUPLICATE;
+        }
+
+        byte[] hash = argon2d.get().hash(header, 0, header.length);
+        if (Miner.meetsTarget(hash, Miner.compactToTarget(blockTarget))) {
+            shares.incrementAndGet();
+            blocks.incrementAndGet();
+            return Result.BLOCK;
+        }
+        if (Miner.meetsTarget(hash, Miner.compactToTarget(shareTarget))) {
+            shares.incrementAndGet();
+            return Result.SHARE;
+        }
+        insufficient.incrementAndGet();
+        return Result.INSUFFICIENT;
+    }
+}
@@ -26,6 +26,7 @@ public class Transaction {
     private long fee;
     private String data;
     private int flags;
+    private int validityStartHeight;
 
     private boolean valid = true;
     private boolean inMempool;
@@ -191,6 +192,19 @@ public class Transaction {
         this.flags = flags;
     }
 
+    /**
+     * @return Height from which on the transaction is valid. <b>Note:</b> This
+     *         field is only set on transactions decoded by
+     *         {@link TransactionDecoder}
+     */
+    public int getValidityStartHeight() {
+        return validityStartHeight;
+    }
+
+    public void setValidityStartHeight(int validityStartHeight) {
+        this.validityStartHeight = validityStartHeight;
+    }
+
     /**
      * @return Whether this transaction has been successfully verified and found
      *         valid. <b>Note:</b> This field only makes sense when the Transaction
@@ -223,6 +237,7 @@ public class Transaction {
         return "Transaction [blockHash=" + blockHash + ", blockNumber=" + blockNumber + ", confirmations="
                 + confirmations + ", data=" + data + ", fee=" + fee + ", flags=" + flags + ", from=" + from
                 + ", fromAddress=" + fromAddress + ", hash=" + hash + ", timestamp=" + timestamp + ", to=" + to
-                + ", toAddress=" + toAddress + ", transactionIndex=" + transactionIndex + ", value=" + value + "]";
+                + ", toAddress=" + toAddress + ", transactionIndex=" + transactionIndex + ", validityStartHeight="
+                + validityStartHeight + ", value=" + value + "]";
     }
 }
@@ -0,0 +1,166 @@
+package com.nimiq;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes serialized transactions locally, instead of with a
+ * {@link NimiqClient#getRawTransactionInfo(String)} round trip.
+ * <p>
+ * Decoded transactions have their hash, sender, recipient, value, fee, validity
+ * start height, flags and data set. The validity only reflects the signature
+ * proof, if requested; whether the transaction can be applied to the accounts
+ * is only known by a node. Transactions are read from a {@link ByteBuffer}
+ * without copying them first, so a buffer of stored transactions, such as a
+ * memory-mapped file, can be decoded one after another.
+ */
+public final class TransactionDecoder {
+
+    private static final int SIGNATURE_PROOF_SIZE = TransactionFormat.PUBLIC_KEY_SIZE + 1
+            + TransactionFormat.SIGNATURE_SIZE;
+
+    private TransactionDecoder() {
+    }
+
+    /**
+     * Decodes a transaction and verifies its signature.
+     *
+     * @param txHex The hex encoded signed transaction
+     * @return The transaction.
+     */
+    public static Transaction decode(String txHex) {
+        ByteBuffer buffer = ByteBuffer.wrap(NimiqUtils.fromHex(txHex));
+        Transaction tx = decode(buffer, true);
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after transaction");
+        }
+        return tx;
+    }
+
+    /**
+     * Decodes a transaction at the position of a buffer and advances the position
+     * past it.
+     *
+     * @param buffer The buffer
+     * @param verify If true, the validity of the transaction is set according to
+     *               the signature proof, otherwise it isn't checked
+     * @return The transaction.
+     */
+    public static Transaction decode(ByteBuffer buffer, boolean verify) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int start = in.position();
+        Transaction tx = new Transaction();
+        byte type = in.get();
+        if (type == TransactionFormat.BASIC) {
+            ensure(in, TransactionFormat.BASIC_SIZE - 1);
+            int publicKey = in.position();
+            ((Buffer) in).position(publicKey + TransactionFormat.PUBLIC_KEY_SIZE);
+            byte[] sender = new byte[NimiqUtils.ADDRESS_SIZE];
+            System.arraycopy(Blake2b.hash(in, publicKey, TransactionFormat.PUBLIC_KEY_SIZE), 0, sender, 0,
+                    sender.length);
+            setFrom(tx, sender);
+            byte[] recipient = address(in);
+            setTo(tx, recipient);
+            tx.setValue(in.getLong());
+            tx.setFee(in.getLong());
+            tx.setValidityStartHeight(in.getInt());
+            byte networkId = in.get();
+
+            ByteBuffer content = ByteBuffer.allocate(TransactionFormat.CONTENT_SIZE);
+            content.putShort((short) 0).put(sender).put((byte) 0);
+            content.put(recipient).put((byte) 0);
+            content.putLong(tx.getValue()).putLong(tx.getFee()).putInt(tx.getValidityStartHeight());
+            content.put(networkId).put((byte) 0);
+            tx.setHash(NimiqUtils.toHex(Blake2b.hash(content.array())));
+            if (verify) {
+                tx.setValid(verify(in, in.position(), publicKey, content.array()));
+            }
+            ((Buffer) in).position(in.position() + TransactionFormat.SIGNATURE_SIZE);
+        } else if (type == TransactionFormat.EXTENDED) {
+            int contentStart = in.position();
+            ensure(in, 2);
+            int dataSize = in.getShort() & 0xffff;
+            ensure(in, dataSize + TransactionFormat.CONTENT_SIZE - 2 + 2);
+            if (dataSize > 0) {
+                byte[] data = new byte[dataSize];
+                in.get(data);
+                tx.setData(NimiqUtils.toHex(data));
+            }
+            byte[] sender = address(in);
+            setFrom(tx, sender);
+            byte senderType = in.get();
+            setTo(tx, address(in));
+            in.get(); // Recipient type
+            tx.setValue(in.getLong());
+            tx.setFee(in.getLong());
+            tx.setValidityStartHeight(in.getInt());
+            in.get(); // Network id
+            tx.setFlags(in.get() & 0xff);
+            int contentSize = in.position() - contentStart;
+            tx.setHash(NimiqUtils.toHex(Blake2b.hash(in, contentStart, contentSize)));
+
+            int proofSize = in.getShort() & 0xffff;
+            ensure(in, proofSize);
+            int proof = in.position();
+            if (verify) {
+                // Only plain signature proofs of basic accounts and vesting owners
+                boolean valid = proofSize == SIGNATURE_PROOF_SIZE && senderType != Account.Type.HTLC.toValue()
+                        && in.get(proof + TransactionFormat.PUBLIC_KEY_SIZE) == 0;
+                if (valid && senderType == Account.Type.BASIC.toValue()) {
+                    byte[] signer = Blake2b.hash(in, proof, TransactionFormat.PUBLIC_KEY_SIZE);
+                    for (int i = 0; i < sender.length; i++) {
+                        valid &= signer[i] == sender[i];
+                    }
+                }
+                if (valid) {
+                    byte[] content = new byte[contentSize];
+                    ByteBuffer slice = in.duplicate();
+                    ((Buffer) slice).position(contentStart);
+                    slice.get(content);
+                    valid = verify(in, proof + TransactionFormat.PUBLIC_KEY_SIZE + 1, proof, content);
+                }
+                tx.setValid(valid);
+            }
+            ((Buffer) in).position(proof + proofSize);
+        } else {
+            throw new IllegalArgumentException("Unknown transaction format " + type + " at offset " + start);
+        }
+        ((Buffer) buffer).position(in.position());
+        return tx;
+    }
+
+    private static void ensure(ByteBuffer in, int size) {
+        if (in.remaining() < size) {
+            throw new IllegalArgumentException("Truncated transaction");
+        }
+    }
+
+    private static byte[] address(ByteBuffer in) {
+        byte[] address = new byte[NimiqUtils.ADDRESS_SIZE];
+        in.get(address);
+        return address;
+    }
+
+    private static void setFrom(Transaction tx, byte[] address) {
+        tx.setFrom(NimiqUtils.toHex(address));
+        tx.setFromAddress(NimiqUtils.toUserFriendlyAddress(address));
+    }
+
+    private static void setTo(Transaction tx, byte[] address) {
+        tx.setTo(NimiqUtils.toHex(address));
+        tx.setToAddress(NimiqUtils.toUserFriendlyAddress(address));
+    }
+
+    private static boolean verify(ByteBuffer in, int signatureOffset, int publicKeyOffset, byte[] content) {
+        byte[] signature = new byte[TransactionFormat.SIGNATURE_SIZE];
+        byte[] publicKey = new byte[TransactionFormat.PUBLIC_KEY_SIZE];
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = in.get(signatureOffset + i);
+        }
+        for (int i = 0; i < publicKey.length; i++) {
+            publicKey[i] = in.get(publicKeyOffset + i);
+        }
+        return Ed25519.verify(signature, content, publicKey);
+    }
+}
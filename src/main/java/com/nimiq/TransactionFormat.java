@@ -0,0 +1,176 @@
+package com.nimiq;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary serialization of Nimiq transactions.
+ * <p>
+ * A basic transaction is a transfer between basic accounts without data and
+ * flags: type 0, sender public key, recipient address, value, fee, validity
+ * start height, network id and signature. All other transactions use the
+ * extended format: type 1, the transaction content, and the proof. The content
+ * is data length and data, sender address and type, recipient address and type,
+ * value, fee, validity start height, network id and flags. The hash of a
+ * transaction is the BLAKE2b hash of its content.
+ */
+final class TransactionFormat {
+
+    static final byte BASIC = 0;
+    static final byte EXTENDED = 1;
+
+    static final int PUBLIC_KEY_SIZE = 32;
+    static final int SIGNATURE_SIZE = 64;
+    static final int BASIC_SIZE = 1 + PUBLIC_KEY_SIZE + NimiqUtils.ADDRESS_SIZE + 8 + 8 + 4 + 1 + SIGNATURE_SIZE;
+
+    /**
+     * Size of the content without the data.
+     */
+    static final int CONTENT_SIZE = 2 + NimiqUtils.ADDRESS_SIZE + 1 + NimiqUtils.ADDRESS_SIZE + 1 + 8 + 8 + 4 + 1
+            + 1;
+
+    /**
+     * Size of an extended transaction with a signature proof, without data.
+     */
+    static final int SIGNED_EXTENDED_SIZE = 1 + CONTENT_SIZE + 2 + PUBLIC_KEY_SIZE + 1 + SIGNATURE_SIZE;
+
+    private TransactionFormat() {
+    }
+
+    /**
+     * Computes the hash of a serialized transaction.
+     *
+     * @param tx The serialized transaction
+     * @return The 32 byte hash.
+     */
+    static byte[] hash(byte[] tx) {
+        if (tx.length > 0 && tx[0] == BASIC) {
+            if (tx.length != BASIC_SIZE) {
+                throw new IllegalArgumentException("Invalid basic transaction size: " + tx.length);
+            }
+            ByteBuffer in = ByteBuffer.wrap(tx, 1, BASIC_SIZE - 1);
+            byte[] publicKey = new byte[PUBLIC_KEY_SIZE];
+            in.get(publicKey);
+            ByteBuffer content = ByteBuffer.allocate(CONTENT_SIZE);
+            content.putShort((short) 0);
+            content.put(Blake2b.hash(publicKey), 0, NimiqUtils.ADDRESS_SIZE);
+            content.put((byte) 0);
+            content.put(tx, 1 + PUBLIC_KEY_SIZE, NimiqUtils.ADDRESS_SIZE);
+            content.put((byte) 0);
+            // Value, fee, validity start height and network id
+            content.put(tx, 1 + PUBLIC_KEY_SIZE + NimiqUtils.ADDRESS_SIZE, 8 + 8 + 4 + 1);
+            content.put((byte) 0);
+            return Blake2b.hash(content.array());
+        }
+        if (tx.length > 2 && tx[0] == EXTENDED) {
+            int size = CONTENT_SIZE + (((tx[1] & 0xff) << 8) | (tx[2] & 0xff));
+            if (tx.length < 1 + size + 2) {
+                throw new IllegalArgumentException("Truncated extended transaction");
+            }
+            return Blake2b.hash(tx, 1, size);
+        }
+        throw new IllegalArgumentException("Unknown transaction format");
+    }
+
+    /**
+     * Reads the validity start height of a serialized transaction.
+     *
+     * @param tx The serialized transaction
+     * @return The validity start height.
+     */
+    static int validityStartHeight(byte[] tx) {
+        int offset;
+        if (tx.length == BASIC_SIZE && tx[0] == BASIC) {
+            offset = 1 + PUBLIC_KEY_SIZE + NimiqUtils.ADDRESS_SIZE + 8 + 8;
+        } else if (tx.length > 2 && tx[0] == EXTENDED) {
+            int dataSize = ((tx[1] & 0xff) << 8) | (tx[2] & 0xff);
+            offset = 1 + 2 + dataSize + NimiqUtils.ADDRESS_SIZE + 1 + NimiqUtils.ADDRESS_SIZE + 1 + 8 + 8;
+            if (tx.length < offset + 4) {
+                throw new IllegalArgumentException("Truncated extended transaction");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown transaction format");
+        }
+        return ByteBuffer.wrap(tx).getInt(offset);
+    }
+
+    /**
+     * Serializes the content of a transaction, which is signed and hashed.
+     *
+     * @param tx                  The transaction
+     * @param sender              The sender address
+     * @param validityStartHeight The validity start height
+     * @param networkId           The network id
+     * @return The serialized content.
+     */
+    static byte[] content(OutgoingTransaction tx, byte[] sender, int validityStartHeight, int networkId) {
+        byte[] data = tx.getData() != null ? NimiqUtils.fromHex(tx.getData()) : new byte[0];
+        if (data.length > 0xffff) {
+            throw new IllegalArgumentException("Transaction data too large: " + data.length);
+        }
+        ByteBuffer content = ByteBuffer.allocate(CONTENT_SIZE + data.length);
+        content.putShort((short) data.length);
+        content.put(data);
+        content.put(sender);
+        content.put(typeOf(tx.getFromType()));
+        content.put(NimiqUtils.parseAddress(tx.getTo()));
+        content.put(typeOf(tx.getToType()));
+        content.putLong(tx.getValue());
+        content.putLong(tx.getFee());
+        content.putInt(validityStartHeight);
+        content.put((byte) networkId);
+        content.put((byte) tx.getFlags());
+        return content.array();
+    }
+
+    /**
+     * @return Whether the transaction can be serialized in the basic format.
+     */
+    static boolean isBasic(OutgoingTransaction tx) {
+        return typeOf(tx.getFromType()) == 0 && typeOf(tx.getToType()) == 0
+                && (tx.getData() == null || tx.getData().isEmpty()) && tx.getFlags() == 0;
+    }
+
+    /**
+     * Serializes a basic transaction.
+     *
+     * @param content   The content of the transaction, without data
+     * @param publicKey The public key of the sender
+     * @param signature The signature of the content
+     * @return The serialized transaction.
+     */
+    static byte[] basic(byte[] content, byte[] publicKey, byte[] signature) {
+        ByteBuffer tx = ByteBuffer.allocate(BASIC_SIZE);
+        tx.put(BASIC);
+        tx.put(publicKey);
+        tx.put(content, 2 + NimiqUtils.ADDRESS_SIZE + 1, NimiqUtils.ADDRESS_SIZE);
+        // Value, fee, validity start height and network id
+        tx.put(content, 2 + NimiqUtils.ADDRESS_SIZE + 1 + NimiqUtils.ADDRESS_SIZE + 1, 8 + 8 + 4 + 1);
+        tx.put(signature);
+        return tx.array();
+    }
+
+    /**
+     * Serializes an extended transaction with a signature proof.
+     *
+     * @param content   The content of the transaction
+     * @param publicKey The public key of the signer
+     * @param signature The signature of the content
+     * @return The serialized transaction.
+     */
+    static byte[] extended(byte[] content, byte[] publicKey, byte[] signature) {
+        // Signature proof: public key, empty merkle path, signature
+        int proofSize = PUBLIC_KEY_SIZE + 1 + SIGNATURE_SIZE;
+        ByteBuffer tx = ByteBuffer.allocate(1 + content.length + 2 + proofSize);
+        tx.put(EXTENDED);
+        tx.put(content);
+        tx.putShort((short) proofSize);
+        tx.put(publicKey);
+        tx.put((byte) 0);
+        tx.put(signature);
+        return tx.array();
+    }
+
+    private static byte typeOf(Account.Type type) {
+        return type != null ? (byte) type.toValue() : 0;
+    }
+}
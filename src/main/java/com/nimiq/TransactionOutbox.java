@@ -0,0 +1,394 @@
+package com.nimiq;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable outbox for payments, which makes sure that each payment is signed
+ * and sent once, even if the application crashes in between.
+ * <p>
+ * Every payment has an id chosen by the application. A payment is signed only
+ * if its id is not in the outbox yet, and the signed transaction is written to
+ * an append-only journal before it is submitted. Journal writes of concurrent
+ * payments are grouped, so a single fsync makes a whole group durable. When a
+ * transaction is confirmed or finally fails, this is journaled as well. When
+ * the outbox is opened, the journal is replayed: payments that were neither
+ * confirmed nor failed are tracked again, which looks up their receipts. Those
+ * mined in the meantime are confirmed from their block, the others are
+ * submitted again. Resubmission is safe as the node accepts transactions it
+ * already knows.
+ * <p>
+ * The outbox waits for confirmations with a {@link ConfirmationTracker}, which
+ * must be fed with blocks by the application.
+ */
+public class TransactionOutbox implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionOutbox.class);
+
+    private static final byte CREATED = 1;
+    private static final byte CONFIRMED = 2;
+    private static final byte FAILED = 3;
+
+    // Record frame: payload length and CRC32 of the payload
+    private static final int FRAME_SIZE = 8;
+
+    private static class Entry {
+
+        final String paymentId;
+        final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        String hash;
+        String txHex;
+
+        Entry(String paymentId) {
+            this.paymentId = paymentId;
+        }
+    }
+
+    private static class Record {
+
+        final byte[] payload;
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        Record(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+
+    // Stops the writer, interrupting it would close the channel
+    private static final Record STOP = new Record(new byte[0]);
+
+    private final TransactionSubmitter submitter;
+    private final ConfirmationTracker tracker;
+    private final FileChannel channel;
+    private final Map<String, Entry> payments = new HashMap<>();
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Opens an outbox and resumes the payments that were pending when it was last
+     * closed.
+     *
+     * @param journal   The journal file, created if it doesn't exist
+     * @param submitter The submitter to send the transactions with
+     * @param tracker   The tracker to wait for confirmations with
+     * @throws IOException if the journal can't be read
+     */
+    public TransactionOutbox(Path journal, TransactionSubmitter submitter, ConfirmationTracker tracker)
+            throws IOException {
+        this.submitter = submitter;
+        this.tracker = tracker;
+        channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        replay();
+        writer = new Thread(this::write, "nimiq-transaction-outbox");
+        writer.setDaemon(true);
+        writer.start();
+        for (Entry entry : payments.values()) {
+            if (entry.txHex != null) {
+                dispatch(entry, true);
+            }
+        }
+    }
+
+    /**
+     * Sends a payment unless it is in the outbox already.
+     *
+     * @param paymentId The id of the payment, unique within the outbox
+     * @param signer    Creates the signed transaction hex of the payment, it is
+     *                  only called if the payment is not in the outbox yet
+     * @return A future completed with the receipt once the transaction has enough
+     *         confirmations.
+     * @throws IOException          if the journal can't be written
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    public CompletableFuture<TransactionReceipt> send(String paymentId, Supplier<String> signer)
+            throws IOException, InterruptedException {
+        Entry entry;
+        synchronized (payments) {
+            if (closed) {
+                throw new IllegalStateException("The outbox is closed");
+            }
+            entry = payments.get(paymentId);
+            if (entry != null) {
+                return entry.future;
+            }
+            // Reserve the id, concurrent calls get the same future
+            entry = new Entry(paymentId);
+            payments.put(paymentId, entry);
+        }
+        try {
+            String txHex = signer.get();
+            String hash = NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(txHex)));
+            append(encode(CREATED, paymentId, hash, txHex, null)).get();
+            entry.hash = hash;
+            entry.txHex = txHex;
+        } catch (ExecutionException e) {
+            release(entry, e.getCause());
+            throw (IOException) e.getCause();
+        } catch (InterruptedException | RuntimeException e) {
+            release(entry, e);
+            throw e;
+        }
+        dispatch(entry, false);
+        return entry.future;
+    }
+
+    /**
+     * @return Number of payments that were neither confirmed nor failed yet.
+     */
+    public int getPending() {
+        synchronized (payments) {
+            int pending = 0;
+            for (Entry entry : payments.values()) {
+                if (!entry.future.isDone()) {
+                    pending++;
+                }
+            }
+            return pending;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void release(Entry entry, Throwable cause) {
+        synchronized (payments) {
+            payments.remove(entry.paymentId);
+        }
+        entry.future.completeExceptionally(cause);
+    }
+
+    private void dispatch(Entry entry, boolean replayed) {
+        String hash = entry.hash;
+        String paymentId = entry.paymentId;
+        CompletableFuture<TransactionReceipt> tracked;
+        try {
+            tracked = tracker.track(hash, TransactionFormat.validityStartHeight(NimiqUtils.fromHex(entry.txHex)));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Looking up transaction {} failed, it is tracked again on restart", hash, e);
+            return;
+        }
+        tracked.whenComplete((receipt, e) -> {
+            if (closed) {
+                return;
+            }
+            if (e == null) {
+                finish(paymentId, entry, encode(CONFIRMED, paymentId, hash, null, receipt), receipt, null);
+            } else {
+                finish(paymentId, entry, encode(FAILED, paymentId, hash, null, null), null, e);
+            }
+        });
+        // Mined while the outbox was closed, the tracker confirms it from its block
+        if (replayed && (tracked.isDone() || tracker.isMined(hash))) {
+            return;
+        }
+        try {
+            submitter.submit(entry.txHex).whenComplete((result, e) -> {
+                // Only rejections by the node are final, the tracker handles the rest
+                if (TransactionSubmitter.isRejected(e) && !closed) {
+                    finish(paymentId, entry, encode(FAILED, paymentId, hash, null, null), null, e);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while submitting transaction {}, it is resubmitted on restart", hash);
+        }
+    }
+
+    private void finish(String paymentId, Entry entry, byte[] record, TransactionReceipt receipt, Throwable cause) {
+        synchronized (entry) {
+            if (entry.txHex == null) {
+                return;
+            }
+            entry.txHex = null;
+        }
+        append(record).whenComplete((result, e) -> {
+            if (e != null) {
+                LOGGER.warn("Journaling the outcome of payment {} failed", paymentId, e);
+            }
+            if (cause != null) {
+                entry.future.completeExceptionally(cause);
+            } else {
+                entry.future.complete(receipt);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> append(byte[] payload) {
+        Record record = new Record(payload);
+        if (closed) {
+            record.written.completeExceptionally(new IOException("The outbox is closed"));
+        } else {
+            queue.add(record);
+        }
+        return record.written;
+    }
+
+    /**
+     * Writes queued records in groups, with one fsync per group.
+     */
+    private void write() {
+        List<Record> group = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        CRC32 crc = new CRC32();
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(group);
+            stopped = group.remove(STOP);
+            int size = 0;
+            for (Record record : group) {
+                size += FRAME_SIZE + record.payload.length;
+            }
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size);
+            }
+            ((Buffer) buffer).clear();
+            for (Record record : group) {
+                crc.reset();
+                crc.update(record.payload, 0, record.payload.length);
+                buffer.putInt(record.payload.length).putInt((int) crc.getValue()).put(record.payload);
+            }
+            ((Buffer) buffer).flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                group.forEach(record -> record.written.complete(null));
+            } catch (IOException e) {
+                group.forEach(record -> record.written.completeExceptionally(e));
+            }
+            group.clear();
+        }
+        IOException error = new IOException("The outbox is closed");
+        queue.forEach(record -> record.written.completeExceptionally(error));
+    }
+
+    /**
+     * Rebuilds the payments from the journal, cutting off a torn record at the
+     * end.
+     */
+    private void replay() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        CRC32 crc = new CRC32();
+        long position = 0;
+        long size = channel.size();
+        while (position + FRAME_SIZE <= size) {
+            ((Buffer) frame).clear();
+            channel.read(frame, position);
+            int length = frame.getInt(0);
+            if (length < 0 || position + FRAME_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining()) {
+                channel.read(payload, position + FRAME_SIZE + payload.position());
+            }
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != frame.getInt(4)) {
+                break;
+            }
+            decode(payload.array());
+            position += FRAME_SIZE + length;
+        }
+        if (position < size) {
+            LOGGER.warn("Discarding {} bytes of an incomplete journal record", size - position);
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    private static byte[] encode(byte type, String paymentId, String hash, String txHex, TransactionReceipt receipt) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeUTF(paymentId);
+            out.writeUTF(hash);
+            if (type == CREATED) {
+                byte[] tx = NimiqUtils.fromHex(txHex);
+                out.writeShort(tx.length);
+                out.write(tx);
+            } else if (type == CONFIRMED) {
+                out.writeUTF(receipt.getBlockHash());
+                out.writeInt(receipt.getBlockNumber());
+                out.writeInt(receipt.getTransactionIndex());
+                out.writeInt(receipt.getTimestamp());
+                out.writeInt(receipt.getConfirmations());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String paymentId = in.readUTF();
+        String hash = in.readUTF();
+        Entry entry = payments.get(paymentId);
+        if (type == CREATED) {
+            byte[] tx = new byte[in.readUnsignedShort()];
+            in.readFully(tx);
+            entry = new Entry(paymentId);
+            entry.hash = hash;
+            entry.txHex = NimiqUtils.toHex(tx);
+            payments.put(paymentId, entry);
+        } else if (entry == null) {
+            throw new IOException("Journal record for unknown payment " + paymentId);
+        } else if (type == CONFIRMED) {
+            TransactionReceipt receipt = new TransactionReceipt();
+            receipt.setTransactionHash(hash);
+            receipt.setBlockHash(in.readUTF());
+            receipt.setBlockNumber(in.readInt());
+            receipt.setTransactionIndex(in.readInt());
+            receipt.setTimestamp(in.readInt());
+            receipt.setConfirmations(in.readInt());
+            entry.txHex = null;
+            entry.future.complete(receipt);
+        } else {
+            entry.txHex = null;
+            entry.future.completeExceptionally(new IllegalStateException("Payment " + paymentId + " failed"));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.nimiq;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Signs transactions locally, so neither the keys need to be held by the node
+ * nor a {@link NimiqClient#createRawTransaction(OutgoingTransaction)} round
+ * trip is needed per transaction. The result can be sent with
+ * {@link NimiqClient#sendRawTransaction(String)}.
+ * <p>
+ * Transfers between basic accounts without data and flags are serialized in
+ * the basic format, all other transactions in the extended format with a
+ * signature proof. Transactions from vesting contracts are signed by the owner,
+ * transactions from HTLCs are not supported. A signer is immutable and can be
+ * used by multiple threads at once.
+ */
+public class TransactionSigner {
+
+    /**
+     * Network id of the main network.
+     */
+    public static final int MAIN_NET = 42;
+
+    /**
+     * Network id of the test network.
+     */
+    public static final int TEST_NET = 1;
+
+    /**
+     * Network id of the development network.
+     */
+    public static final int DEV_NET = 2;
+
+    private final byte[] privateKey;
+    private final byte[] publicKey;
+    private final byte[] address;
+    private final int networkId;
+
+    /**
+     * Creates a signer.
+     *
+     * @param privateKey Hex-encoded 32 byte Ed25519 private key
+     * @param networkId  Id of the network the transactions are for
+     */
+    public TransactionSigner(String privateKey, int networkId) {
+        this.privateKey = NimiqUtils.fromHex(privateKey);
+        this.publicKey = Ed25519.publicKey(this.privateKey);
+        this.address = addressOf(publicKey);
+        this.networkId = networkId;
+    }
+
+    /**
+     * @return Hex-encoded 32 byte Ed25519 public key.
+     */
+    public String getPublicKey() {
+        return NimiqUtils.toHex(publicKey);
+    }
+
+    /**
+     * @return User friendly address (NQ-address) of the key.
+     */
+    public String getAddress() {
+        return NimiqUtils.toUserFriendlyAddress(address);
+    }
+
+    /**
+     * Signs a transaction. The sender must be the address of the key, or a vesting
+     * contract owned by it.
+     *
+     * @param tx                  The transaction
+     * @param validityStartHeight The height from which on the transaction is
+     *                            valid, usually the current block number
+     * @return The hex encoded signed transaction.
+     */
+    public String sign(OutgoingTransaction tx, int validityStartHeight) {
+        byte[] sender = address;
+        if (tx.getFromType() == Account.Type.HTLC) {
+            throw new IllegalArgumentException("Transactions from HTLCs are not supported");
+        } else if (tx.getFromType() == Account.Type.VESTING) {
+            sender = NimiqUtils.parseAddress(tx.getFrom());
+        } else if (tx.getFrom() != null && !NimiqUtils.toHex(NimiqUtils.parseAddress(tx.getFrom()))
+                .equals(NimiqUtils.toHex(address))) {
+            throw new IllegalArgumentException("Sender " + tx.getFrom() + " doesn't match the key " + getAddress());
+        }
+        byte[] content = TransactionFormat.content(tx, sender, validityStartHeight, networkId);
+        byte[] signature = Ed25519.sign(content, privateKey, publicKey);
+        if (TransactionFormat.isBasic(tx)) {
+            return NimiqUtils.toHex(TransactionFormat.basic(content, publicKey, signature));
+        }
+        return NimiqUtils.toHex(TransactionFormat.extended(content, publicKey, signature));
+    }
+
+    /**
+     * Signs transactions in parallel on all cores.
+     *
+     * @param txs                 The transactions
+     * @param validityStartHeight The height from which on the transactions are
+     *                            valid, usually the current block number
+     * @return The hex encoded signed transactions, in the same order.
+     */
+    public List<String> signAll(List<OutgoingTransaction> txs, int validityStartHeight) {
+        return txs.parallelStream().map(tx -> sign(tx, validityStartHeight)).collect(Collectors.toList());
+    }
+
+    /**
+     * @param publicKey A 32 byte Ed25519 public key
+     * @return The 20 byte address of the key.
+     */
+    static byte[] addressOf(byte[] publicKey) {
+        byte[] address = new byte[NimiqUtils.ADDRESS_SIZE];
+        System.arraycopy(Blake2b.hash(publicKey), 0, address, 0, address.length);
+        return address;
+    }
+}
@@ -0,0 +1,237 @@
+package com.nimiq;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.googlecode.jsonrpc4j.JsonRpcClientException;
+
+/**
+ * Submits signed transactions with bounded parallelism, possibly spread over
+ * multiple nodes.
+ * <p>
+ * Each transaction gets a future, which is completed with its hash once the
+ * node accepted it. The hash is computed locally and checked against the one
+ * returned by the node. The node also returns the hash for a transaction that
+ * is already in its mempool, so resubmitting a pending transaction is safe. A
+ * JSON-RPC error from the node is final and fails the transaction right away,
+ * only requests that didn't get a response are retried. At most a given number
+ * of transactions wait for submission, {@link #submit(String)} blocks while
+ * that many are pending.
+ */
+public class TransactionSubmitter implements Closeable {
+
+    /**
+     * Error code of a transaction the node rejected, for example because it is
+     * invalid or its fee is too low.
+     */
+    public static final int REJECTED_LOCAL = -4;
+
+    /**
+     * Error code of a transaction whose validity window has passed.
+     */
+    public static final int EXPIRED = -3;
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 1_000;
+
+    private final List<NimiqClient> clients;
+    private final ExecutorService executor;
+    private final Semaphore space;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Map<Integer, AtomicLong> errors = new TreeMap<>();
+    private final long start = System.currentTimeMillis();
+
+    /**
+     * Creates a submitter.
+     *
+     * @param clients    The clients to submit the transactions with, in turn
+     * @param threads    Number of concurrent submissions
+     * @param maxPending Number of transactions that may wait for submission
+     */
+    public TransactionSubmitter(List<NimiqClient> clients, int threads, int maxPending) {
+        if (clients.isEmpty() || threads < 1 || maxPending < threads) {
+            throw new IllegalArgumentException("Invalid submitter configuration");
+        }
+        this.clients = clients;
+        this.space = new Semaphore(maxPending);
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-transaction-submitter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a signed transaction.
+     *
+     * @param txHex The hex encoded signed transaction
+     * @return A future completed with the hex-encoded transaction hash once the
+     *         node accepted the transaction.
+     * @throws InterruptedException if the calling thread was interrupted while
+     *                              waiting for space
+     */
+    public CompletableFuture<String> submit(String txHex) throws InterruptedException {
+        String hash = NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(txHex)));
+        NimiqClient client = clients.get((int) (next.getAndIncrement() % clients.size()));
+        CompletableFuture<String> future = new CompletableFuture<>();
+        space.acquire();
+        submitted.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    send(client, txHex, hash, future);
+                } finally {
+                    space.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            space.release();
+            submitted.decrementAndGet();
+            throw new IllegalStateException("The submitter is closed", e);
+        }
+        return future;
+    }
+
+    /**
+     * Submits signed transactions.
+     *
+     * @param txHexes The hex encoded signed transactions
+     * @return The futures of the transactions, in the same order.
+     * @throws InterruptedException if the calling thread was interrupted while
+     *                              waiting for space
+     */
+    public List<CompletableFuture<String>> submitAll(Collection<String> txHexes) throws InterruptedException {
+        List<CompletableFuture<String>> futures = new ArrayList<>(txHexes.size());
+        for (String txHex : txHexes) {
+            futures.add(submit(txHex));
+        }
+        return futures;
+    }
+
+    /**
+     * @return Number of submitted transactions.
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * @return Number of transactions accepted by the node, including ones
+     *         already in its mempool.
+     */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * @return Number of failed transactions.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return Number of transactions waiting for submission or a response.
+     */
+    public long getPending() {
+        return submitted.get() - accepted.get() - failed.get();
+    }
+
+    /**
+     * @return Number of failed transactions by JSON-RPC error code, with code 0
+     *         for failed requests.
+     */
+    public Map<Integer, Long> getErrors() {
+        Map<Integer, Long> result = new TreeMap<>();
+        synchronized (errors) {
+            errors.forEach((code, count) -> result.put(code, count.get()));
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of accepted transactions per second since the submitter was
+     *         created.
+     */
+    public double getThroughput() {
+        return accepted.get() * 1000.0 / Math.max(System.currentTimeMillis() - start, 1);
+    }
+
+    /**
+     * Stops the submission. Transactions that are still pending fail.
+     */
+    @Override
+    public void close() {
+        for (Runnable task : executor.shutdownNow()) {
+            task.run();
+        }
+    }
+
+    private void send(NimiqClient client, String txHex, String hash, CompletableFuture<String> future) {
+        for (int attempt = 1;; attempt++) {
+            if (executor.isShutdown()) {
+                fail(0, future, new IllegalStateException("The submitter is closed"));
+                return;
+            }
+            try {
+                String result = client.sendRawTransaction(txHex);
+                if (!hash.equalsIgnoreCase(result)) {
+                    fail(0, future, new IllegalStateException(
+                            "Node returned hash " + result + " for transaction " + hash));
+                    return;
+                }
+                accepted.incrementAndGet();
+                future.complete(hash);
+                return;
+            } catch (JsonRpcClientException e) {
+                // The node answered, retrying gets the same answer
+                fail(e.getCode(), future, e);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    fail(0, future, e);
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(RETRY_DELAY * attempt);
+            } catch (InterruptedException e) {
+                fail(0, future, new IllegalStateException("The submitter is closed", e));
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Whether a transaction failed because the node rejected it, rather
+     *         than because of another error or a failed request.
+     */
+    static boolean isRejected(Throwable e) {
+        if (!(e instanceof JsonRpcClientException)) {
+            return false;
+        }
+        int code = ((JsonRpcClientException) e).getCode();
+        return code == REJECTED_LOCAL || code == EXPIRED;
+    }
+
+    private void fail(int code, CompletableFuture<String> future, Throwable cause) {
+        synchronized (errors) {
+            errors.computeIfAbsent(code, key -> new AtomicLong()).incrementAndGet();
+        }
+        failed.incrementAndGet();
+        future.completeExceptionally(cause);
+    }
+}
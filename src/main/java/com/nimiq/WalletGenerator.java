@@ -0,0 +1,151 @@
+package com.nimiq;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Generates wallets locally, instead of with {@link NimiqClient#createAccount()}
+ * which needs a round trip per wallet and stores the keys on the node.
+ * <p>
+ * Each wallet gets a new Ed25519 key pair from a {@link SecureRandom}, and its
+ * address is derived from the public key. Bulk generation runs on multiple
+ * threads, which write the wallets in chunks as newline-delimited JSON, one
+ * {@link Wallet} object per line including the private key, in no particular
+ * order.
+ */
+public class WalletGenerator {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final int threads;
+    private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
+    private final ObjectWriter writer = new ObjectMapper().writerFor(Wallet.class);
+
+    /**
+     * Creates a generator that uses all cores.
+     */
+    public WalletGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a generator.
+     *
+     * @param threads Number of threads for bulk generation
+     */
+    public WalletGenerator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @return A new wallet with a random key pair.
+     */
+    public Wallet generate() {
+        byte[] privateKey = new byte[Ed25519.KEY_SIZE];
+        random.get().nextBytes(privateKey);
+        return createWallet(privateKey);
+    }
+
+    /**
+     * Restores the wallet of a private key.
+     *
+     * @param privateKey Hex-encoded 32 byte Ed25519 private key
+     * @return The wallet.
+     */
+    public static Wallet fromPrivateKey(String privateKey) {
+        return createWallet(NimiqUtils.fromHex(privateKey));
+    }
+
+    /**
+     * Generates wallets and writes them to a stream.
+     *
+     * @param count Number of wallets
+     * @param out   The stream, which is not closed
+     * @throws IOException          if the stream can't be written
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    public void generate(long count, OutputStream out) throws IOException, InterruptedException {
+        AtomicLong remaining = new AtomicLong(count);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-wallet-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_SIZE * 256);
+                    long size;
+                    while ((size = Math.min(CHUNK_SIZE, remaining.getAndAdd(-CHUNK_SIZE))) > 0) {
+                        chunk.reset();
+                        for (int j = 0; j < size; j++) {
+                            writer.writeValue(chunk, generate());
+                            chunk.write('\n');
+                        }
+                        synchronized (out) {
+                            chunk.writeTo(out);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Generating wallets failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+    }
+
+    /**
+     * Generates wallets and writes them to a file, which is replaced if it exists.
+     *
+     * @param count Number of wallets
+     * @param file  The file
+     * @throws IOException          if the file can't be written
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    public void generate(long count, Path file) throws IOException, InterruptedException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            generate(count, out);
+        }
+    }
+
+    private static Wallet createWallet(byte[] privateKey) {
+        byte[] publicKey = Ed25519.publicKey(privateKey);
+        byte[] address = TransactionSigner.addressOf(publicKey);
+        Wallet wallet = new Wallet();
+        wallet.setId(NimiqUtils.toHex(address));
+        wallet.setAddress(NimiqUtils.toUserFriendlyAddress(address));
+        wallet.setPublicKey(NimiqUtils.toHex(publicKey));
+        wallet.setPrivateKey(NimiqUtils.toHex(privateKey));
+        return wallet;
+    }
+}
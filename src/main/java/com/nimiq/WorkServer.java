@@ -0,0 +1,429 @@
+package com.nimiq;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves mining work to many miners over HTTP with a single block template
+ * request per poll, so that the load on the node doesn't depend on the number
+ * of miners.
+ * <p>
+ * The template is polled periodically, and a new job is only created when the
+ * previous block or the set of transactions changed. The server answers:
+ * <ul>
+ * <li>{@code GET /work?id=<job>}: the work of the current job as JSON with the
+ * fields of {@link Work} and the job {@code id}. If the given id is the current
+ * job, the request waits until the next job or a timeout, so miners can long
+ * poll. Every response gets unique extra data, so miners don't search the same
+ * headers.</li>
+ * <li>{@code POST /submit}: a hex-encoded block, as built from the data and
+ * suffix of a work. The block is forwarded with
+ * {@link NimiqClient#submitBlock(String)} if it extends the current head, was
+ * assembled from one of the jobs on top of it, its header hash meets the target
+ * and no block on top of the same head was forwarded before. Otherwise it is
+ * rejected with status 400.</li>
+ * </ul>
+ */
+public class WorkServer implements Closeable {
+
+    /**
+     * Default time between two template polls in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL = 1_000;
+
+    /**
+     * Longest time a work request waits for the next job in milliseconds.
+     */
+    public static final long LONG_POLL_TIMEOUT = 30_000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkServer.class);
+
+    private static final String ALGORITHM = "nimiq-argon2";
+    private static final int PREV_HASH_OFFSET = 2;
+    private static final int MAX_REQUEST_SIZE = 1 << 20;
+    // Jobs on top of the current head kept to validate blocks of older work
+    private static final int MAX_JOBS = 16;
+
+    /**
+     * Work of one template.
+     */
+    private static class Job {
+
+        private final int id;
+        private final String prevHash;
+        private final Set<String> transactions;
+        private final int target;
+        private final BlockAssembler assembler;
+
+        Job(int id, BlockTemplate template) {
+            this.id = id;
+            this.prevHash = template.getHeader().getPrevHash();
+            this.transactions = transactionsOf(template);
+            this.target = template.getTarget();
+            this.assembler = new BlockAssembler(template);
+        }
+    }
+
+    private final NimiqClient client;
+    private final String address;
+    private final byte[] extraData;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ThreadLocal<Argon2d> argon2d = ThreadLocal.withInitial(Argon2d::new);
+    private final AtomicInteger workCounter = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+
+    private volatile Job job;
+    // Jobs on top of the current head, latest first
+    private final Deque<Job> jobs = new ArrayDeque<>();
+    // Previous block hashes that a block was forwarded for
+    private final Set<String> solved = new HashSet<>();
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ScheduledExecutorService poller;
+
+    /**
+     * Creates a server.
+     *
+     * @param client    The client to request templates from and submit blocks to
+     * @param address   The miner address
+     * @param extraData Hex-encoded extra data, to which each work appends 4 unique
+     *                  bytes
+     */
+    public WorkServer(NimiqClient client, String address, String extraData) {
+        this.client = client;
+        this.address = address;
+        this.extraData = NimiqUtils.fromHex(extraData);
+        if (this.extraData.length + 4 > BlockAssembler.MAX_EXTRA_DATA_SIZE) {
+            throw new IllegalArgumentException("Extra data too large: " + this.extraData.length);
+        }
+    }
+
+    /**
+     * Starts serving with the default poll interval.
+     *
+     * @param bindAddress The address to listen on
+     * @throws IOException if the server can't be bound
+     */
+    public void start(InetSocketAddress bindAddress) throws IOException {
+        start(bindAddress, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Starts serving.
+     *
+     * @param bindAddress The address to listen on
+     * @param interval    Time between two template polls in milliseconds
+     * @throws IOException if the server can't be bound
+     */
+    public synchronized void start(InetSocketAddress bindAddress, long interval) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server is already running");
+        }
+        server = HttpServer.create(bindAddress, 0);
+        handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-work-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/work", this::handleWork);
+        server.createContext("/submit", this::handleSubmit);
+        server.start();
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nimiq-work-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The address the server listens on.
+     */
+    public synchronized InetSocketAddress getAddress() {
+        if (server == null) {
+            throw new IllegalStateException("Server is not running");
+        }
+        return server.getAddress();
+    }
+
+    /**
+     * @return Id of the current job, or 0 before the first template.
+     */
+    public int getJobId() {
+        Job current = job;
+        return current != null ? current.id : 0;
+    }
+
+    /**
+     * @return Number of template requests.
+     */
+    public long getPolls() {
+        return polls.get();
+    }
+
+    /**
+     * @return Number of blocks forwarded to the node.
+     */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * @return Number of rejected blocks.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            poller.shutdownNow();
+            server.stop(0);
+            handlers.shutdownNow();
+            server = null;
+            poller = null;
+            handlers = null;
+        }
+    }
+
+    private void poll() {
+        try {
+            polls.incrementAndGet();
+            BlockTemplate template = client.getBlockTemplate(address, NimiqUtils.toHex(extraData));
+            Job current = job;
+            if (current != null && current.prevHash.equals(template.getHeader().getPrevHash())
+                    && current.transactions.equals(transactionsOf(template))) {
+                return;
+            }
+            Job next = new Job(current != null ? current.id + 1 : 1, template);
+            synchronized (this) {
+                if (!jobs.isEmpty() && !jobs.peekFirst().prevHash.equals(next.prevHash)) {
+                    jobs.clear();
+                    solved.clear();
+                }
+                jobs.addFirst(next);
+                if (jobs.size() > MAX_JOBS) {
+                    jobs.removeLast();
+                }
+                job = next;
+                notifyAll();
+            }
+            LOGGER.debug("New job {} at height {}", next.id, next.assembler.getHeight());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Polling the block template failed", e);
+        }
+    }
+
+    private void handleWork(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("Method not allowed"));
+                return;
+            }
+            int known = parseId(exchange.getRequestURI().getQuery());
+            Job current = awaitJob(known);
+            if (current == null) {
+                respond(exchange, 503, error("No work available"));
+                return;
+            }
+
+            int counter = workCounter.incrementAndGet();
+            byte[] extra = Arrays.copyOf(extraData, extraData.length + 4);
+            for (int i = 0; i < 4; i++) {
+                extra[extraData.length + i] = (byte) (counter >>> (24 - 8 * i));
+            }
+            String extraHex = NimiqUtils.toHex(extra);
+            int timestamp = (int) (System.currentTimeMillis() / 1000);
+            String block = current.assembler.block(extraHex, timestamp, 0);
+            Map<String, Object> work = new LinkedHashMap<>();
+            work.put("id", current.id);
+            work.put("data", block.substring(0, 2 * BlockAssembler.HEADER_SIZE));
+            work.put("suffix", block.substring(2 * BlockAssembler.HEADER_SIZE));
+            work.put("target", current.target);
+            work.put("algorithm", ALGORITHM);
+            respond(exchange, 200, work);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("Server is shutting down"));
+        }
+    }
+
+    private void handleSubmit(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, error("Method not allowed"));
+            return;
+        }
+        byte[] body = readBody(exchange.getRequestBody());
+        if (body == null) {
+            rejected.incrementAndGet();
+            respond(exchange, 413, error("Block too large"));
+            return;
+        }
+        String block = new String(body, StandardCharsets.US_ASCII).trim();
+        byte[] bytes;
+        try {
+            bytes = NimiqUtils.fromHex(block);
+        } catch (IllegalArgumentException e) {
+            rejected.incrementAndGet();
+            respond(exchange, 400, error("Invalid hex encoding"));
+            return;
+        }
+        String reason = validate(bytes);
+        if (reason != null) {
+            rejected.incrementAndGet();
+            respond(exchange, 400, error(reason));
+            return;
+        }
+        try {
+            client.submitBlock(block);
+        } catch (RuntimeException e) {
+            // Let another block on top of the same head through
+            synchronized (this) {
+                solved.remove(prevHashOf(bytes));
+            }
+            LOGGER.warn("Submitting block failed", e);
+            rejected.incrementAndGet();
+            respond(exchange, 502, error("Node rejected block: " + e.getMessage()));
+            return;
+        }
+        accepted.incrementAndGet();
+        LOGGER.info("Forwarded block with header {}", block.substring(0, 2 * BlockAssembler.HEADER_SIZE));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accepted", true);
+        respond(exchange, 200, result);
+    }
+
+    /**
+     * @return The reason to reject a block, or null if it is valid.
+     */
+    private String validate(byte[] block) {
+        if (block.length < BlockAssembler.HEADER_SIZE) {
+            return "Block too short";
+        }
+        String prevHash = prevHashOf(block);
+        Job matched = null;
+        synchronized (this) {
+            if (jobs.isEmpty()) {
+                return "No work available";
+            }
+            if (!jobs.peekFirst().prevHash.equals(prevHash)) {
+                return "Stale block";
+            }
+            for (Job candidate : jobs) {
+                if (candidate.assembler.isAssembled(block)) {
+                    matched = candidate;
+                    break;
+                }
+            }
+        }
+        if (matched == null) {
+            return "Block doesn't match the work";
+        }
+        byte[] hash = argon2d.get().hash(block, 0, BlockAssembler.HEADER_SIZE);
+        if (!Miner.meetsTarget(hash, Miner.compactToTarget(matched.target))) {
+            return "Hash doesn't meet target";
+        }
+        synchronized (this) {
+            if (!jobs.peekFirst().prevHash.equals(prevHash)) {
+                return "Stale block";
+            }
+            if (!solved.add(prevHash)) {
+                return "Duplicate block";
+            }
+        }
+        return null;
+    }
+
+    private static String prevHashOf(byte[] block) {
+        return NimiqUtils.toHex(Arrays.copyOfRange(block, PREV_HASH_OFFSET, PREV_HASH_OFFSET + Blake2b.HASH_SIZE));
+    }
+
+    private synchronized Job awaitJob(int known) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + LONG_POLL_TIMEOUT;
+        long remaining;
+        while ((job == null || job.id == known) && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+        }
+        return job;
+    }
+
+    private static Set<String> transactionsOf(BlockTemplate template) {
+        String[] transactions = template.getBody().getTransactions();
+        return transactions != null ? new HashSet<>(Arrays.asList(transactions)) : new HashSet<>();
+    }
+
+    private static int parseId(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("id=")) {
+                    try {
+                        return Integer.parseInt(parameter.substring(3));
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        return error;
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return The request body, or null if it is too large.
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > MAX_REQUEST_SIZE) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,124 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * AddressIndexTest
+ */
+public class AddressIndexTest {
+
+    private static final String HOT = String.format("%040x", 0xabc);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Block createBlock(int number) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setHash(String.format("%064x", number));
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < number % 4; i++) {
+            Transaction tx = new Transaction(String.format("%064x", number * 10 + i));
+            tx.setFrom(HOT);
+            tx.setTo(String.format("%040x", number * 10 + i));
+            transactions.add(tx);
+        }
+        block.setTransactions(transactions);
+        return block;
+    }
+
+    private static void assertPostings(AddressIndex index, int to) {
+        List<Long> expected = new ArrayList<>();
+        for (int number = 1; number <= to; number++) {
+            for (int i = 0; i < number % 4; i++) {
+                expected.add(((long) number << 32) | i);
+            }
+        }
+        long[] postings = index.getPostings(HOT);
+        assertEquals(expected.size(), postings.length);
+        assertEquals(expected.size(), index.getCount(HOT));
+        for (int i = 0; i < postings.length; i++) {
+            assertEquals((long) expected.get(i), postings[i]);
+        }
+    }
+
+    @Test
+    public void testAddAndRemove() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (AddressIndex index = new AddressIndex(dir)) {
+            for (int number = 1; number <= 1000; number++) {
+                index.add(createBlock(number));
+            }
+            assertEquals(1000, index.getHeight());
+            assertPostings(index, 1000);
+
+            long[] postings = index.getPostings(String.format("%040x", 5032));
+            assertEquals(1, postings.length);
+            assertEquals(503, AddressIndex.getPostingHeight(postings[0]));
+            assertEquals(2, AddressIndex.getPostingIndex(postings[0]));
+            assertEquals(0, index.getPostings(String.format("%040x", 5003)).length);
+
+            for (int number = 1000; number > 900; number--) {
+                index.remove(createBlock(number));
+            }
+            assertEquals(900, index.getHeight());
+            assertPostings(index, 900);
+            assertEquals(0, index.getCount(String.format("%040x", 9991)));
+
+            for (int number = 901; number <= 950; number++) {
+                index.add(createBlock(number));
+            }
+            assertPostings(index, 950);
+        }
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (AddressIndex index = new AddressIndex(dir)) {
+            for (int number = 1; number <= 300; number++) {
+                index.add(createBlock(number));
+            }
+        }
+        try (AddressIndex index = new AddressIndex(dir)) {
+            assertEquals(300, index.getHeight());
+            assertEquals(1 + 450, index.size());
+            assertPostings(index, 300);
+            index.add(createBlock(301));
+            assertPostings(index, 301);
+        }
+    }
+
+    @Test
+    public void testRemoveHashesOnly() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (AddressIndex index = new AddressIndex(dir)) {
+            for (int number = 1; number <= 3; number++) {
+                index.add(createBlock(number));
+            }
+            Block hashesOnly = new Block();
+            hashesOnly.setNumber(3);
+            hashesOnly.setTransactions(Collections.singletonList(new Transaction(String.format("%064x", 30))));
+            try {
+                index.remove(hashesOnly);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+            // The index is unchanged
+            assertEquals(3, index.getHeight());
+            assertPostings(index, 3);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * AddressWatcherTest
+ */
+public class AddressWatcherTest {
+
+    private static byte[] address(int n) {
+        byte[] address = new byte[NimiqUtils.ADDRESS_SIZE];
+        address[NimiqUtils.ADDRESS_SIZE - 1] = (byte) n;
+        return address;
+    }
+
+    private static Transaction createTransaction(int hash, int from, int to) {
+        Transaction transaction = new Transaction(String.format("%064x", hash));
+        transaction.setFrom(NimiqUtils.toHex(address(from)));
+        transaction.setFromAddress(NimiqUtils.toUserFriendlyAddress(address(from)));
+        transaction.setTo(NimiqUtils.toHex(address(to)));
+        transaction.setToAddress(NimiqUtils.toUserFriendlyAddress(address(to)));
+        return transaction;
+    }
+
+    private static Block createBlock(int number, Transaction... transactions) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setTransactions(Arrays.asList(transactions));
+        return block;
+    }
+
+    private static AddressListener recordEvents(List<String> events) {
+        return new AddressListener() {
+            @Override
+            public void onTransaction(String address, Transaction transaction) {
+                events.add("+" + address + " " + transaction.getHash());
+            }
+
+            @Override
+            public void onTransactionReverted(String address, Transaction transaction) {
+                events.add("-" + address + " " + transaction.getHash());
+            }
+        };
+    }
+
+    @Test
+    public void testMatch() {
+        AddressWatcher watcher = new AddressWatcher();
+        List<String> events = new ArrayList<>();
+        watcher.addListener(recordEvents(events));
+        String first = NimiqUtils.toUserFriendlyAddress(address(1));
+        String second = NimiqUtils.toUserFriendlyAddress(address(2));
+        assertTrue(watcher.watch(first));
+        assertFalse(watcher.watch(first));
+        // Hex-encoded addresses are accepted as well
+        assertTrue(watcher.watch(NimiqUtils.toHex(address(2))));
+        assertTrue(watcher.isWatched(second));
+        assertEquals(2, watcher.size());
+
+        Transaction outgoing = createTransaction(1, 1, 3);
+        Transaction incoming = createTransaction(2, 4, 2);
+        Transaction between = createTransaction(3, 1, 2);
+        Transaction unrelated = createTransaction(4, 3, 4);
+        watcher.onBlock(createBlock(1, outgoing, incoming, between, unrelated));
+        assertEquals(Arrays.asList("+" + first + " " + outgoing.getHash(), "+" + second + " " + incoming.getHash(),
+                "+" + first + " " + between.getHash(), "+" + second + " " + between.getHash()), events);
+    }
+
+    @Test
+    public void testReverted() {
+        AddressWatcher watcher = new AddressWatcher();
+        List<String> events = new ArrayList<>();
+        watcher.addListener(recordEvents(events));
+        String first = NimiqUtils.toUserFriendlyAddress(address(1));
+        watcher.watch(first);
+
+        Transaction transaction = createTransaction(1, 1, 3);
+        Block block = createBlock(1, transaction);
+        watcher.blockConnected(block);
+        watcher.blockDisconnected(block);
+        assertEquals(Arrays.asList("+" + first + " " + transaction.getHash(),
+                "-" + first + " " + transaction.getHash()), events);
+    }
+
+    @Test
+    public void testUnwatch() {
+        AddressWatcher watcher = new AddressWatcher();
+        List<String> events = new ArrayList<>();
+        AddressListener listener = recordEvents(events);
+        watcher.addListener(listener);
+        String first = NimiqUtils.toUserFriendlyAddress(address(1));
+        watcher.watch(first);
+
+        assertTrue(watcher.unwatch(first));
+        assertFalse(watcher.unwatch(first));
+        assertFalse(watcher.isWatched(first));
+        watcher.onBlock(createBlock(1, createTransaction(1, 1, 3)));
+        assertTrue(events.isEmpty());
+
+        watcher.watch(first);
+        watcher.removeListener(listener);
+        watcher.onBlock(createBlock(2, createTransaction(2, 1, 3)));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHashesOnly() {
+        AddressWatcher watcher = new AddressWatcher();
+        watcher.onBlock(createBlock(1, new Transaction(String.format("%064x", 1))));
+    }
+}
@@ -0,0 +1,49 @@
+package com.nimiq;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Hashes per second of the Nimiq proof of work on one core. Run with more
+ * threads, e.g. {@code -t 4}, to measure the scaling across cores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Argon2dBenchmark {
+
+    private final Argon2d argon2d = new Argon2d();
+    private final byte[] header = new byte[146];
+    private final byte[] hash = new byte[Blake2b.HASH_SIZE];
+    private int nonce;
+
+    @Benchmark
+    public byte[] hash() {
+        nonce++;
+        header[header.length - 4] = (byte) (nonce >>> 24);
+        header[header.length - 3] = (byte) (nonce >>> 16);
+        header[header.length - 2] = (byte) (nonce >>> 8);
+        header[header.length - 1] = (byte) nonce;
+        argon2d.hash(header, 0, header.length, hash, 0);
+        return hash;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(Argon2dBenchmark.class.getSimpleName()).build()).run();
+    }
+}
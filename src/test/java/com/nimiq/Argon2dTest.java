@@ -0,0 +1,63 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Argon2dTest
+ */
+public class Argon2dTest {
+
+    private static byte[] filled(int size, int value) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    @Test
+    public void testVector() {
+        // RFC 9106, section 5.1
+        Argon2d argon2d = new Argon2d(32, 3, 4, filled(16, 2), filled(8, 3), filled(12, 4), 32);
+        assertEquals("512b391b6f1162975371d30919734294f868e3be3984f3c1a13a4db9fabe4acb",
+                NimiqUtils.toHex(argon2d.hash(filled(32, 1), 0, 32)));
+    }
+
+    @Test
+    public void testNimiqHeader() {
+        // Computed with the reference implementation (libargon2) with the Nimiq
+        // parameters: salt "nimiqrocks!", 512 KiB, 1 pass, 1 lane, 32 bytes
+        byte[] header = NimiqUtils.fromHex("0001264aaf8a4f9828a76c550635da078eb466306a189fcc03710bee9f649c869d12"
+                + "0e5751c026e543b2e8ab2eb06099daa1d1e5df47778f7787faab45cdf12fe3a8"
+                + "bfc4d85b5328076166b7e3779b2dde9c0a2dde14eb0c5fc827cc4201d7fdabf1"
+                + "025e4b3c87f1f80eb3546e161b33e93c27a1d420c4863df7b75932c523f131dc"
+                + "1f010000000000025ad23ad4000088f7");
+        assertEquals("0000e601cc88134535ef51db9890e4c563b39b62c2d63923e24af5514eef533b",
+                NimiqUtils.toHex(new Argon2d().hash(header, 0, header.length)));
+
+        byte[] sequence = new byte[BlockAssembler.HEADER_SIZE];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = (byte) i;
+        }
+        assertEquals("c42a56ff32a5ec408639daba8b7e1fd79186bf9cc5a22ef4785adfee6809ad56",
+                NimiqUtils.toHex(new Argon2d().hash(sequence, 0, sequence.length)));
+    }
+
+    @Test
+    public void testReuse() {
+        byte[] header = new byte[146];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = (byte) i;
+        }
+        Argon2d argon2d = new Argon2d();
+        String hash = NimiqUtils.toHex(argon2d.hash(header, 0, header.length));
+        header[header.length - 1]++;
+        assertNotEquals(hash, NimiqUtils.toHex(argon2d.hash(header, 0, header.length)));
+        header[header.length - 1]--;
+        assertEquals(hash, NimiqUtils.toHex(argon2d.hash(header, 0, header.length)));
+        assertEquals(hash, NimiqUtils.toHex(new Argon2d().hash(header, 0, header.length)));
+    }
+}
@@ -0,0 +1,162 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * BalanceLedgerTest
+ */
+public class BalanceLedgerTest {
+
+    private static final long REWARD = 1_000_000;
+
+    private static String address(int i) {
+        return String.format("%040x", i);
+    }
+
+    private static Block createBlock(int number, Random random) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setMiner(address(random.nextInt(3)));
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            Transaction tx = new Transaction(String.format("%064x", random.nextLong()));
+            tx.setFrom(address(random.nextInt(10)));
+            tx.setTo(address(random.nextInt(10)));
+            tx.setValue(random.nextInt(1000));
+            tx.setFee(random.nextInt(10));
+            transactions.add(tx);
+        }
+        block.setTransactions(transactions);
+        return block;
+    }
+
+    private static Map<String, Long> replay(List<Block> blocks, int height) {
+        Map<String, Long> balances = new HashMap<>();
+        for (Block block : blocks.subList(0, height)) {
+            long fees = 0;
+            for (Transaction tx : block.getTransactions()) {
+                balances.merge(tx.getFrom(), -(tx.getValue() + tx.getFee()), Long::sum);
+                balances.merge(tx.getTo(), tx.getValue(), Long::sum);
+                fees += tx.getFee();
+            }
+            balances.merge(block.getMiner(), REWARD + fees, Long::sum);
+        }
+        balances.values().removeIf(balance -> balance == 0);
+        return balances;
+    }
+
+    @Test
+    public void testBalanceAt() {
+        Random random = new Random(42);
+        List<Block> blocks = new ArrayList<>();
+        BalanceLedger ledger = new BalanceLedger(0, new HashMap<>(), height -> REWARD, 16, 1000);
+        for (int number = 1; number <= 200; number++) {
+            Block block = createBlock(number, random);
+            blocks.add(block);
+            ledger.add(block);
+        }
+        for (int height = 0; height <= 200; height += 7) {
+            Map<String, Long> expected = replay(blocks, height);
+            assertEquals(expected, ledger.snapshotAt(height));
+            for (int i = 0; i < 10; i++) {
+                long balance = expected.getOrDefault(address(i), 0L);
+                assertEquals(balance, ledger.balanceAt(address(i), height));
+            }
+        }
+        assertEquals((long) replay(blocks, 200).getOrDefault(address(1), 0L), ledger.getBalance(address(1)));
+    }
+
+    @Test
+    public void testRollback() {
+        Random random = new Random(7);
+        List<Block> blocks = new ArrayList<>();
+        BalanceLedger ledger = new BalanceLedger(0, new HashMap<>(), height -> REWARD, 16, 1000);
+        for (int number = 1; number <= 100; number++) {
+            Block block = createBlock(number, random);
+            blocks.add(block);
+            ledger.add(block);
+        }
+        for (int number = 100; number > 60; number--) {
+            ledger.remove(blocks.remove(number - 1));
+        }
+        assertEquals(60, ledger.getHeight());
+        for (int number = 61; number <= 90; number++) {
+            Block block = createBlock(number, random);
+            blocks.add(block);
+            ledger.add(block);
+        }
+        for (int height = 0; height <= 90; height += 5) {
+            assertEquals(replay(blocks, height), ledger.snapshotAt(height));
+        }
+    }
+
+    @Test
+    public void testBoundedHistory() {
+        Random random = new Random(3);
+        List<Block> blocks = new ArrayList<>();
+        BalanceLedger ledger = new BalanceLedger(0, new HashMap<>(), height -> REWARD, 16, 50);
+        for (int number = 1; number <= 200; number++) {
+            Block block = createBlock(number, random);
+            blocks.add(block);
+            ledger.add(block);
+        }
+        int oldest = ledger.getOldestHeight();
+        assertTrue(oldest >= 200 - 50 - 16 && oldest <= 200 - 50);
+        for (int height = oldest; height <= 200; height++) {
+            assertEquals(replay(blocks, height), ledger.snapshotAt(height));
+        }
+        try {
+            ledger.balanceAt(address(1), oldest - 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        // Blocks can be rolled back down to the oldest height only
+        for (int number = 200; number > oldest; number--) {
+            ledger.remove(blocks.remove(number - 1));
+        }
+        try {
+            ledger.remove(blocks.get(oldest - 1));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        assertEquals(replay(blocks, oldest), ledger.snapshotAt(oldest));
+    }
+
+    @Test
+    public void testStartBalances() {
+        // Like the pre-allocated accounts of the genesis block
+        Map<String, Long> genesis = new HashMap<>();
+        genesis.put(address(1), 5_000_000L);
+        genesis.put(address(2), 7_000_000L);
+        BalanceLedger ledger = new BalanceLedger(1, genesis, height -> REWARD);
+        Block block = new Block();
+        block.setNumber(2);
+        block.setMiner(address(3));
+        Transaction tx = new Transaction(String.format("%064x", 1));
+        tx.setFrom(address(1));
+        tx.setTo(address(2));
+        tx.setValue(1_000_000);
+        tx.setFee(10);
+        block.setTransactions(Collections.singletonList(tx));
+        ledger.add(block);
+
+        assertEquals(3_999_990, ledger.getBalance(address(1)));
+        assertEquals(8_000_000, ledger.getBalance(address(2)));
+        assertEquals(REWARD + 10, ledger.getBalance(address(3)));
+        assertEquals(genesis, ledger.snapshotAt(1));
+    }
+}
@@ -0,0 +1,180 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * BalanceSnapshotterTest
+ */
+public class BalanceSnapshotterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String address(int i) {
+        return String.format("%040x", i);
+    }
+
+    /**
+     * A chain that applies a change after the 500th account request.
+     */
+    private static NimiqClient createClient(Map<String, Long> balances, List<Block> blocks, Runnable change) {
+        int[] requests = new int[1];
+        return new FakeNimiqClient()
+                .on("getBlockNumber", args -> {
+                    synchronized (blocks) {
+                        return blocks.size();
+                    }
+                })
+                .on("getBlockByNumber", args -> {
+                    synchronized (blocks) {
+                        return blocks.get((Integer) args[0] - 1);
+                    }
+                })
+                .on("getAccount", args -> {
+                    synchronized (blocks) {
+                        if (++requests[0] == 500) {
+                            change.run();
+                        }
+                        Account account = new Account();
+                        account.setId((String) args[0]);
+                        account.setBalance(balances.getOrDefault(args[0], 0L));
+                        return account;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Moves funds from address 1 to address 2 in a block.
+     */
+    private static Block transfer(Map<String, Long> balances, int number, String fork) {
+        Transaction tx = new Transaction(String.format("%064x", 1));
+        tx.setFrom(address(1));
+        tx.setTo(address(2));
+        tx.setValue(5);
+        balances.merge(address(1), -5L, Long::sum);
+        balances.merge(address(2), 5L, Long::sum);
+        return createBlock(number, fork, Arrays.asList(tx));
+    }
+
+    private static Block createBlock(int number, List<Transaction> transactions) {
+        return createBlock(number, "", transactions);
+    }
+
+    private static Block createBlock(int number, String fork, List<Transaction> transactions) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setHash(fork + String.format("%064x", number));
+        block.setParentHash(String.format("%064x", number - 1));
+        block.setMiner(address(9999));
+        block.setTransactions(transactions);
+        return block;
+    }
+
+    private static Map<String, Long> createBalances(List<String> addresses) {
+        Map<String, Long> balances = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            balances.put(address(i), i * 10L);
+            addresses.add(address(i));
+        }
+        return balances;
+    }
+
+    private static List<Block> createChain(int height) {
+        List<Block> blocks = new ArrayList<>();
+        for (int number = 1; number <= height; number++) {
+            blocks.add(createBlock(number, new ArrayList<>()));
+        }
+        return blocks;
+    }
+
+    private static void assertSnapshot(Path file, int height, Map<String, Long> balances) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        assertEquals("# height " + height, lines.get(0));
+        assertEquals(2001, lines.size());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(address(i) + "," + balances.get(address(i)), lines.get(i + 1));
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException, InterruptedException {
+        List<String> addresses = new ArrayList<>();
+        Map<String, Long> balances = createBalances(addresses);
+        List<Block> blocks = createChain(10);
+        NimiqClient client = createClient(balances, blocks,
+                () -> blocks.add(transfer(balances, blocks.size() + 1, "")));
+        Path file = folder.getRoot().toPath().resolve("snapshot.csv");
+
+        BalanceSnapshotter snapshotter = new BalanceSnapshotter(Arrays.asList(client, client), 4);
+        BalanceSnapshotter.Report report = snapshotter.snapshot(addresses, file);
+        assertEquals(11, report.getHeight());
+        assertEquals(2000, report.getAccounts());
+        assertEquals(2, report.getRefetched());
+        assertEquals(2, report.getRounds());
+        assertSnapshot(file, 11, balances);
+    }
+
+    @Test
+    public void testSameHeightReorg() throws IOException, InterruptedException {
+        List<String> addresses = new ArrayList<>();
+        Map<String, Long> balances = createBalances(addresses);
+        List<Block> blocks = createChain(10);
+        // The head is replaced by a block at the same height
+        NimiqClient client = createClient(balances, blocks, () -> blocks.set(9, transfer(balances, 10, "b")));
+        Path file = folder.getRoot().toPath().resolve("snapshot.csv");
+
+        BalanceSnapshotter.Report report = new BalanceSnapshotter(Arrays.asList(client), 4).snapshot(addresses, file);
+        assertEquals(10, report.getHeight());
+        assertEquals(2, report.getRounds());
+        assertSnapshot(file, 10, balances);
+    }
+
+    @Test
+    public void testNodesAtDifferentHeads() throws IOException, InterruptedException {
+        List<String> addresses = new ArrayList<>();
+        Map<String, Long> balances = createBalances(addresses);
+        List<Block> blocks = createChain(10);
+        List<Block> lagging = createChain(9);
+        Map<String, Long> stale = new HashMap<>(balances);
+        stale.merge(address(3), -1L, Long::sum);
+        NimiqClient client = createClient(balances, blocks, () -> {
+        });
+        NimiqClient node = createClient(stale, lagging, () -> {
+        });
+        // The second node catches up with the first on its second head request
+        int[] requests = new int[1];
+        NimiqClient behind = new FakeNimiqClient()
+                .on("getBlockNumber", args -> {
+                    if (++requests[0] == 2) {
+                        lagging.add(blocks.get(9));
+                        stale.putAll(balances);
+                    }
+                    return node.getBlockNumber();
+                })
+                .on("getBlockByNumber", args -> node.getBlockByNumber((Integer) args[0], (Boolean) args[1]))
+                .on("getAccount", args -> node.getAccount((String) args[0]))
+                .build();
+        Path file = folder.getRoot().toPath().resolve("snapshot.csv");
+
+        BalanceSnapshotter.Report report = new BalanceSnapshotter(Arrays.asList(client, behind), 4)
+                .snapshot(addresses, file);
+        assertEquals(10, report.getHeight());
+        assertEquals(2, report.getRounds());
+        assertSnapshot(file, 10, balances);
+    }
+}
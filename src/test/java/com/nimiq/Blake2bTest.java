@@ -0,0 +1,37 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Blake2bTest
+ */
+public class Blake2bTest {
+
+    @Test
+    public void testVectors() {
+        byte[] abc = "abc".getBytes(StandardCharsets.US_ASCII);
+        assertEquals("ba80a53f981c4d0d6a2797b69f12f6e94c212f14685ac4b74b12bb6fdbffa2d1"
+                + "7d87c5392aab792dc252d5de4533cc9518d38aa8dbf1925ab92386edd4009923",
+                NimiqUtils.toHex(Blake2b.digest(abc, 0, abc.length, 64)));
+        assertEquals("0e5751c026e543b2e8ab2eb06099daa1d1e5df47778f7787faab45cdf12fe3a8",
+                NimiqUtils.toHex(Blake2b.hash(new byte[0])));
+        assertEquals("786a02f742015903c6c6fd852552d272912f4740e15847618a86e217f71f5419"
+                + "d25e1031afee585313896444934eb04b903a685b1448b755d56f701afe9be2ce",
+                NimiqUtils.toHex(Blake2b.digest(new byte[0], 0, 0, 64)));
+    }
+
+    @Test
+    public void testOffset() {
+        byte[] data = new byte[300];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        byte[] copy = new byte[data.length + 10];
+        System.arraycopy(data, 0, copy, 5, data.length);
+        assertEquals(NimiqUtils.toHex(Blake2b.hash(data)), NimiqUtils.toHex(Blake2b.hash(copy, 5, data.length)));
+    }
+}
@@ -0,0 +1,107 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * BlockArchiveTest
+ */
+public class BlockArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static Block createBlock(int number) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setHash(String.format("%064x", number));
+        block.setPow(String.format("%064x", number + 1000));
+        block.setParentHash(String.format("%064x", number - 1));
+        block.setNonce(number * 7);
+        block.setBodyHash(String.format("%064x", number + 2000));
+        block.setAccountHash(String.format("%064x", number + 3000));
+        block.setMiner(String.format("%040x", number % 3));
+        block.setMinerAddress(NimiqUtils.toUserFriendlyAddress(NimiqUtils.fromHex(block.getMiner())));
+        block.setDifficulty("1.5");
+        block.setExtraData(number % 2 == 0 ? "cafe" : "");
+        block.setSize(500 + number);
+        block.setTimestamp(1_500_000_000 + number * 60);
+
+        Transaction tx = new Transaction(String.format("%064x", number + 4000));
+        tx.setBlockHash(block.getHash());
+        tx.setBlockNumber(number);
+        tx.setTimestamp(block.getTimestamp());
+        tx.setFrom(String.format("%040x", number));
+        tx.setFromAddress(NimiqUtils.toUserFriendlyAddress(NimiqUtils.fromHex(tx.getFrom())));
+        tx.setTo(String.format("%040x", number + 1));
+        tx.setToAddress(NimiqUtils.toUserFriendlyAddress(NimiqUtils.fromHex(tx.getTo())));
+        tx.setValue(number * 100_000L);
+        tx.setFee(138);
+        tx.setData("");
+        block.setTransactions(number % 3 == 0 ? Collections.emptyList() : Arrays.asList(tx));
+        return block;
+    }
+
+    @Test
+    public void testAppendAndGet() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (BlockArchive archive = new BlockArchive(dir, 4096)) {
+            assertEquals(0, archive.size());
+            assertNull(archive.get(1));
+            for (int i = 100; i < 200; i++) {
+                archive.append(createBlock(i));
+            }
+            assertEquals(100, archive.getFirstHeight());
+            assertEquals(199, archive.getLastHeight());
+            assertBlocks(archive);
+        }
+
+        try (BlockArchive archive = new BlockArchive(dir)) {
+            assertEquals(100, archive.size());
+            assertBlocks(archive);
+            archive.append(createBlock(200));
+            assertEquals(200, archive.get(200).getNumber());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendGap() throws IOException {
+        try (BlockArchive archive = new BlockArchive(folder.getRoot().toPath())) {
+            archive.append(createBlock(1));
+            archive.append(createBlock(3));
+        }
+    }
+
+    @Test
+    public void testBlockWithoutTransactions() throws IOException {
+        try (BlockArchive archive = new BlockArchive(folder.getRoot().toPath())) {
+            Block block = createBlock(1);
+            block.setTransactions(null);
+            archive.append(block);
+            assertNull(archive.get(1).getTransactions());
+        }
+    }
+
+    private static void assertBlocks(BlockArchive archive) {
+        assertFalse(archive.contains(99));
+        assertTrue(archive.contains(100));
+        assertNull(archive.get(99));
+        for (int i = 100; i < 200; i++) {
+            Block expected = createBlock(i);
+            Block block = archive.get(i);
+            expected.getTransactions().forEach(tx -> tx.setTransactionIndex(0));
+            assertEquals(expected.toString(), block.toString());
+        }
+    }
+}
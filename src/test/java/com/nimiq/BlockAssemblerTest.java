@@ -0,0 +1,145 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * BlockAssemblerTest
+ */
+public class BlockAssemblerTest {
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return bytes;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Merkle root of leaf hashes, splitting at the rounded half.
+     */
+    private static byte[] root(List<byte[]> leaves) {
+        if (leaves.size() == 1) {
+            return leaves.get(0);
+        }
+        int mid = (leaves.size() + 1) / 2;
+        return Blake2b.hash(concat(root(leaves.subList(0, mid)), root(leaves.subList(mid, leaves.size()))));
+    }
+
+    /**
+     * Siblings on the path of the leftmost leaf, from the bottom.
+     */
+    private static List<String> path(List<byte[]> leaves) {
+        List<String> path = new ArrayList<>();
+        while (leaves.size() > 1) {
+            int mid = (leaves.size() + 1) / 2;
+            path.add(NimiqUtils.toHex(root(leaves.subList(mid, leaves.size()))));
+            leaves = leaves.subList(0, mid);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private static List<byte[]> leaves(byte[] minerAddress, byte[] extraData, int transactions) {
+        List<byte[]> leaves = new ArrayList<>();
+        leaves.add(Blake2b.hash(minerAddress));
+        leaves.add(Blake2b.hash(extraData));
+        for (int i = 0; i < transactions; i++) {
+            leaves.add(Blake2b.hash(bytes(10, 100 + i)));
+        }
+        return leaves;
+    }
+
+    static BlockTemplate createTemplate(int transactions, boolean fullPath) {
+        byte[] minerAddress = bytes(20, 1);
+        byte[] extraData = bytes(5, 2);
+        List<byte[]> leaves = leaves(minerAddress, extraData, transactions);
+        List<String> path = path(leaves);
+
+        BlockTemplate.Header header = new BlockTemplate.Header();
+        header.setVersion(1);
+        header.setPrevHash(NimiqUtils.toHex(bytes(32, 3)));
+        header.setInterlinkHash(NimiqUtils.toHex(bytes(32, 4)));
+        header.setAccountsHash(NimiqUtils.toHex(bytes(32, 5)));
+        header.setnBits(0x1f010000);
+        header.setHeight(1234);
+        BlockTemplate.Body body = new BlockTemplate.Body();
+        body.setHash(NimiqUtils.toHex(root(leaves)));
+        body.setMinerAddr(NimiqUtils.toHex(minerAddress));
+        body.setExtraData(NimiqUtils.toHex(extraData));
+        String[] txs = new String[transactions];
+        for (int i = 0; i < transactions; i++) {
+            txs[i] = NimiqUtils.toHex(bytes(10, 100 + i));
+        }
+        body.setTransactions(txs);
+        body.setPrunedAccounts(new String[0]);
+        List<String> hashes = fullPath ? path : path.subList(1, path.size());
+        body.setMerkleHashes(hashes.toArray(new String[0]));
+        BlockTemplate template = new BlockTemplate();
+        template.setHeader(header);
+        template.setInterlink("0102");
+        template.setBody(body);
+        template.setTarget(0x1f010000);
+        return template;
+    }
+
+    @Test
+    public void testBodyHash() {
+        for (int transactions = 0; transactions < 10; transactions++) {
+            BlockAssembler assembler = new BlockAssembler(createTemplate(transactions, false));
+            byte[] extraData = bytes(8, 7);
+            assertEquals(NimiqUtils.toHex(root(leaves(bytes(20, 1), extraData, transactions))),
+                    assembler.getBodyHash(NimiqUtils.toHex(extraData)));
+            assertEquals(NimiqUtils.toHex(root(leaves(bytes(20, 1), new byte[0], transactions))),
+                    assembler.getBodyHash(""));
+        }
+        // Also with the extra data on the path
+        new BlockAssembler(createTemplate(5, true));
+    }
+
+    @Test
+    public void testBlock() {
+        BlockTemplate template = createTemplate(3, false);
+        BlockAssembler assembler = new BlockAssembler(template);
+        byte[] header = assembler.header("abcd", 1600000000, 0x01020304);
+        assertEquals(BlockAssembler.HEADER_SIZE, header.length);
+        assertEquals("0001" + template.getHeader().getPrevHash() + template.getHeader().getInterlinkHash()
+                + assembler.getBodyHash("abcd") + template.getHeader().getAccountsHash() + "1f010000" + "000004d2"
+                + "5f5e1000" + "01020304", NimiqUtils.toHex(header));
+
+        String block = assembler.block("abcd", 1600000000, 0x01020304);
+        assertEquals(NimiqUtils.toHex(header) + "0102" + "01" + template.getBody().getMinerAddr() + "02abcd" + "0003"
+                + String.join("", template.getBody().getTransactions()) + "0000", block);
+        assertArrayEquals(BlockAssembler.serializeHeader(1, template.getHeader().getPrevHash(),
+                template.getHeader().getInterlinkHash(), assembler.getBodyHash("abcd"),
+                template.getHeader().getAccountsHash(), 0x1f010000, 1234, 1600000000, 0x01020304), header);
+        assertNotEquals(assembler.getBodyHash("abcd"), assembler.getBodyHash("abce"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTemplate() {
+        BlockTemplate template = createTemplate(3, false);
+        template.getBody().setHash(NimiqUtils.toHex(bytes(32, 9)));
+        new BlockAssembler(template);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExtraDataTooLarge() {
+        new BlockAssembler(createTemplate(3, false)).getBodyHash(NimiqUtils.toHex(new byte[256]));
+    }
+}
@@ -0,0 +1,98 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * BlockFetcherTest
+ */
+public class BlockFetcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static NimiqClient createClient() {
+        return createClient(Integer.MAX_VALUE);
+    }
+
+    private static NimiqClient createClient(int head) {
+        return new FakeNimiqClient()
+                .on("getBlockByNumber", args -> {
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                    if ((Integer) args[0] > head) {
+                        return null;
+                    }
+                    Block block = new Block();
+                    block.setNumber((Integer) args[0]);
+                    return block;
+                })
+                .build();
+    }
+
+    @Test
+    public void testOrderedDelivery() throws IOException, InterruptedException {
+        BlockFetcher fetcher = new BlockFetcher(Arrays.asList(createClient(), createClient()), 8, 16, false);
+        List<Integer> heights = new ArrayList<>();
+        assertEquals(500, fetcher.fetch(1, 500, block -> heights.add(block.getNumber())));
+        assertEquals(IntStream.rangeClosed(1, 500).boxed().collect(Collectors.toList()), heights);
+    }
+
+    @Test
+    public void testSpliterator() {
+        BlockFetcher fetcher = new BlockFetcher(createClient(), 4);
+        List<Integer> heights = StreamSupport.stream(fetcher.spliterator(10, 100), false)
+                .map(Block::getNumber)
+                .collect(Collectors.toList());
+        assertEquals(IntStream.rangeClosed(10, 100).boxed().collect(Collectors.toList()), heights);
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException, InterruptedException {
+        Path checkpoint = folder.getRoot().toPath().resolve("checkpoint");
+        BlockFetcher fetcher = new BlockFetcher(createClient(), 4);
+        fetcher.setCheckpoint(checkpoint, 10);
+        try {
+            fetcher.fetch(1, 100, block -> {
+                if (block.getNumber() == 25) {
+                    throw new IllegalStateException("Interrupted");
+                }
+            });
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals(20, fetcher.getCheckpoint());
+
+        List<Integer> heights = new ArrayList<>();
+        assertEquals(80, fetcher.fetch(1, 100, block -> heights.add(block.getNumber())));
+        assertEquals(21, heights.get(0).intValue());
+        assertEquals(100, fetcher.getCheckpoint());
+    }
+
+    @Test(timeout = 10_000)
+    public void testPastHead() throws IOException, InterruptedException {
+        BlockFetcher fetcher = new BlockFetcher(createClient(50), 4);
+        List<Integer> heights = new ArrayList<>();
+        try {
+            fetcher.fetch(1, 100, block -> heights.add(block.getNumber()));
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().matches("Block #\\d+ not found"));
+        }
+        assertTrue(heights.size() <= 50);
+    }
+}
@@ -0,0 +1,100 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * BlockInterlinkTest
+ */
+public class BlockInterlinkTest {
+
+    private static String hash(int seed) {
+        byte[] hash = new byte[Blake2b.HASH_SIZE];
+        Arrays.fill(hash, (byte) seed);
+        return NimiqUtils.toHex(hash);
+    }
+
+    private static String pair(String left, String right) {
+        byte[] pair = Arrays.copyOf(NimiqUtils.fromHex(left), 2 * Blake2b.HASH_SIZE);
+        System.arraycopy(NimiqUtils.fromHex(right), 0, pair, Blake2b.HASH_SIZE, Blake2b.HASH_SIZE);
+        return NimiqUtils.toHex(Blake2b.hash(pair));
+    }
+
+    private static String hashOf(int... bytes) {
+        byte[] data = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            data[i] = (byte) bytes[i];
+        }
+        return NimiqUtils.toHex(Blake2b.hash(data));
+    }
+
+    @Test
+    public void testGenesis() {
+        // The genesis block can't commit to its own hash
+        BlockInterlink genesis = BlockInterlink.genesis(BlockInterlink.MAIN_GENESIS_HASH);
+        assertEquals(hash(0), genesis.getHash());
+        assertEquals(Collections.emptyList(), genesis.getHashes());
+        // Any other empty interlink commits to the genesis hash
+        assertEquals(pair(hashOf(), BlockInterlink.MAIN_GENESIS_HASH),
+                BlockInterlink.parse("00", hash(1), BlockInterlink.MAIN_GENESIS_HASH).getHash());
+    }
+
+    @Test
+    public void testParse() {
+        String prev = hash(1);
+        String genesis = hash(7);
+        // Repeats of the parent hash and of the previous hash are marked in the
+        // repeat bits 11010000
+        BlockInterlink interlink = BlockInterlink.parse("05" + "d0" + hash(2) + hash(3), prev, genesis);
+        assertEquals(Arrays.asList(prev, prev, hash(2), hash(2), hash(3)), interlink.getHashes());
+        assertEquals(new BlockInterlink(interlink.getHashes(), prev, genesis).getHash(), interlink.getHash());
+        // Merkle root over the hashed repeat bits, the genesis hash and the
+        // hashes, split after two leaves
+        assertEquals(pair(pair(hashOf(0xd0), genesis), pair(hash(2), hash(3))), interlink.getHash());
+        // Three leaves are split after two as well
+        assertEquals(pair(pair(hashOf(0x00), genesis), hash(2)),
+                BlockInterlink.parse("01" + "00" + hash(2), prev, genesis).getHash());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        BlockInterlink.parse("02" + "00" + hash(2), hash(1), hash(7));
+    }
+
+    @Test
+    public void testNext() {
+        BlockInterlink interlink = new BlockInterlink(Arrays.asList(hash(2), hash(3), hash(4)), hash(1), hash(7));
+        // Twice as hard as the target 2^240 of the block
+        String pow = "00008" + String.format("%059d", 0);
+        String block = hash(5);
+        assertEquals(Arrays.asList(block, block, hash(4)), interlink.next(block, pow, 0x1f010000, 0x1f010000)
+                .getHashes());
+        // The next target is twice as hard, so all depths move down by one
+        assertEquals(Arrays.asList(block, hash(4)), interlink.next(block, pow, 0x1f010000, 0x1f008000).getHashes());
+        // The next target is twice as easy, so all depths move up by one
+        assertEquals(Arrays.asList(block, block, block, hash(4)),
+                interlink.next(block, pow, 0x1f010000, 0x1f020000).getHashes());
+        // Exactly the next target, and easier than it
+        assertEquals(Arrays.asList(block, hash(3), hash(4)),
+                interlink.next(block, "0001" + String.format("%060d", 0), 0x1f010000, 0x1f010000).getHashes());
+        assertEquals(interlink.getHashes(),
+                interlink.next(block, "0002" + String.format("%060d", 0), 0x1f010000, 0x1f010000).getHashes());
+        assertEquals(Collections.emptyList(), BlockInterlink.genesis(hash(7)).next(block,
+                "ff" + String.format("%062d", 0), 0x1f010000, 0x1f010000).getHashes());
+    }
+
+    @Test
+    public void testDepth() {
+        assertEquals(0, BlockInterlink.depth(Miner.compactToTarget(0x1f010000)));
+        assertEquals(1, BlockInterlink.depth(Miner.compactToTarget(0x1f008000)));
+        // ceil(log2) of the nearest double like in JavaScript, so 2^240 + 1 counts
+        // as 2^240, but 2^240 + 2^200 doesn't
+        assertEquals(0, BlockInterlink.depth(NimiqUtils.fromHex("0001" + String.format("%060d", 1))));
+        assertEquals(-1, BlockInterlink.depth(NimiqUtils.fromHex("0001000000000" + "1" + String.format("%050d", 0))));
+        assertEquals(-8, BlockInterlink.depth(Miner.compactToTarget(0x20010000)));
+    }
+}
@@ -0,0 +1,142 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * BlockPollerTest
+ */
+public class BlockPollerTest {
+
+    private static NimiqClient createClient(AtomicInteger head, List<Integer> fetched) {
+        return new FakeNimiqClient()
+                .on("getBlockNumber", args -> head.get())
+                .on("getBlockByNumber", args -> {
+                    int number = (Integer) args[0];
+                    fetched.add(number);
+                    Block block = new Block();
+                    block.setNumber(number);
+                    block.setHash(String.format("%064x", number));
+                    return block;
+                })
+                .build();
+    }
+
+    @Test
+    public void testPoll() {
+        AtomicInteger head = new AtomicInteger(10);
+        List<Integer> fetched = new CopyOnWriteArrayList<>();
+        BlockPoller poller = new BlockPoller(createClient(head, fetched));
+        List<Integer> first = new CopyOnWriteArrayList<>();
+        List<Integer> second = new CopyOnWriteArrayList<>();
+        // The first poll only records the head
+        assertEquals(0, poller.poll());
+        assertEquals(10, poller.getHeight());
+        poller.start(10);
+        poller.addListener(block -> first.add(block.getNumber()));
+        poller.addListener(block -> second.add(block.getNumber()));
+        poller.close();
+
+        poller.poll();
+        head.set(13);
+        poller.poll();
+        assertEquals(13, poller.getHeight());
+        // Each block is fetched once for all listeners, skipped heights included
+        assertEquals(Arrays.asList(11, 12, 13), fetched);
+        assertEquals(Arrays.asList(11, 12, 13), first);
+        assertEquals(Arrays.asList(11, 12, 13), second);
+    }
+
+    @Test
+    public void testFailingListener() {
+        AtomicInteger head = new AtomicInteger(0);
+        BlockPoller poller = new BlockPoller(createClient(head, new CopyOnWriteArrayList<>()));
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        poller.start(0);
+        poller.addListener(block -> {
+            throw new IllegalStateException("Listener failure");
+        });
+        poller.addListener(block -> received.add(block.getNumber()));
+        poller.close();
+
+        head.set(2);
+        poller.poll();
+        assertEquals(Arrays.asList(1, 2), received);
+    }
+
+    @Test
+    public void testRemoveListener() {
+        AtomicInteger head = new AtomicInteger(0);
+        BlockPoller poller = new BlockPoller(createClient(head, new CopyOnWriteArrayList<>()));
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        BlockListener listener = block -> received.add(block.getNumber());
+        poller.start(0);
+        poller.addListener(listener);
+        poller.close();
+
+        head.set(1);
+        poller.poll();
+        poller.removeListener(listener);
+        head.set(2);
+        poller.poll();
+        assertEquals(Arrays.asList(1), received);
+    }
+
+    @Test
+    public void testStartFromHeight() throws InterruptedException {
+        AtomicInteger head = new AtomicInteger(5);
+        List<Integer> fetched = new CopyOnWriteArrayList<>();
+        BlockPoller poller = new BlockPoller(createClient(head, fetched), false, 10, 10);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(5);
+        poller.addListener(block -> {
+            received.add(block.getNumber());
+            latch.countDown();
+        });
+        // Restart from an earlier height than the head
+        poller.close();
+        poller.start(2);
+        try {
+            head.set(7);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            poller.close();
+        }
+        assertEquals(Arrays.asList(3, 4, 5, 6, 7), received.subList(0, 5));
+    }
+
+    @Test(timeout = 5_000)
+    public void testCloseWithBacklog() throws InterruptedException {
+        AtomicInteger head = new AtomicInteger(100);
+        BlockPoller poller = new BlockPoller(createClient(head, new CopyOnWriteArrayList<>()), false, 10, 10);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch dispatching = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        poller.addListener(block -> {
+            received.add(block.getNumber());
+            dispatching.countDown();
+            try {
+                closed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        poller.close();
+        poller.start(0);
+        assertTrue(dispatching.await(5, TimeUnit.SECONDS));
+        // Doesn't wait for the remaining 99 blocks
+        poller.close();
+        closed.countDown();
+        Thread.sleep(100);
+        assertEquals(Arrays.asList(1), received);
+    }
+}
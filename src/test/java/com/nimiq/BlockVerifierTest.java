@@ -0,0 +1,193 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * BlockVerifierTest
+ */
+public class BlockVerifierTest {
+
+    private static String hash(int seed) {
+        byte[] hash = new byte[32];
+        Arrays.fill(hash, (byte) seed);
+        return NimiqUtils.toHex(hash);
+    }
+
+    private static String difficulty(int nBits, int digits) {
+        BigDecimal target = new BigDecimal(new BigInteger(1, Miner.compactToTarget(nBits)));
+        return new BigDecimal(BigInteger.ONE.shiftLeft(240)).divide(target, new MathContext(digits)).toPlainString();
+    }
+
+    /**
+     * Creates a block with a valid proof of work for an easy target.
+     */
+    private static Block createBlock(int number, int nBits, String difficulty, String interlinkHash) {
+        return createBlock(number, hash(number - 1), nBits, difficulty, interlinkHash);
+    }
+
+    private static Block createBlock(int number, String parentHash, int nBits, String difficulty,
+            String interlinkHash) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setParentHash(parentHash);
+        block.setBodyHash(hash(2));
+        block.setAccountHash(hash(3));
+        block.setDifficulty(difficulty);
+        block.setTimestamp(1_600_000_000 + number);
+        Argon2d argon2d = new Argon2d();
+        for (int nonce = 0;; nonce++) {
+            byte[] header = BlockAssembler.serializeHeader(1, block.getParentHash(), interlinkHash,
+                    block.getBodyHash(), block.getAccountHash(), nBits, number, block.getTimestamp(), nonce);
+            byte[] pow = argon2d.hash(header, 0, header.length);
+            if (Miner.meetsTarget(pow, Miner.compactToTarget(nBits))) {
+                block.setNonce(nonce);
+                block.setHash(NimiqUtils.toHex(Blake2b.hash(header)));
+                block.setPow(NimiqUtils.toHex(pow));
+                return block;
+            }
+        }
+    }
+
+    @Test
+    public void testDifficultyToCompact() {
+        assertEquals(0x1f010000, BlockVerifier.difficultyToCompact("1"));
+        assertEquals(0x1e00ffff, BlockVerifier.difficultyToCompact(difficulty(0x1e00ffff, 30)));
+        assertEquals(0x1d123456, BlockVerifier.difficultyToCompact(difficulty(0x1d123456, 30)));
+        assertEquals(0x20010000, BlockVerifier.difficultyToCompact("0.00390625"));
+    }
+
+    @Test
+    public void testVerify() {
+        String interlinkHash = hash(4);
+        Block block = createBlock(10, 0x20010000, "0.00390625", interlinkHash);
+        assertTrue(BlockVerifier.verifyHash(block, interlinkHash));
+        assertTrue(BlockVerifier.verify(block, interlinkHash));
+        byte[] header = BlockVerifier.serializeHeader(block, interlinkHash);
+        assertEquals(block.getHash(), NimiqUtils.toHex(Blake2b.hash(header)));
+        assertFalse(BlockVerifier.verifyHash(block, hash(5)));
+
+        block.setPow(hash(0));
+        assertTrue(BlockVerifier.verifyHash(block, interlinkHash));
+        assertFalse(BlockVerifier.verify(block, interlinkHash));
+    }
+
+    @Test
+    public void testRoundedDifficulty() {
+        // The rounded difficulty yields a nearby compact target
+        int nBits = 0x2000ffff;
+        String difficulty = difficulty(nBits, 4);
+        assertEquals(0x20010004, BlockVerifier.difficultyToCompact(difficulty));
+        String interlinkHash = hash(4);
+        Block block = createBlock(10, nBits, difficulty, interlinkHash);
+        assertTrue(BlockVerifier.verify(block, interlinkHash));
+        assertArrayEquals(new byte[] { 0x20, 0x00, (byte) 0xff, (byte) 0xff },
+                Arrays.copyOfRange(BlockVerifier.serializeHeader(block, interlinkHash), 130, 134));
+    }
+
+    @Test
+    public void testTamperedDifficulty() {
+        String interlinkHash = hash(4);
+        Block block = createBlock(10, 0x2000ffff, difficulty(0x2000ffff, 30), interlinkHash);
+        assertTrue(BlockVerifier.verify(block, interlinkHash));
+        // The header is still found among the nearby targets, but the difficulty
+        // doesn't belong to its target
+        block.setDifficulty(difficulty(0x2000ffff + 40, 30));
+        assertFalse(BlockVerifier.verifyHash(block, interlinkHash));
+        assertFalse(BlockVerifier.verify(block, interlinkHash));
+    }
+
+    @Test
+    public void testKnownAnswer() {
+        // Computed with the reference implementations of Argon2d (libargon2) and
+        // BLAKE2b, for the given interlink hash
+        Block block = new Block();
+        block.setNumber(2);
+        block.setParentHash("264aaf8a4f9828a76c550635da078eb466306a189fcc03710bee9f649c869d12");
+        block.setBodyHash("bfc4d85b5328076166b7e3779b2dde9c0a2dde14eb0c5fc827cc4201d7fdabf1");
+        block.setAccountHash("025e4b3c87f1f80eb3546e161b33e93c27a1d420c4863df7b75932c523f131dc");
+        block.setDifficulty("1");
+        block.setTimestamp(1523727060);
+        block.setNonce(35063);
+        block.setHash("2d262f9fb4b6010f232b7fc4270fd18e6a959607b3b19d92e2290468f44c9221");
+        block.setPow("0000e601cc88134535ef51db9890e4c563b39b62c2d63923e24af5514eef533b");
+
+        String interlinkHash = "0e5751c026e543b2e8ab2eb06099daa1d1e5df47778f7787faab45cdf12fe3a8";
+        assertTrue(BlockVerifier.verify(block, interlinkHash));
+        assertEquals("0001264aaf8a4f9828a76c550635da078eb466306a189fcc03710bee9f649c869d12"
+                + interlinkHash
+                + "bfc4d85b5328076166b7e3779b2dde9c0a2dde14eb0c5fc827cc4201d7fdabf1"
+                + "025e4b3c87f1f80eb3546e161b33e93c27a1d420c4863df7b75932c523f131dc"
+                + "1f010000000000025ad23ad4000088f7",
+                NimiqUtils.toHex(BlockVerifier.serializeHeader(block, interlinkHash)));
+
+        block.setPow("0000e601cc88134535ef51db9890e4c563b39b62c2d63923e24af5514eef533c");
+        assertFalse(BlockVerifier.verify(block, interlinkHash));
+    }
+
+    /**
+     * Creates a chain whose interlinks follow from the empty one of the first
+     * block, which carries the zero interlink hash like a genesis block.
+     */
+    private static List<Block> createChain(int length) {
+        List<Block> blocks = new ArrayList<>();
+        Block parent = createBlock(1, hash(0), 0x20010000, "0.00390625", hash(0));
+        blocks.add(parent);
+        BlockInterlink interlink = BlockInterlink.genesis(parent.getHash());
+        for (int i = 2; i <= length; i++) {
+            interlink = interlink.next(parent.getHash(), parent.getPow(), 0x20010000, 0x20010000);
+            parent = createBlock(i, parent.getHash(), 0x20010000, "0.00390625", interlink.getHash());
+            blocks.add(parent);
+        }
+        return blocks;
+    }
+
+    @Test
+    public void testVerifyAll() {
+        List<Block> blocks = createChain(20);
+        String genesisHash = blocks.get(0).getHash();
+        BlockInterlink genesis = BlockInterlink.genesis(genesisHash);
+        assertTrue(BlockVerifier.verifyAll(blocks, genesis, true).isEmpty());
+        // A wrong interlink fails the first block, its entry is shifted out of
+        // the interlink of the next
+        assertEquals(Arrays.asList(blocks.get(0)), BlockVerifier.verifyAll(blocks,
+                new BlockInterlink(Arrays.asList(hash(9)), hash(0), genesisHash), false));
+        // So does a wrong genesis hash, which is part of every other interlink hash
+        assertEquals(blocks.subList(1, 20), BlockVerifier.verifyAll(blocks, BlockInterlink.genesis(hash(9)), false));
+
+        blocks.get(3).setTimestamp(0);
+        // A wrong proof of work changes the interlink of the child as well
+        blocks.get(7).setPow(hash(1));
+        assertEquals(Arrays.asList(blocks.get(3), blocks.get(8)),
+                BlockVerifier.verifyAll(blocks, genesis, false));
+        assertEquals(Arrays.asList(blocks.get(3), blocks.get(7), blocks.get(8)),
+                BlockVerifier.verifyAll(blocks, genesis, true));
+    }
+
+    @Test
+    public void testBrokenChain() {
+        List<Block> blocks = createChain(5);
+        BlockInterlink genesis = BlockInterlink.genesis(blocks.get(0).getHash());
+        blocks.get(2).setParentHash(hash(7));
+        assertEquals(Arrays.asList(blocks.get(2)), BlockVerifier.verifyAll(blocks, genesis, false)
+                .subList(0, 1));
+        try {
+            BlockVerifier.verifyAll(Arrays.asList(blocks.get(0), blocks.get(2)), genesis, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Not consecutive
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ChainExporterTest
+ */
+public class ChainExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Fetcher that fails after delivering a number of blocks, like a crash.
+     */
+    private static class CrashingFetcher extends BlockFetcher {
+
+        private final int crashAfter;
+
+        CrashingFetcher(NimiqClient client, int crashAfter) {
+            super(client, 2);
+            this.crashAfter = crashAfter;
+        }
+
+        @Override
+        public int fetch(int from, int to, BlockListener consumer) throws IOException, InterruptedException {
+            int[] delivered = new int[1];
+            return super.fetch(from, to, block -> {
+                if (delivered[0]++ == crashAfter) {
+                    throw new IllegalStateException("Crash");
+                }
+                consumer.onBlock(block);
+            });
+        }
+    }
+
+    private static String address(int n) {
+        return String.format("%040x", n);
+    }
+
+    private static NimiqClient createClient() {
+        return createClient(100);
+    }
+
+    /**
+     * A node whose confirmations depend on its head.
+     */
+    private static NimiqClient createClient(int head) {
+        return new FakeNimiqClient()
+                .on("getBlockByNumber", args -> {
+                    int number = (Integer) args[0];
+                    Block block = new Block();
+                    block.setNumber(number);
+                    block.setConfirmations(head - number + 1);
+                    block.setHash(String.format("%064x", number));
+                    block.setTimestamp(1000 + number);
+                    block.setMiner(address(number % 7));
+                    List<Transaction> transactions = new ArrayList<>();
+                    for (int i = 0; i < number % 3; i++) {
+                        Transaction tx = new Transaction(String.format("%056x%08x", number, i));
+                        tx.setFrom(address(number % 5));
+                        tx.setTo(address(100 + number));
+                        tx.setValue(number * 1000L + i);
+                        tx.setFee(i);
+                        tx.setConfirmations(head - number + 1);
+                        transactions.add(tx);
+                    }
+                    block.setTransactions(transactions);
+                    return block;
+                })
+                .build();
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> !file.getFileName().toString().startsWith("export.checkpoint")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void testResume(ChainExporter.Format format) throws IOException, InterruptedException {
+        Path expected = folder.newFolder().toPath();
+        assertEquals(100, new ChainExporter(new BlockFetcher(createClient(), 2), expected, format).export(1, 100));
+
+        Path resumed = folder.newFolder().toPath();
+        ChainExporter crashing = new ChainExporter(new CrashingFetcher(createClient(), 57), resumed, format);
+        crashing.setCheckpointInterval(10);
+        try {
+            crashing.export(1, 100);
+            fail();
+        } catch (IllegalStateException e) {
+            // Blocks after the checkpoint at 50 were written before the crash
+        }
+        // The node moved on in the meantime
+        ChainExporter exporter = new ChainExporter(new BlockFetcher(createClient(120), 2), resumed, format);
+        exporter.setCheckpointInterval(10);
+        assertEquals(50, exporter.export(1, 100));
+        // Nothing left to do
+        assertEquals(0, exporter.export(1, 100));
+
+        List<Path> files = files(expected);
+        assertEquals(files.stream().map(Path::getFileName).collect(Collectors.toList()),
+                files(resumed).stream().map(Path::getFileName).collect(Collectors.toList()));
+        for (Path file : files) {
+            assertArrayEquals(file.getFileName().toString(), Files.readAllBytes(file),
+                    Files.readAllBytes(resumed.resolve(file.getFileName())));
+        }
+    }
+
+    @Test
+    public void testResumeJson() throws IOException, InterruptedException {
+        testResume(ChainExporter.Format.NDJSON);
+    }
+
+    @Test
+    public void testJsonFields() throws IOException, InterruptedException {
+        Path directory = folder.getRoot().toPath();
+        new ChainExporter(new BlockFetcher(createClient(), 2), directory, ChainExporter.Format.NDJSON).export(2, 2);
+        List<String> lines = Files.readAllLines(directory.resolve("blocks.ndjson"));
+        assertEquals(1, lines.size());
+        JsonNode block = new ObjectMapper().readTree(lines.get(0));
+        assertFalse(block.has("confirmations"));
+        assertEquals(2, block.get("number").asInt());
+        JsonNode tx = block.get("transactions").get(0);
+        assertEquals(2000, tx.get("value").asLong());
+        for (String field : new String[] { "confirmations", "validityStartHeight", "valid", "inMempool" }) {
+            assertFalse(field, tx.has(field));
+        }
+    }
+
+    @Test
+    public void testResumeColumnar() throws IOException, InterruptedException {
+        testResume(ChainExporter.Format.COLUMNAR);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFetcherCheckpoint() {
+        BlockFetcher fetcher = new BlockFetcher(createClient(), 2);
+        fetcher.setCheckpoint(folder.getRoot().toPath().resolve("checkpoint"), 10);
+        new ChainExporter(fetcher, folder.getRoot().toPath(), ChainExporter.Format.NDJSON);
+    }
+}
@@ -0,0 +1,136 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * ChainFollowerTest
+ */
+public class ChainFollowerTest {
+
+    private static Block createBlock(int number, String fork, String parentFork) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setHash(fork + number);
+        block.setParentHash(parentFork + (number - 1));
+        return block;
+    }
+
+    private static NimiqClient createClient(List<Block> chain) {
+        return new FakeNimiqClient()
+                .on("getBlockByNumber", args -> chain.get((Integer) args[0] - 1))
+                .build();
+    }
+
+    @Test
+    public void testFork() {
+        List<Block> chain = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            chain.add(createBlock(i, "a", "a"));
+        }
+        NimiqClient client = createClient(chain);
+
+        List<String> events = new ArrayList<>();
+        ChainFollower follower = new ChainFollower(client, 5, false);
+        follower.addListener(new ChainListener() {
+            @Override
+            public void blockConnected(Block block) {
+                events.add("+" + block.getHash());
+            }
+
+            @Override
+            public void blockDisconnected(Block block) {
+                events.add("-" + block.getHash());
+            }
+        });
+
+        for (int i = 0; i < 10; i++) {
+            follower.onBlock(chain.get(i));
+        }
+        assertEquals(10, events.size());
+        assertEquals("a10", follower.getHead().getHash());
+        assertEquals("a7", follower.getBlock(7).getHash());
+        events.clear();
+
+        // Fork off after block 8
+        chain.set(8, createBlock(9, "b", "a"));
+        chain.set(9, createBlock(10, "b", "b"));
+        chain.add(createBlock(11, "b", "b"));
+        follower.onBlock(chain.get(10));
+        assertEquals(Arrays.asList("-a10", "-a9", "+b9", "+b10", "+b11"), events);
+        assertEquals("b11", follower.getHead().getHash());
+    }
+
+    private static ChainListener recordEvents(List<String> events) {
+        return new ChainListener() {
+            @Override
+            public void blockConnected(Block block) {
+                events.add("+" + block.getHash());
+            }
+
+            @Override
+            public void blockDisconnected(Block block) {
+                events.add("-" + block.getHash());
+            }
+        };
+    }
+
+    @Test
+    public void testForkTooDeep() {
+        List<Block> chain = new ArrayList<>(Arrays.asList(createBlock(1, "b", "b"), createBlock(2, "b", "b"),
+                createBlock(3, "b", "b"), createBlock(4, "b", "b")));
+        ChainFollower follower = new ChainFollower(createClient(chain), 2, false);
+        follower.onBlock(createBlock(1, "a", "a"));
+        follower.onBlock(createBlock(2, "a", "a"));
+        follower.onBlock(createBlock(3, "a", "a"));
+        List<String> events = new ArrayList<>();
+        follower.addListener(recordEvents(events));
+        try {
+            follower.onBlock(chain.get(3));
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        // Nothing was emitted and the followed chain is unchanged
+        assertTrue(events.isEmpty());
+        assertEquals("a3", follower.getHead().getHash());
+        assertEquals("a2", follower.getBlock(2).getHash());
+    }
+
+    @Test
+    public void testChainChangedDuringFork() {
+        List<Block> chain = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            chain.add(createBlock(i, "a", "a"));
+        }
+        ChainFollower follower = new ChainFollower(createClient(chain), 5, false);
+        for (Block block : chain) {
+            follower.onBlock(block);
+        }
+        List<String> events = new ArrayList<>();
+        follower.addListener(recordEvents(events));
+
+        // The node already switched to a third branch that doesn't link to b6
+        chain.set(4, createBlock(5, "c", "a"));
+        try {
+            follower.onBlock(createBlock(6, "b", "b"));
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertTrue(events.isEmpty());
+        assertEquals("a5", follower.getHead().getHash());
+
+        // The next block of the new main chain resolves the fork
+        chain.add(createBlock(6, "c", "c"));
+        follower.onBlock(chain.get(5));
+        assertEquals(Arrays.asList("-a5", "+c5", "+c6"), events);
+    }
+}
@@ -0,0 +1,134 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * ConfirmationTrackerTest
+ */
+public class ConfirmationTrackerTest {
+
+    private static String hash(int n) {
+        return String.format("%064x", n);
+    }
+
+    private static NimiqClient createClient(AtomicInteger head, Map<String, TransactionReceipt> receipts) {
+        return new FakeNimiqClient()
+                .on("getBlockNumber", args -> head.get())
+                .on("getTransactionReceipt", args -> receipts.get(args[0]))
+                .build();
+    }
+
+    private static Block createBlock(int number, String fork, String... transactions) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setHash(fork + number);
+        block.setTimestamp(1000 + number);
+        block.setTransactions(Arrays.asList(Arrays.stream(transactions).map(Transaction::new)
+                .toArray(Transaction[]::new)));
+        return block;
+    }
+
+    @Test
+    public void testConfirmations() throws Exception {
+        ConfirmationTracker tracker = new ConfirmationTracker(createClient(new AtomicInteger(10), new HashMap<>()), 3);
+        CompletableFuture<TransactionReceipt> future = tracker.track(hash(1));
+        assertEquals(10, tracker.getHeight());
+
+        tracker.blockConnected(createBlock(11, "a", hash(2), hash(1)));
+        tracker.blockConnected(createBlock(12, "a"));
+        assertFalse(future.isDone());
+        tracker.blockConnected(createBlock(13, "a"));
+        TransactionReceipt receipt = future.get();
+        assertEquals(hash(1), receipt.getTransactionHash());
+        assertEquals("a11", receipt.getBlockHash());
+        assertEquals(11, receipt.getBlockNumber());
+        assertEquals(1, receipt.getTransactionIndex());
+        assertEquals(3, receipt.getConfirmations());
+        assertEquals(1011, receipt.getTimestamp());
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void testReorg() throws Exception {
+        ConfirmationTracker tracker = new ConfirmationTracker(createClient(new AtomicInteger(10), new HashMap<>()), 2);
+        CompletableFuture<TransactionReceipt> future = tracker.track(hash(1));
+
+        tracker.blockConnected(createBlock(11, "a", hash(1)));
+        tracker.blockDisconnected(createBlock(11, "a", hash(1)));
+        tracker.blockConnected(createBlock(11, "b"));
+        tracker.blockConnected(createBlock(12, "b"));
+        assertFalse(future.isDone());
+
+        // Mined again on the new branch
+        tracker.blockConnected(createBlock(13, "b", hash(1)));
+        tracker.blockConnected(createBlock(14, "b"));
+        assertEquals("b13", future.get().getBlockHash());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ConfirmationTracker tracker = new ConfirmationTracker(createClient(new AtomicInteger(0), new HashMap<>()), 1);
+        CompletableFuture<TransactionReceipt> future = tracker.track(hash(1), 100);
+        tracker.blockConnected(createBlock(100 + ConfirmationTracker.VALIDITY_WINDOW, "a"));
+        assertFalse(future.isDone());
+        tracker.blockConnected(createBlock(101 + ConfirmationTracker.VALIDITY_WINDOW, "a"));
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testHeadBeforeFirstBlock() {
+        // Tracked before any block was seen, it must not time out on the first block
+        NimiqClient client = createClient(new AtomicInteger(5000), new HashMap<>());
+        ConfirmationTracker tracker = new ConfirmationTracker(client, 1);
+        CompletableFuture<TransactionReceipt> future = tracker.track(hash(1));
+        tracker.blockConnected(createBlock(5001, "a"));
+        assertFalse(future.isDone());
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    public void testAlreadyMined() throws Exception {
+        Map<String, TransactionReceipt> receipts = new HashMap<>();
+        for (int i = 1; i <= 2; i++) {
+            TransactionReceipt receipt = new TransactionReceipt();
+            receipt.setTransactionHash(hash(i));
+            receipt.setBlockHash("a" + (100 * i));
+            receipt.setBlockNumber(100 * i);
+            receipt.setTransactionIndex(i);
+            receipt.setTimestamp(1000 + 100 * i);
+            receipts.put(hash(i), receipt);
+        }
+        ConfirmationTracker tracker = new ConfirmationTracker(createClient(new AtomicInteger(200), receipts), 2);
+
+        // Deep enough already
+        TransactionReceipt receipt = tracker.track(hash(1), 90).get();
+        assertEquals("a100", receipt.getBlockHash());
+        assertEquals(101, receipt.getConfirmations());
+        assertEquals(1, receipt.getTransactionIndex());
+
+        // Mined in the head block, confirmed by the next one
+        CompletableFuture<TransactionReceipt> future = tracker.track(hash(2), 190);
+        assertFalse(future.isDone());
+        tracker.blockConnected(createBlock(201, "a"));
+        assertEquals("a200", future.get().getBlockHash());
+        assertEquals(2, future.get().getConfirmations());
+    }
+}
@@ -0,0 +1,44 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Ed25519Test<br/>
+ * Test vectors from RFC 8032, section 7.1.
+ */
+public class Ed25519Test {
+
+    private static void assertVector(String privateKey, String publicKey, String message, String signature) {
+        byte[] key = NimiqUtils.fromHex(privateKey);
+        byte[] data = NimiqUtils.fromHex(message);
+        assertEquals(publicKey, NimiqUtils.toHex(Ed25519.publicKey(key)));
+        assertEquals(signature, NimiqUtils.toHex(Ed25519.sign(data, key, NimiqUtils.fromHex(publicKey))));
+        assertTrue(Ed25519.verify(NimiqUtils.fromHex(signature), data, NimiqUtils.fromHex(publicKey)));
+    }
+
+    @Test
+    public void testVectors() {
+        assertVector("9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60",
+                "d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a", "",
+                "e5564300c360ac729086e2cc806e828a84877f1eb8e5d974d873e06522490155"
+                        + "5fb8821590a33bacc61e39701cf9b46bd25bf5f0595bbe24655141438e7a100b");
+        assertVector("4ccd089b28ff96da9db6c346ec114e0f5b8a319f35aba624da8cf6ed4fb8a6fb",
+                "3d4017c3e843895a92b70aa74d1b7ebc9c982ccf2ec4968cc0cd55f12af4660c", "72",
+                "92a009a9f0d4cab8720e820b5f642540a2b27b5416503f8fb3762223ebdb69da"
+                        + "085ac1e43e15996e458f3613d0f11d8c387b2eaeb4302aeeb00d291612bb0c00");
+    }
+
+    @Test
+    public void testInvalidSignature() {
+        byte[] key = NimiqUtils.fromHex("9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60");
+        byte[] publicKey = Ed25519.publicKey(key);
+        byte[] signature = Ed25519.sign(new byte[] { 1, 2, 3 }, key, publicKey);
+        assertFalse(Ed25519.verify(signature, new byte[] { 1, 2, 4 }, publicKey));
+        signature[40] ^= 1;
+        assertFalse(Ed25519.verify(signature, new byte[] { 1, 2, 3 }, publicKey));
+    }
+}
@@ -0,0 +1,65 @@
+package com.nimiq;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds fake {@link NimiqClient}s for tests. Each method answers with the
+ * handler registered for its name, methods without a handler throw
+ * {@link UnsupportedOperationException}.
+ */
+final class FakeNimiqClient {
+
+    /**
+     * Answers a call of a client method.
+     */
+    interface Handler {
+
+        /**
+         * @param args The arguments of the call, or null for a method without
+         *             parameters
+         * @return The result of the call.
+         * @throws Throwable if the call fails
+         */
+        Object handle(Object[] args) throws Throwable;
+    }
+
+    private final Map<String, Handler> handlers = new HashMap<>();
+
+    /**
+     * Registers the handler of a method, replacing any previous one.
+     *
+     * @param method  Name of the method
+     * @param handler The handler
+     * @return This builder.
+     */
+    FakeNimiqClient on(String method, Handler handler) {
+        handlers.put(method, handler);
+        return this;
+    }
+
+    /**
+     * @return A client answering with the handlers registered so far.
+     */
+    NimiqClient build() {
+        Map<String, Handler> handlers = new HashMap<>(this.handlers);
+        return (NimiqClient) Proxy.newProxyInstance(NimiqClient.class.getClassLoader(),
+                new Class<?>[] { NimiqClient.class }, (proxy, method, args) -> {
+                    Handler handler = handlers.get(method.getName());
+                    if (handler != null) {
+                        return handler.handle(args);
+                    }
+                    switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "FakeNimiqClient@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,98 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Test;
+
+/**
+ * FeeEstimatorTest
+ */
+public class FeeEstimatorTest {
+
+    private static NimiqClient createClient(String mempool, long minFeePerByte) throws IOException {
+        Mempool result = new ObjectMapper().readValue(mempool, Mempool.class);
+        return new FakeNimiqClient()
+                .on("getMempool", args -> result)
+                .on("getMinFeePerByte", args -> minFeePerByte)
+                .build();
+    }
+
+    private static Block createBlock(int number, int size, long fee) {
+        Transaction tx = new Transaction(String.format("%064x", number));
+        tx.setFrom(String.format("%040x", 1));
+        tx.setTo(String.format("%040x", 2));
+        tx.setFee(fee);
+        Block block = new Block();
+        block.setNumber(number);
+        block.setSize(size);
+        block.setTransactions(Arrays.asList(tx));
+        return block;
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        FeeEstimator estimator = new FeeEstimator(createClient("{\"total\":0,\"buckets\":[]}", 0));
+        assertEquals(0, estimator.feePerByteFor(1));
+        estimator.sample();
+        assertEquals(0, estimator.feePerByteFor(1));
+        assertEquals(0, estimator.feePerByteFor(FeeEstimator.MAX_TARGET));
+    }
+
+    @Test
+    public void testMinFee() throws IOException {
+        FeeEstimator estimator = new FeeEstimator(createClient("{\"total\":0,\"buckets\":[]}", 2));
+        estimator.sample();
+        assertEquals(2, estimator.feePerByteFor(1));
+        assertEquals(2, estimator.feePerByteFor(FeeEstimator.MAX_TARGET));
+    }
+
+    @Test
+    public void testMempool() throws IOException {
+        // About two blocks worth of transactions paying 1000, and a few paying 5000
+        FeeEstimator estimator = new FeeEstimator(
+                createClient("{\"total\":1510,\"buckets\":[5000,1000],\"5000\":10,\"1000\":1500}", 1), 0, 0.9);
+        estimator.sample();
+        assertEquals(2000, estimator.feePerByteFor(1));
+        assertEquals(2000, estimator.feePerByteFor(2));
+        assertEquals(1, estimator.feePerByteFor(3));
+    }
+
+    @Test
+    public void testMempoolDecay() throws IOException {
+        FeeEstimator estimator = new FeeEstimator(
+                createClient("{\"total\":1000,\"buckets\":[1000],\"1000\":1000}", 0), 0.5, 0.9);
+        // Half the transactions after one sample, all of them after many
+        estimator.sample();
+        assertEquals(0, estimator.feePerByteFor(1));
+        for (int i = 0; i < 10; i++) {
+            estimator.sample();
+        }
+        assertEquals(2000, estimator.feePerByteFor(1));
+    }
+
+    @Test
+    public void testBlocks() throws IOException {
+        FeeEstimator estimator = new FeeEstimator(createClient("{\"total\":0,\"buckets\":[]}", 0), 0, 0.9);
+        // Full blocks accepting 100 per byte at least, then blocks with space left
+        for (int i = 1; i <= 50; i++) {
+            estimator.onBlock(createBlock(i, 99_000, 100 * TransactionFormat.BASIC_SIZE));
+        }
+        assertEquals(100, estimator.feePerByteFor(1));
+        assertEquals(100, estimator.feePerByteFor(FeeEstimator.MAX_TARGET));
+        for (int i = 51; i <= 55; i++) {
+            estimator.onBlock(createBlock(i, 1_000, 100 * TransactionFormat.BASIC_SIZE));
+        }
+        assertEquals(100, estimator.feePerByteFor(1));
+        assertEquals(0, estimator.feePerByteFor(10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTarget() throws IOException {
+        new FeeEstimator(createClient("{\"total\":0,\"buckets\":[]}", 0)).feePerByteFor(0);
+    }
+}
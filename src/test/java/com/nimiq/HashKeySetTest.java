@@ -0,0 +1,61 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * HashKeySetTest
+ */
+public class HashKeySetTest {
+
+    @Test
+    public void testAddRemove() {
+        Random random = new Random(42);
+        Set<String> expected = new HashSet<>();
+        HashKeySet set = new HashKeySet(20, 0);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] key = new byte[20];
+            random.nextBytes(key);
+            key[0] = (byte) (i % 4); // force some collisions
+            String hex = NimiqUtils.toHex(key);
+            assertTrue(set.add(hex));
+            assertFalse(set.add(hex));
+            expected.add(hex);
+        }
+        int i = 0;
+        for (String hex : new HashSet<>(expected)) {
+            if (i++ % 3 == 0) {
+                assertTrue(set.remove(hex));
+                assertFalse(set.remove(hex));
+                expected.remove(hex);
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (String hex : expected) {
+            assertTrue(set.contains(hex));
+        }
+
+        Set<String> actual = new HashSet<>();
+        set.forEach(actual::add);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testIntern() {
+        HashKeySet set = new HashKeySet(32, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, set.intern(String.format("%064x", i)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, set.intern(String.format("%064x", i)));
+        }
+        assertEquals(1000, set.size());
+    }
+}
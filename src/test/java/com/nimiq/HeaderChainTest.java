@@ -0,0 +1,127 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * HeaderChainTest
+ */
+public class HeaderChainTest {
+
+    private static Block createBlock(int number, int fork) {
+        Block block = new Block();
+        block.setNumber(number);
+        block.setHash(String.format("%08x%056x", fork, number));
+        block.setParentHash(String.format("%08x%056x", number > 1 ? fork : 0, number - 1));
+        block.setTimestamp(1_000_000 + number * 60);
+        block.setDifficulty(String.valueOf(number));
+        return block;
+    }
+
+    private static NimiqClient createClient(List<Block> chain) {
+        return new FakeNimiqClient()
+                .on("getBlockNumber", args -> chain.size())
+                .on("getBlockByNumber", args -> chain.get((Integer) args[0] - 1))
+                .build();
+    }
+
+    @Test
+    public void testLookups() {
+        HeaderChain chain = new HeaderChain(16);
+        for (int i = 1; i <= 1000; i++) {
+            chain.add(createBlock(i, 0));
+        }
+        assertEquals(1, chain.getFirstHeight());
+        assertEquals(1000, chain.getHeadHeight());
+        for (int i = 1; i <= 1000; i++) {
+            String hash = createBlock(i, 0).getHash();
+            assertEquals(hash, chain.getHash(i));
+            assertEquals(i, chain.getHeight(hash));
+            assertEquals(1_000_000 + i * 60, chain.getTimestamp(i));
+            assertEquals(i, chain.getDifficulty(i), 0);
+        }
+        assertNull(chain.getHash(1001));
+        assertEquals(-1, chain.getHeight(createBlock(1, 1).getHash()));
+        assertEquals(-1, chain.getHeightAt(1_000_000));
+        assertEquals(1, chain.getHeightAt(1_000_060));
+        assertEquals(10, chain.getHeightAt(1_000_659));
+        assertEquals(1000, chain.getHeightAt(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testChunks() {
+        // Crosses the boundaries of the 64K block chunks and grows the hash table
+        HeaderChain chain = new HeaderChain(16);
+        for (int i = 1; i <= 140_000; i++) {
+            chain.add(createBlock(i, 0));
+        }
+        for (int i : new int[] { 1, 65_535, 65_536, 65_537, 131_072, 131_073, 140_000 }) {
+            assertEquals(createBlock(i, 0).getHash(), chain.getHash(i));
+            assertEquals(i, chain.getHeight(createBlock(i, 0).getHash()));
+            assertEquals(1_000_000 + i * 60, chain.getTimestamp(i));
+            assertEquals(i, chain.getDifficulty(i), 0);
+        }
+        assertEquals(65_536, chain.getHeightAt(1_000_000 + 65_536 * 60 + 59));
+        chain.rewind(65_536);
+        assertEquals(-1, chain.getHeight(createBlock(65_537, 0).getHash()));
+        chain.add(createBlock(65_537, 0));
+        assertEquals(65_537, chain.getHeight(createBlock(65_537, 0).getHash()));
+    }
+
+    @Test
+    public void testRewind() {
+        HeaderChain chain = new HeaderChain();
+        for (int i = 1; i <= 100; i++) {
+            chain.add(createBlock(i, 0));
+        }
+        chain.rewind(50);
+        assertEquals(50, chain.getHeadHeight());
+        assertFalse(chain.contains(createBlock(51, 0).getHash()));
+        assertTrue(chain.contains(createBlock(50, 0).getHash()));
+        for (int i = 1; i <= 50; i++) {
+            assertEquals(i, chain.getHeight(createBlock(i, 0).getHash()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddUnconnected() {
+        HeaderChain chain = new HeaderChain();
+        chain.add(createBlock(1, 0));
+        chain.add(createBlock(2, 1));
+    }
+
+    @Test
+    public void testSyncWithFork() {
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            blocks.add(createBlock(i, 0));
+        }
+        NimiqClient client = createClient(blocks);
+        HeaderChain chain = new HeaderChain();
+        assertEquals(20, chain.sync(client));
+        assertEquals(0, chain.sync(client));
+
+        // Replace the last 5 blocks by a longer fork
+        blocks.subList(15, 20).clear();
+        Block forkBase = blocks.get(14);
+        for (int i = 16; i <= 22; i++) {
+            Block block = createBlock(i, 1);
+            if (i == 16) {
+                block.setParentHash(forkBase.getHash());
+            }
+            blocks.add(block);
+        }
+        assertEquals(7, chain.sync(client));
+        assertEquals(22, chain.getHeadHeight());
+        assertEquals(15, chain.getHeight(forkBase.getHash()));
+        assertEquals(-1, chain.getHeight(createBlock(16, 0).getHash()));
+        assertEquals(16, chain.getHeight(createBlock(16, 1).getHash()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * MempoolWatcherTest
+ */
+public class MempoolWatcherTest {
+
+    private static String hash(int n) {
+        return String.format("%064x", n);
+    }
+
+    private static NimiqClient createClient(List<String> mempool, Map<String, Transaction> transactions) {
+        return new FakeNimiqClient()
+                .on("getMempoolContent", args -> mempool.stream().map(Transaction::new).collect(Collectors.toList()))
+                .on("getTransactionByHash", args -> transactions.get(args[0]))
+                .build();
+    }
+
+    private static MempoolListener recordEvents(List<String> events) {
+        return new MempoolListener() {
+            @Override
+            public void transactionAdded(Transaction transaction) {
+                events.add("+" + transaction.getHash());
+            }
+
+            @Override
+            public void transactionRemoved(String hash) {
+                events.add("-" + hash);
+            }
+        };
+    }
+
+    @Test
+    public void testDiff() {
+        List<String> mempool = new ArrayList<>();
+        Map<String, Transaction> transactions = new HashMap<>();
+        for (int i = 1; i <= 4; i++) {
+            transactions.put(hash(i), new Transaction(hash(i)));
+        }
+        MempoolWatcher watcher = new MempoolWatcher(createClient(mempool, transactions));
+        List<String> events = new ArrayList<>();
+        watcher.addListener(recordEvents(events));
+
+        mempool.addAll(Arrays.asList(hash(1), hash(2)));
+        watcher.poll();
+        assertEquals(Arrays.asList("+" + hash(1), "+" + hash(2)), events);
+        assertEquals(2, watcher.size());
+        events.clear();
+
+        watcher.poll();
+        assertTrue(events.isEmpty());
+
+        mempool.remove(hash(1));
+        mempool.add(hash(3));
+        watcher.poll();
+        assertEquals(Arrays.asList("+" + hash(3), "-" + hash(1)), events);
+        assertEquals(2, watcher.size());
+    }
+
+    @Test
+    public void testEvicted() {
+        List<String> mempool = new ArrayList<>(Arrays.asList(hash(1), hash(2)));
+        Map<String, Transaction> transactions = new HashMap<>();
+        transactions.put(hash(1), new Transaction(hash(1)));
+        MempoolWatcher watcher = new MempoolWatcher(createClient(mempool, transactions));
+        List<String> events = new ArrayList<>();
+        watcher.addListener(recordEvents(events));
+
+        // The second transaction was evicted between listing and fetching it
+        watcher.poll();
+        assertEquals(Arrays.asList("+" + hash(1)), events);
+        assertEquals(1, watcher.size());
+        events.clear();
+
+        // It is retried on the next poll, and never reported as removed
+        transactions.put(hash(2), new Transaction(hash(2)));
+        watcher.poll();
+        assertEquals(Arrays.asList("+" + hash(2)), events);
+        events.clear();
+
+        mempool.clear();
+        watcher.poll();
+        events.sort(null);
+        assertEquals(Arrays.asList("-" + hash(1), "-" + hash(2)), events);
+        assertEquals(0, watcher.size());
+    }
+}
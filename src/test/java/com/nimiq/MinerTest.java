@@ -0,0 +1,68 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * MinerTest
+ */
+public class MinerTest {
+
+    @Test
+    public void testCompactToTarget() {
+        assertEquals("0001000000000000000000000000000000000000000000000000000000000000",
+                NimiqUtils.toHex(Miner.compactToTarget(0x1f010000)));
+        assertEquals("00000000000000000000000000000000000000000000000000000000000000ff",
+                NimiqUtils.toHex(Miner.compactToTarget(0x0200ff00)));
+
+        byte[] target = Miner.compactToTarget(0x1f010000);
+        assertTrue(Miner.meetsTarget(target, target));
+        byte[] hash = target.clone();
+        hash[3] = 1;
+        assertFalse(Miner.meetsTarget(hash, target));
+        hash[1] = 0;
+        assertTrue(Miner.meetsTarget(hash, target));
+    }
+
+    @Test
+    public void testMining() throws InterruptedException {
+        // One in 256 hashes meets the target
+        Work work = new Work();
+        work.setData(NimiqUtils.toHex(new byte[146]));
+        work.setSuffix("abcd");
+        work.setTarget(0x2000ffff);
+        work.setAlgorithm("nimiq-argon2");
+        BlockingQueue<String> submitted = new LinkedBlockingQueue<>();
+        NimiqClient client = new FakeNimiqClient()
+                .on("getWork", args -> {
+                    assertEquals("NQ07 0000 0000 0000 0000 0000 0000 0000 0000", args[0]);
+                    return work;
+                })
+                .on("submitBlock", args -> {
+                    submitted.add((String) args[0]);
+                    return null;
+                })
+                .build();
+
+        try (Miner miner = new Miner(client, "NQ07 0000 0000 0000 0000 0000 0000 0000 0000", "", 2)) {
+            miner.start(100);
+            String block = submitted.poll(60, TimeUnit.SECONDS);
+            assertNotNull(block);
+            assertTrue(block.endsWith("abcd"));
+            byte[] header = NimiqUtils.fromHex(block.substring(0, block.length() - 4));
+            assertEquals(146, header.length);
+            byte[] hash = new Argon2d().hash(header, 0, header.length);
+            assertTrue(Miner.meetsTarget(hash, Miner.compactToTarget(work.getTarget())));
+            assertTrue(miner.getBlocksFound() >= 1);
+            assertTrue(miner.getHashes() >= 1);
+        }
+    }
+}
@@ -232,6 +232,46 @@ public class NimiqClientTest {
         assertTrue(txAfter.isInMempool());
     }
 
+    @Test
+    public void testLocalSigning() {
+        // RFC 8032 test key, the account doesn't need any balance
+        final TransactionSigner signer = new TransactionSigner(
+                "9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60", TransactionSigner.TEST_NET);
+        final int height = client.getBlockNumber();
+
+        final OutgoingTransaction basicTx = createTransaction(signer.getAddress(), NULL_ADDRESS, 1_00000, MIN_FEE);
+        final String basicHex = signer.sign(basicTx, height);
+        final Transaction basicInfo = client.getRawTransactionInfo(basicHex);
+        assertEquals(NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(basicHex))), basicInfo.getHash());
+        assertEquals(signer.getAddress(), basicInfo.getFromAddress());
+        assertEquals(NULL_ADDRESS, basicInfo.getToAddress());
+        assertTrue(basicInfo.isValid());
+
+        final OutgoingTransaction extendedTx = createTransaction(signer.getAddress(), Account.Type.BASIC,
+                NULL_ADDRESS, Account.Type.BASIC, 1_00000, MIN_FEE, "4e696d6971", 0);
+        final String extendedHex = signer.sign(extendedTx, height);
+        final Transaction extendedInfo = client.getRawTransactionInfo(extendedHex);
+        assertEquals(NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(extendedHex))),
+                extendedInfo.getHash());
+        assertEquals("4e696d6971", extendedInfo.getData());
+        assertTrue(extendedInfo.isValid());
+    }
+
+    @Test
+    public void testLocalDecoding() {
+        final OutgoingTransaction outTx = createTransaction(testAccount.getAddress(), NULL_ADDRESS, 7_00000, MIN_FEE);
+        final String txHex = client.createRawTransaction(outTx);
+
+        final Transaction expected = client.getRawTransactionInfo(txHex);
+        final Transaction actual = TransactionDecoder.decode(txHex);
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.getFromAddress(), actual.getFromAddress());
+        assertEquals(expected.getToAddress(), actual.getToAddress());
+        assertEquals(expected.getValue(), actual.getValue());
+        assertEquals(expected.getFee(), actual.getFee());
+        assertTrue(actual.isValid());
+    }
+
     @Test
     public void testGetTransactionByBlockHashAndIndex() {
         assertNull(client.getTransactionByBlockHashAndIndex(UNKNOWN_HASH, 0));
@@ -402,6 +442,41 @@ public class NimiqClientTest {
         assertEquals(template.getTarget(), template.getHeader().getnBits());
     }
 
+    @Test
+    public void testBlockAssembly() {
+        final BlockTemplate template = client.getBlockTemplate(testAccount.getAddress(), "");
+        final BlockAssembler assembler = new BlockAssembler(template);
+        assertEquals(template.getBody().getHash(), assembler.getBodyHash(""));
+        final byte[] header = assembler.header("", 0, 0);
+        assertEquals(BlockAssembler.HEADER_SIZE, header.length);
+        assertTrue(assembler.block("", 0, 0).startsWith(NimiqUtils.toHex(header) + template.getInterlink()));
+    }
+
+    @Test
+    public void testProofOfWork() {
+        // The genesis block has an empty interlink with the zero hash
+        final Block genesis = client.getBlockByNumber(1, false);
+        final byte[] header = BlockVerifier.serializeHeader(genesis,
+                BlockInterlink.genesis(genesis.getHash()).getHash());
+        assertEquals(genesis.getHash(), NimiqUtils.toHex(Blake2b.hash(header)));
+        assertEquals(genesis.getPow(), NimiqUtils.toHex(new Argon2d().hash(header, 0, header.length)));
+    }
+
+    @Test
+    public void testBlockVerification() {
+        // The template comes with the interlink of the next block
+        final String genesisHash = client.getBlockByNumber(1, false).getHash();
+        final BlockTemplate template = client.getBlockTemplate(testAccount.getAddress(), "");
+        assertEquals(template.getHeader().getInterlinkHash(), BlockInterlink.parse(template.getInterlink(),
+                template.getHeader().getPrevHash(), genesisHash).getHash());
+
+        // The interlinks of the chain follow from the empty one of the genesis block
+        final List<Block> blocks = IntStream.rangeClosed(1, Math.min(client.getBlockNumber(), 100))
+                .mapToObj(i -> client.getBlockByNumber(i, false))
+                .collect(Collectors.toList());
+        assertTrue(BlockVerifier.verifyAll(blocks, BlockInterlink.genesis(genesisHash), true).isEmpty());
+    }
+
     @Test
     public void testSubmitBlock() {
         final Work work = client.getWork(testAccount.getAddress(), "");
@@ -1,5 +1,6 @@
 package com.nimiq;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.math.BigDecimal;
@@ -7,7 +8,11 @@ import java.math.BigDecimal;
 import org.junit.Test;
 
 import static com.nimiq.NimiqUtils.coinsToLunas;
+import static com.nimiq.NimiqUtils.fromHex;
+import static com.nimiq.NimiqUtils.fromUserFriendlyAddress;
 import static com.nimiq.NimiqUtils.lunasToCoins;
+import static com.nimiq.NimiqUtils.toHex;
+import static com.nimiq.NimiqUtils.toUserFriendlyAddress;
 
 /**
  * NimiqUtilsTest
@@ -31,4 +36,34 @@ public class NimiqUtilsTest {
         assertEquals(166667, coinsToLunas(new BigDecimal("1.666666")));
         assertEquals(200000, coinsToLunas(new BigDecimal("1.999999")));
     }
+
+    @Test
+    public void testHex() {
+        assertEquals("", toHex(new byte[0]));
+        assertEquals("00ff7f80", toHex(new byte[] { 0, -1, 127, -128 }));
+        assertArrayEquals(new byte[] { 0, -1, 127, -128 }, fromHex("00FF7f80"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHex() {
+        fromHex("0g");
+    }
+
+    @Test
+    public void testToUserFriendlyAddress() {
+        assertEquals("NQ07 0000 0000 0000 0000 0000 0000 0000 0000", toUserFriendlyAddress(new byte[20]));
+    }
+
+    @Test
+    public void testFromUserFriendlyAddress() {
+        assertArrayEquals(new byte[20], fromUserFriendlyAddress("NQ07 0000 0000 0000 0000 0000 0000 0000 0000"));
+        byte[] address = fromHex("0123456789abcdef0123456789abcdef01234567");
+        assertArrayEquals(address, fromUserFriendlyAddress(toUserFriendlyAddress(address)));
+        assertArrayEquals(address, fromUserFriendlyAddress(toUserFriendlyAddress(address).replace(" ", "")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidUserFriendlyAddress() {
+        fromUserFriendlyAddress("NQ08 0000 0000 0000 0000 0000 0000 0000 0000");
+    }
 }
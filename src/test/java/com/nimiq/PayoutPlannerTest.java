@@ -0,0 +1,132 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Test;
+
+/**
+ * PayoutPlannerTest
+ */
+public class PayoutPlannerTest {
+
+    private static String address(int i) {
+        return String.format("%040x", i);
+    }
+
+    private static NimiqClient createClient(Map<String, Long> balances, int[] requests) throws IOException {
+        Mempool mempool = new ObjectMapper().readValue("{\"total\":0,\"buckets\":[]}", Mempool.class);
+        return new FakeNimiqClient()
+                .on("getMempool", args -> mempool)
+                .on("getMinFeePerByte", args -> 1L)
+                .on("getAccount", args -> {
+                    requests[0]++;
+                    Account account = new Account();
+                    account.setId((String) args[0]);
+                    account.setBalance(balances.getOrDefault(args[0], 0L));
+                    account.setType(Account.Type.BASIC);
+                    return account;
+                })
+                .build();
+    }
+
+    private static PayoutPlanner createPlanner(Map<String, Long> balances, int[] requests, int batchSize)
+            throws IOException {
+        NimiqClient client = createClient(balances, requests);
+        FeeEstimator estimator = new FeeEstimator(client);
+        estimator.sample();
+        return new PayoutPlanner(client, estimator, batchSize);
+    }
+
+    @Test
+    public void testSpread() throws IOException {
+        Map<String, Long> balances = new HashMap<>();
+        balances.put(address(1), 1_000_000L);
+        balances.put(address(2), 1_000_000L);
+        int[] requests = new int[1];
+        PayoutPlanner planner = createPlanner(balances, requests, 3);
+
+        Map<String, Long> payouts = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            payouts.put(address(100 + i), 1000L + i);
+        }
+        PayoutPlanner.Plan plan = planner.plan(payouts, Arrays.asList(address(1), address(2)), 1);
+        assertEquals(2, requests[0]);
+        assertTrue(plan.getUnpaid().isEmpty());
+        assertEquals(10 * 1000 + 45, plan.getValue());
+        assertEquals(10 * TransactionFormat.BASIC_SIZE, plan.getFee());
+
+        // Batches of 3, 3, 2, 2 alternating between the wallets
+        List<PayoutPlanner.Batch> batches = plan.getBatches();
+        assertEquals(4, batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            assertEquals(address(1 + i % 2), batches.get(i).getFrom());
+            assertEquals(i < 2 ? 3 : 2, batches.get(i).getTransactions().size());
+        }
+        OutgoingTransaction first = batches.get(0).getTransactions().get(0);
+        assertEquals(address(109), first.getTo());
+        assertEquals(1009, first.getValue());
+        assertEquals(TransactionFormat.BASIC_SIZE, first.getFee());
+    }
+
+    @Test
+    public void testUnpaid() throws IOException {
+        Map<String, Long> balances = new HashMap<>();
+        balances.put(address(1), 10_000L + TransactionFormat.BASIC_SIZE);
+        balances.put(address(2), 5_000L + TransactionFormat.BASIC_SIZE);
+        PayoutPlanner planner = createPlanner(balances, new int[1], PayoutPlanner.DEFAULT_BATCH_SIZE);
+
+        Map<String, Long> payouts = new LinkedHashMap<>();
+        payouts.put(address(100), 20_000L);
+        payouts.put(address(101), 10_000L);
+        payouts.put(address(102), 5_000L);
+        payouts.put(address(103), 1L);
+        PayoutPlanner.Plan plan = planner.plan(payouts, Arrays.asList(address(1), address(2)), 1);
+        assertEquals(15_000, plan.getValue());
+        assertEquals(2, plan.getBatches().size());
+        assertEquals(address(1), plan.getBatches().get(0).getFrom());
+        assertEquals(10_000, plan.getBatches().get(0).getValue());
+        assertEquals(address(2), plan.getBatches().get(1).getFrom());
+        assertEquals(5_000, plan.getBatches().get(1).getValue());
+        assertEquals(2, plan.getUnpaid().size());
+        assertEquals(Long.valueOf(20_000), plan.getUnpaid().get(address(100)));
+        assertEquals(Long.valueOf(1), plan.getUnpaid().get(address(103)));
+    }
+
+    @Test
+    public void testManyPayouts() throws IOException {
+        Map<String, Long> balances = new HashMap<>();
+        for (int i = 1; i <= 4; i++) {
+            balances.put(address(i), Long.MAX_VALUE / 8);
+        }
+        PayoutPlanner planner = createPlanner(balances, new int[1], PayoutPlanner.DEFAULT_BATCH_SIZE);
+
+        Map<String, Long> payouts = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            payouts.put(address(1000 + i), 1 + i % 1000L);
+        }
+        long start = System.nanoTime();
+        PayoutPlanner.Plan plan = planner.plan(payouts,
+                Arrays.asList(address(1), address(2), address(3), address(4)), 10);
+        long duration = (System.nanoTime() - start) / 1_000_000;
+        assertTrue("Planning took " + duration + " ms", duration < 5_000);
+        assertEquals(200, plan.getBatches().size());
+        assertEquals(100_000L * TransactionFormat.BASIC_SIZE, plan.getFee());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRecipient() throws IOException {
+        PayoutPlanner planner = createPlanner(new HashMap<>(), new int[1], PayoutPlanner.DEFAULT_BATCH_SIZE);
+        planner.plan(Collections.singletonMap("NQ00 INVALID", 1L), Arrays.asList(address(1)), 1);
+    }
+}
@@ -0,0 +1,200 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.googlecode.jsonrpc4j.JsonRpcClientException;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+
+/**
+ * RpcMetricsTest
+ */
+public class RpcMetricsTest {
+
+    private static NimiqClient createClient() {
+        return new FakeNimiqClient()
+                .on("getPeerCount", args -> 6)
+                .on("toString", args -> "client")
+                .on("getBlockNumber", args -> {
+                    throw new JsonRpcClientException(-32601, "Method not found", null);
+                })
+                .on("getHashrate", args -> {
+                    throw new UndeclaredThrowableException(new IOException("Connection refused"));
+                })
+                .build();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000, histogram.getSum());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(1_000_000, histogram.getPercentile(100));
+        for (double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+            long expected = (long) Math.ceil(percentile * 10) * 1000;
+            long actual = histogram.getPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 32);
+        }
+
+        for (long value : new long[] { 0, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE }) {
+            int index = LatencyHistogram.indexOf(value);
+            long highest = LatencyHistogram.highestEquivalent(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 32);
+            if (highest < Long.MAX_VALUE) {
+                assertEquals(index + 1, LatencyHistogram.indexOf(highest + 1));
+            }
+        }
+    }
+
+    @Test
+    public void testClassification() {
+        RpcMetrics metrics = new RpcMetrics();
+        NimiqClient client = MeteredClient.create(createClient(), metrics, null);
+
+        assertEquals(6, client.getPeerCount());
+        assertEquals(6, client.getPeerCount());
+        try {
+            client.getBlockNumber();
+            fail();
+        } catch (JsonRpcClientException e) {
+            assertEquals(-32601, e.getCode());
+        }
+        try {
+            client.getHashrate();
+            fail();
+        } catch (UndeclaredThrowableException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals("client", client.toString());
+
+        assertEquals(3, metrics.getMethods().size());
+        RpcMetrics.MethodMetrics peerCount = metrics.getMethod("peerCount");
+        assertEquals(2, peerCount.getCalls());
+        assertTrue(peerCount.getErrors().isEmpty());
+        assertEquals(0, peerCount.getTransportErrors());
+        assertTrue(peerCount.getLatencyPercentile(50) > 0);
+
+        RpcMetrics.MethodMetrics blockNumber = metrics.getMethod("blockNumber");
+        assertEquals(1, blockNumber.getCalls());
+        assertEquals(Collections.singletonMap(-32601, 1L), blockNumber.getErrors());
+        assertEquals(0, blockNumber.getTransportErrors());
+
+        RpcMetrics.MethodMetrics hashrate = metrics.getMethod("hashrate");
+        assertEquals(1, hashrate.getCalls());
+        assertTrue(hashrate.getErrors().isEmpty());
+        assertEquals(1, hashrate.getTransportErrors());
+        assertNull(metrics.getMethod("getHashrate"));
+    }
+
+    @Test
+    public void testPrometheus() throws IOException {
+        RpcMetrics metrics = new RpcMetrics();
+        metrics.recordSuccess("peerCount", 2_000_000, 60, 40);
+        metrics.recordError("blockNumber", 1_000_000, 62, 90, -32601);
+        metrics.recordTransportError("blockNumber", 30_000_000_000L, 62);
+
+        String text = metrics.toPrometheus();
+        assertTrue(text.contains("# TYPE nimiq_rpc_calls_total counter\n"));
+        assertTrue(text.contains("nimiq_rpc_calls_total{method=\"blockNumber\"} 2\n"));
+        assertTrue(text.contains("nimiq_rpc_calls_total{method=\"peerCount\"} 1\n"));
+        assertTrue(text.contains("nimiq_rpc_errors_total{method=\"blockNumber\",code=\"-32601\"} 1\n"));
+        assertTrue(text.contains("nimiq_rpc_transport_errors_total{method=\"blockNumber\"} 1\n"));
+        assertTrue(text.contains("nimiq_rpc_request_bytes_total{method=\"blockNumber\"} 124\n"));
+        assertTrue(text.contains("nimiq_rpc_response_bytes_total{method=\"blockNumber\"} 90\n"));
+        assertTrue(text.contains("nimiq_rpc_latency_seconds{method=\"peerCount\",quantile=\"0.5\"} 0.002000000\n"));
+        assertTrue(text.contains("nimiq_rpc_latency_seconds_sum{method=\"blockNumber\"} 30.001000000\n"));
+        assertTrue(text.contains("nimiq_rpc_latency_seconds_count{method=\"blockNumber\"} 2\n"));
+
+        try (PrometheusEndpoint endpoint = new PrometheusEndpoint(metrics, new InetSocketAddress("127.0.0.1", 0))) {
+            URL url = new URL("http://127.0.0.1:" + endpoint.getAddress().getPort() + "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+            try (InputStream in = connection.getInputStream()) {
+                assertEquals(metrics.toPrometheus(), read(in));
+            }
+        }
+    }
+
+    @Test
+    public void testFactory() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            ObjectNode request = (ObjectNode) mapper.readTree(read(exchange.getRequestBody()));
+            ObjectNode response = mapper.createObjectNode();
+            response.put("jsonrpc", "2.0");
+            response.set("id", request.get("id"));
+            if ("peerCount".equals(request.get("method").asText())) {
+                response.put("result", 6);
+            } else {
+                response.putObject("error").put("code", -32601).put("message", "Method not found");
+            }
+            byte[] bytes = mapper.writeValueAsBytes(response);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        try {
+            NimiqClientFactory factory = new NimiqClientFactory(
+                    new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/"));
+            RpcMetrics metrics = new RpcMetrics();
+            NimiqClient client = factory.getClient(metrics);
+
+            assertEquals(6, client.getPeerCount());
+            try {
+                client.getBlockNumber();
+                fail();
+            } catch (JsonRpcClientException e) {
+                assertEquals(-32601, e.getCode());
+            }
+            // Calls of an unmetered client aren't counted
+            assertEquals(6, factory.getClient().getPeerCount());
+
+            RpcMetrics.MethodMetrics peerCount = metrics.getMethod("peerCount");
+            assertEquals(1, peerCount.getCalls());
+            assertTrue(peerCount.getRequestBytes() > "{\"method\":\"peerCount\"}".length());
+            assertTrue(peerCount.getResponseBytes() > "{\"result\":6}".length());
+            RpcMetrics.MethodMetrics blockNumber = metrics.getMethod("blockNumber");
+            assertEquals(Collections.singletonMap(-32601, 1L), blockNumber.getErrors());
+            assertTrue(blockNumber.getResponseBytes() > 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * ShareValidatorTest
+ */
+public class ShareValidatorTest {
+
+    // Half of the hashes meet the share target, and about a sixteenth the block
+    // target
+    private static final int SHARE_TARGET = 0x207fffff;
+    private static final int BLOCK_TARGET = 0x200fffff;
+
+    private static Work createWork() {
+        Work work = new Work();
+        work.setData(NimiqUtils.toHex(new byte[BlockAssembler.HEADER_SIZE]));
+        work.setSuffix("");
+        work.setTarget(BLOCK_TARGET);
+        work.setAlgorithm("nimiq-argon2");
+        return work;
+    }
+
+    @Test
+    public void testValidate() throws InterruptedException, ExecutionException {
+        Work work = createWork();
+        Argon2d argon2d = new Argon2d();
+        try (ShareValidator validator = new ShareValidator(2, 4, 100)) {
+            List<CompletableFuture<ShareValidator.Result>> results = new ArrayList<>();
+            for (int nonce = 0; nonce < 64; nonce++) {
+                results.add(validator.validate(work, nonce, SHARE_TARGET));
+            }
+            int shares = 0;
+            int blocks = 0;
+            byte[] header = NimiqUtils.fromHex(work.getData());
+            for (int nonce = 0; nonce < 64; nonce++) {
+                header[header.length - 1] = (byte) nonce;
+                byte[] hash = argon2d.hash(header, 0, header.length);
+                ShareValidator.Result expected = ShareValidator.Result.INSUFFICIENT;
+                if (Miner.meetsTarget(hash, Miner.compactToTarget(BLOCK_TARGET))) {
+                    expected = ShareValidator.Result.BLOCK;
+                    blocks++;
+                    shares++;
+                } else if (Miner.meetsTarget(hash, Miner.compactToTarget(SHARE_TARGET))) {
+                    expected = ShareValidator.Result.SHARE;
+                    shares++;
+                }
+                assertEquals(expected, results.get(nonce).get());
+            }
+            assertEquals(shares, validator.getShares());
+            assertEquals(blocks, validator.getBlocks());
+            assertEquals(64 - shares, validator.getInsufficient());
+        }
+    }
+
+    @Test
+    public void testDuplicates() throws InterruptedException, ExecutionException {
+        Work work = createWork();
+        try (ShareValidator validator = new ShareValidator(1, 1, 4)) {
+            for (int nonce = 0; nonce < 4; nonce++) {
+                validator.validate(work, nonce, SHARE_TARGET).get();
+            }
+            assertEquals(ShareValidator.Result.DUPLICATE, validator.validate(work, 0, SHARE_TARGET).get());
+            assertEquals(ShareValidator.Result.DUPLICATE, validator.validate(work, 3, SHARE_TARGET).get());
+            assertEquals(2, validator.getDuplicates());
+
+            // The oldest shares are forgotten after twice the capacity
+            for (int nonce = 4; nonce < 12; nonce++) {
+                validator.validate(work, nonce, SHARE_TARGET).get();
+            }
+            assertEquals(ShareValidator.Result.DUPLICATE, validator.validate(work, 11, SHARE_TARGET).get());
+            assertEquals(2 + 1, validator.getDuplicates());
+            ShareValidator.Result result = validator.validate(work, 0, SHARE_TARGET).get();
+            assertEquals(false, result == ShareValidator.Result.DUPLICATE);
+        }
+    }
+
+    @Test
+    public void testMalformed() throws InterruptedException, ExecutionException {
+        try (ShareValidator validator = new ShareValidator(1, 1, 4)) {
+            assertEquals(ShareValidator.Result.MALFORMED,
+                    validator.validate(new byte[10], SHARE_TARGET, BLOCK_TARGET).get());
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        Work work = createWork();
+        ShareValidator validator = new ShareValidator(1, 256, 1000);
+        List<CompletableFuture<ShareValidator.Result>> results = new ArrayList<>();
+        for (int nonce = 0; nonce < 256; nonce++) {
+            results.add(validator.validate(work, nonce, SHARE_TARGET));
+        }
+        validator.close();
+
+        // Queued shares fail instead of never completing
+        int failed = 0;
+        for (CompletableFuture<ShareValidator.Result> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertEquals("The validator is closed", e.getCause().getMessage());
+                failed++;
+            }
+        }
+        assertTrue(failed > 0);
+        assertEquals(256 - failed, validator.getShares() + validator.getInsufficient());
+        try {
+            validator.validate(work, 0, SHARE_TARGET);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The validator is closed", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * TransactionDecoderTest
+ */
+public class TransactionDecoderTest {
+
+    private static final TransactionSigner SIGNER = new TransactionSigner(
+            "9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60", TransactionSigner.TEST_NET);
+    private static final String RECIPIENT = "NQ07 0000 0000 0000 0000 0000 0000 0000 0000";
+
+    private static OutgoingTransaction createTransaction(long value, String data, int flags) {
+        OutgoingTransaction tx = new OutgoingTransaction();
+        tx.setFrom(SIGNER.getAddress());
+        tx.setTo(RECIPIENT);
+        tx.setValue(value);
+        tx.setFee(138);
+        tx.setData(data);
+        tx.setFlags(flags);
+        return tx;
+    }
+
+    private static void assertDecoded(OutgoingTransaction outTx, String txHex, Transaction tx) {
+        assertEquals(NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(txHex))), tx.getHash());
+        assertEquals(SIGNER.getAddress(), tx.getFromAddress());
+        assertEquals(RECIPIENT, tx.getToAddress());
+        assertEquals(outTx.getValue(), tx.getValue());
+        assertEquals(outTx.getFee(), tx.getFee());
+        assertEquals(outTx.getFlags(), tx.getFlags());
+        assertEquals(1234, tx.getValidityStartHeight());
+    }
+
+    @Test
+    public void testDecode() {
+        OutgoingTransaction basicTx = createTransaction(100_000, null, 0);
+        String basicHex = SIGNER.sign(basicTx, 1234);
+        Transaction basic = TransactionDecoder.decode(basicHex);
+        assertDecoded(basicTx, basicHex, basic);
+        assertNull(basic.getData());
+        assertTrue(basic.isValid());
+
+        OutgoingTransaction extendedTx = createTransaction(5, "cafebabe", 2);
+        String extendedHex = SIGNER.sign(extendedTx, 1234);
+        Transaction extended = TransactionDecoder.decode(extendedHex);
+        assertDecoded(extendedTx, extendedHex, extended);
+        assertEquals("cafebabe", extended.getData());
+        assertTrue(extended.isValid());
+    }
+
+    @Test
+    public void testInvalidSignature() {
+        byte[] tx = NimiqUtils.fromHex(SIGNER.sign(createTransaction(100_000, null, 0), 1234));
+        tx[tx.length - 1] ^= 1;
+        assertFalse(TransactionDecoder.decode(NimiqUtils.toHex(tx)).isValid());
+
+        tx = NimiqUtils.fromHex(SIGNER.sign(createTransaction(100_000, "00", 0), 1234));
+        tx[tx.length - 1] ^= 1;
+        assertFalse(TransactionDecoder.decode(NimiqUtils.toHex(tx)).isValid());
+    }
+
+    @Test
+    public void testDecodeBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(10_000);
+        for (int i = 0; i < 20; i++) {
+            buffer.put(NimiqUtils.fromHex(SIGNER.sign(createTransaction(i, i % 2 == 0 ? null : "0102", 0), 1234)));
+        }
+        buffer.flip();
+        for (int i = 0; i < 20; i++) {
+            Transaction tx = TransactionDecoder.decode(buffer, false);
+            assertEquals(i, tx.getValue());
+            assertEquals(i % 2 == 0 ? null : "0102", tx.getData());
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+}
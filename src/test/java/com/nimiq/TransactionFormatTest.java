@@ -0,0 +1,38 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * TransactionFormatTest
+ */
+public class TransactionFormatTest {
+
+    @Test
+    public void testBasicHashEqualsExtendedHash() {
+        Random random = new Random(42);
+        byte[] publicKey = new byte[TransactionFormat.PUBLIC_KEY_SIZE];
+        byte[] recipient = new byte[NimiqUtils.ADDRESS_SIZE];
+        byte[] signature = new byte[TransactionFormat.SIGNATURE_SIZE];
+        random.nextBytes(publicKey);
+        random.nextBytes(recipient);
+        random.nextBytes(signature);
+
+        ByteBuffer basic = ByteBuffer.allocate(TransactionFormat.BASIC_SIZE);
+        basic.put(TransactionFormat.BASIC).put(publicKey).put(recipient);
+        basic.putLong(100_000).putLong(138).putInt(1234).put((byte) 42).put(signature);
+
+        ByteBuffer extended = ByteBuffer.allocate(1 + TransactionFormat.CONTENT_SIZE + 2);
+        extended.put(TransactionFormat.EXTENDED).putShort((short) 0);
+        extended.put(Blake2b.hash(publicKey), 0, NimiqUtils.ADDRESS_SIZE).put((byte) 0);
+        extended.put(recipient).put((byte) 0);
+        extended.putLong(100_000).putLong(138).putInt(1234).put((byte) 42).put((byte) 0);
+        extended.putShort((short) 0);
+
+        assertArrayEquals(TransactionFormat.hash(extended.array()), TransactionFormat.hash(basic.array()));
+    }
+}
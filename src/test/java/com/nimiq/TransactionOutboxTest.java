@@ -0,0 +1,167 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * TransactionOutboxTest
+ */
+public class TransactionOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger signed = new AtomicInteger();
+
+    private NimiqClient createClient() {
+        return createClient(0, Collections.emptyMap());
+    }
+
+    private NimiqClient createClient(int head, Map<String, TransactionReceipt> receipts) {
+        return new FakeNimiqClient()
+                .on("sendRawTransaction", args -> {
+                    sent.add((String) args[0]);
+                    return NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex((String) args[0])));
+                })
+                .on("getBlockNumber", args -> head)
+                .on("getTransactionReceipt", args -> receipts.get(args[0]))
+                .build();
+    }
+
+    private Supplier<String> signer(long value) {
+        return () -> {
+            signed.incrementAndGet();
+            ByteBuffer tx = ByteBuffer.allocate(TransactionFormat.BASIC_SIZE);
+            tx.put(TransactionFormat.BASIC);
+            tx.putLong(1 + TransactionFormat.PUBLIC_KEY_SIZE + NimiqUtils.ADDRESS_SIZE, value);
+            return NimiqUtils.toHex(tx.array());
+        };
+    }
+
+    private static String hash(String txHex) {
+        return NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(txHex)));
+    }
+
+    private static TransactionReceipt createReceipt(String txHex, int number) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash(hash(txHex));
+        receipt.setBlockHash(String.format("%064x", number));
+        receipt.setBlockNumber(number);
+        return receipt;
+    }
+
+    private static Block createBlock(int number, String txHex) {
+        Transaction tx = new Transaction(NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(txHex))));
+        Block block = new Block();
+        block.setNumber(number);
+        block.setHash(String.format("%064x", number));
+        block.setTransactions(Collections.singletonList(tx));
+        return block;
+    }
+
+    @Test
+    public void testResumeAfterRestart() throws Exception {
+        Path journal = folder.getRoot().toPath().resolve("outbox.journal");
+        String tx1 = signer(1).get();
+        String tx2 = signer(2).get();
+        signed.set(0);
+
+        ConfirmationTracker tracker = new ConfirmationTracker(createClient(), 1);
+        try (TransactionSubmitter submitter = new TransactionSubmitter(Collections.singletonList(createClient()), 2,
+                8); TransactionOutbox outbox = new TransactionOutbox(journal, submitter, tracker)) {
+            CompletableFuture<TransactionReceipt> first = outbox.send("p1", signer(1));
+            assertTrue(first == outbox.send("p1", signer(1)));
+            outbox.send("p2", signer(2));
+            assertEquals(2, signed.get());
+
+            tracker.blockConnected(createBlock(1, tx1));
+            TransactionReceipt receipt = first.get(5, TimeUnit.SECONDS);
+            assertEquals(1, receipt.getBlockNumber());
+            assertEquals(1, outbox.getPending());
+        }
+        // A torn record at the end of the journal is discarded
+        Files.write(journal, new byte[] { 0, 0, 1, 0, 42 }, StandardOpenOption.APPEND);
+
+        sent.clear();
+        tracker = new ConfirmationTracker(createClient(), 1);
+        try (TransactionSubmitter submitter = new TransactionSubmitter(Collections.singletonList(createClient()), 2,
+                8); TransactionOutbox outbox = new TransactionOutbox(journal, submitter, tracker)) {
+            assertEquals(1, outbox.getPending());
+            assertEquals(1, outbox.send("p1", signer(1)).get(5, TimeUnit.SECONDS).getBlockNumber());
+            CompletableFuture<TransactionReceipt> second = outbox.send("p2", signer(2));
+            assertEquals(2, signed.get());
+
+            tracker.blockConnected(createBlock(2, tx2));
+            assertEquals(2, second.get(5, TimeUnit.SECONDS).getBlockNumber());
+            assertEquals(Collections.singletonList(tx2), sent);
+        }
+    }
+
+    @Test
+    public void testMinedWhileClosed() throws Exception {
+        Path journal = folder.getRoot().toPath().resolve("outbox.journal");
+        String tx1 = signer(1).get();
+        String tx2 = signer(2).get();
+
+        ConfirmationTracker tracker = new ConfirmationTracker(createClient(), 2);
+        try (TransactionSubmitter submitter = new TransactionSubmitter(Collections.singletonList(createClient()), 2,
+                8); TransactionOutbox outbox = new TransactionOutbox(journal, submitter, tracker)) {
+            outbox.send("p1", signer(1));
+            outbox.send("p2", signer(2));
+            assertEquals(2, outbox.getPending());
+        }
+
+        // Both were mined while the outbox was closed, the second one in the head block
+        Map<String, TransactionReceipt> receipts = new HashMap<>();
+        receipts.put(hash(tx1), createReceipt(tx1, 5));
+        receipts.put(hash(tx2), createReceipt(tx2, 10));
+        sent.clear();
+        tracker = new ConfirmationTracker(createClient(10, receipts), 2);
+        try (TransactionSubmitter submitter = new TransactionSubmitter(Collections.singletonList(createClient()), 2,
+                8); TransactionOutbox outbox = new TransactionOutbox(journal, submitter, tracker)) {
+            TransactionReceipt receipt = outbox.send("p1", signer(1)).get(5, TimeUnit.SECONDS);
+            assertEquals(5, receipt.getBlockNumber());
+            assertEquals(6, receipt.getConfirmations());
+            CompletableFuture<TransactionReceipt> second = outbox.send("p2", signer(2));
+            assertFalse(second.isDone());
+
+            Block block = new Block();
+            block.setNumber(11);
+            block.setHash(String.format("%064x", 11));
+            tracker.blockConnected(block);
+            assertEquals(10, second.get(5, TimeUnit.SECONDS).getBlockNumber());
+            // Neither was submitted again
+            assertTrue(sent.isEmpty());
+        }
+
+        // The confirmations were journaled
+        tracker = new ConfirmationTracker(createClient(), 2);
+        try (TransactionSubmitter submitter = new TransactionSubmitter(Collections.singletonList(createClient()), 2,
+                8); TransactionOutbox outbox = new TransactionOutbox(journal, submitter, tracker)) {
+            assertEquals(0, outbox.getPending());
+            assertEquals(5, outbox.send("p1", signer(1)).get().getBlockNumber());
+            assertEquals(10, outbox.send("p2", signer(2)).get().getBlockNumber());
+            assertEquals(0, tracker.size());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * TransactionSignerTest
+ */
+public class TransactionSignerTest {
+
+    private static final String PRIVATE_KEY = "9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60";
+    private static final String RECIPIENT = "NQ07 0000 0000 0000 0000 0000 0000 0000 0000";
+
+    private static OutgoingTransaction createTransaction(String data, int flags) {
+        OutgoingTransaction tx = new OutgoingTransaction();
+        tx.setTo(RECIPIENT);
+        tx.setValue(100_000);
+        tx.setFee(138);
+        tx.setData(data);
+        tx.setFlags(flags);
+        return tx;
+    }
+
+    @Test
+    public void testBasicTransaction() {
+        TransactionSigner signer = new TransactionSigner(PRIVATE_KEY, TransactionSigner.TEST_NET);
+        assertEquals("d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a", signer.getPublicKey());
+
+        OutgoingTransaction outTx = createTransaction(null, 0);
+        outTx.setFrom(signer.getAddress());
+        byte[] tx = NimiqUtils.fromHex(signer.sign(outTx, 1000));
+        assertEquals(TransactionFormat.BASIC_SIZE, tx.length);
+        assertEquals(TransactionFormat.BASIC, tx[0]);
+        assertEquals(1000, TransactionFormat.validityStartHeight(tx));
+
+        byte[] content = TransactionFormat.content(outTx, TransactionSigner.addressOf(
+                NimiqUtils.fromHex(signer.getPublicKey())), 1000, TransactionSigner.TEST_NET);
+        byte[] signature = Arrays.copyOfRange(tx, tx.length - Ed25519.SIGNATURE_SIZE, tx.length);
+        assertTrue(Ed25519.verify(signature, content, NimiqUtils.fromHex(signer.getPublicKey())));
+        assertArrayEquals(Blake2b.hash(content), TransactionFormat.hash(tx));
+    }
+
+    @Test
+    public void testExtendedTransaction() {
+        TransactionSigner signer = new TransactionSigner(PRIVATE_KEY, TransactionSigner.MAIN_NET);
+        OutgoingTransaction outTx = createTransaction("cafebabe", 0);
+        byte[] tx = NimiqUtils.fromHex(signer.sign(outTx, 7));
+        assertEquals(TransactionFormat.EXTENDED, tx[0]);
+        assertEquals(1 + TransactionFormat.CONTENT_SIZE + 4 + 2 + 97, tx.length);
+        assertEquals(7, TransactionFormat.validityStartHeight(tx));
+        assertEquals(TransactionSigner.MAIN_NET, tx[1 + TransactionFormat.CONTENT_SIZE + 4 - 2]);
+
+        // Basic and extended encodings of the same transaction have the same hash
+        byte[] basic = NimiqUtils.fromHex(signer.sign(createTransaction(null, 0), 7));
+        byte[] extended = NimiqUtils.fromHex(signer.sign(createTransaction("", 1), 7));
+        extended[1 + TransactionFormat.CONTENT_SIZE - 1] = 0;
+        assertArrayEquals(TransactionFormat.hash(basic), TransactionFormat.hash(extended));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongSender() {
+        OutgoingTransaction outTx = createTransaction(null, 0);
+        outTx.setFrom(RECIPIENT);
+        new TransactionSigner(PRIVATE_KEY, TransactionSigner.TEST_NET).sign(outTx, 1);
+    }
+
+    @Test
+    public void testSignAll() {
+        TransactionSigner signer = new TransactionSigner(PRIVATE_KEY, TransactionSigner.TEST_NET);
+        List<OutgoingTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            OutgoingTransaction tx = createTransaction(null, 0);
+            tx.setValue(i + 1);
+            txs.add(tx);
+        }
+        List<String> signed = signer.signAll(txs, 1);
+        for (int i = 0; i < txs.size(); i++) {
+            assertEquals(signer.sign(txs.get(i), 1), signed.get(i));
+        }
+    }
+}
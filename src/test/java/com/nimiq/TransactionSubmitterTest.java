@@ -0,0 +1,105 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.googlecode.jsonrpc4j.JsonRpcClientException;
+
+import org.junit.Test;
+
+/**
+ * TransactionSubmitterTest
+ */
+public class TransactionSubmitterTest {
+
+    private static String createTransaction(int i) {
+        ByteBuffer tx = ByteBuffer.allocate(TransactionFormat.BASIC_SIZE);
+        tx.put(TransactionFormat.BASIC);
+        tx.putInt(1 + TransactionFormat.PUBLIC_KEY_SIZE + NimiqUtils.ADDRESS_SIZE, i);
+        return NimiqUtils.toHex(tx.array());
+    }
+
+    /**
+     * A node that rejects every fifth transaction, reports every seventh as
+     * expired, answers every thirteenth with an internal error and drops the
+     * first request for every eleventh. Like core-js, it returns the hash for
+     * transactions it already knows.
+     */
+    private static NimiqClient createClient(Set<Integer> seen, List<Integer> internalErrors) {
+        return new FakeNimiqClient()
+                .on("sendRawTransaction", args -> {
+                    byte[] tx = NimiqUtils.fromHex((String) args[0]);
+                    int i = ByteBuffer.wrap(tx).getInt(1 + TransactionFormat.PUBLIC_KEY_SIZE + NimiqUtils.ADDRESS_SIZE);
+                    if (i % 5 == 0) {
+                        throw new JsonRpcClientException(TransactionSubmitter.REJECTED_LOCAL,
+                                "Transaction not accepted: -4", null);
+                    }
+                    if (i % 7 == 0) {
+                        throw new JsonRpcClientException(TransactionSubmitter.EXPIRED,
+                                "Transaction not accepted: -3", null);
+                    }
+                    if (i % 13 == 0) {
+                        internalErrors.add(i);
+                        throw new JsonRpcClientException(-32603, "Internal error", null);
+                    }
+                    if (i % 11 == 0 && seen.add(i)) {
+                        throw new UncheckedIOException(new IOException("Connection reset"));
+                    }
+                    return NimiqUtils.toHex(TransactionFormat.hash(tx));
+                })
+                .build();
+    }
+
+    @Test
+    public void testSubmit() throws InterruptedException {
+        List<String> transactions = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            transactions.add(createTransaction(i));
+        }
+        // Every third transaction is submitted twice, the node returns its hash again
+        for (int i = 3; i <= 300; i += 3) {
+            transactions.add(createTransaction(i));
+        }
+        Set<Integer> seen = Collections.synchronizedSet(new HashSet<>());
+        List<Integer> internalErrors = Collections.synchronizedList(new ArrayList<>());
+        try (TransactionSubmitter submitter = new TransactionSubmitter(
+                Collections.singletonList(createClient(seen, internalErrors)), 16, 32)) {
+            List<CompletableFuture<String>> futures = submitter.submitAll(transactions);
+            for (int j = 0; j < transactions.size(); j++) {
+                int i = j < 300 ? j + 1 : 3 * (j - 299);
+                CompletableFuture<String> future = futures.get(j);
+                try {
+                    String hash = future.get();
+                    assertTrue(i % 5 != 0 && i % 7 != 0 && i % 13 != 0);
+                    assertEquals(NimiqUtils.toHex(TransactionFormat.hash(NimiqUtils.fromHex(transactions.get(j)))),
+                            hash);
+                } catch (ExecutionException e) {
+                    assertTrue(i % 5 == 0 || i % 7 == 0 || i % 13 == 0);
+                }
+            }
+            // 60 rejected, 34 expired and 16 internal errors, of which 20, 12 and 5
+            // were submitted twice
+            assertEquals(400, submitter.getSubmitted());
+            assertEquals(253, submitter.getAccepted());
+            assertEquals(147, submitter.getFailed());
+            assertEquals(0, submitter.getPending());
+            assertEquals(Long.valueOf(80), submitter.getErrors().get(TransactionSubmitter.REJECTED_LOCAL));
+            assertEquals(Long.valueOf(46), submitter.getErrors().get(TransactionSubmitter.EXPIRED));
+            assertEquals(Long.valueOf(21), submitter.getErrors().get(-32603));
+            // JSON-RPC errors aren't retried, dropped requests are
+            assertEquals(21, internalErrors.size());
+            assertEquals(17, seen.size());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * WalletGeneratorTest
+ */
+public class WalletGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFromPrivateKey() {
+        Wallet wallet = WalletGenerator
+                .fromPrivateKey("9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60");
+        assertEquals("d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a", wallet.getPublicKey());
+        assertEquals(wallet.getId(), NimiqUtils.toHex(NimiqUtils.parseAddress(wallet.getAddress())));
+        assertEquals(new TransactionSigner(wallet.getPrivateKey(), TransactionSigner.MAIN_NET).getAddress(),
+                wallet.getAddress());
+    }
+
+    @Test
+    public void testGenerate() {
+        WalletGenerator generator = new WalletGenerator();
+        assertNotEquals(generator.generate().getPrivateKey(), generator.generate().getPrivateKey());
+    }
+
+    @Test
+    public void testBulkGenerate() throws IOException, InterruptedException {
+        Path file = folder.getRoot().toPath().resolve("wallets.ndjson");
+        new WalletGenerator(4).generate(3000, file);
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(3000, lines.size());
+
+        ObjectMapper mapper = new ObjectMapper();
+        Set<String> addresses = new HashSet<>();
+        for (String line : lines.subList(0, 100)) {
+            Wallet wallet = mapper.readValue(line, Wallet.class);
+            assertEquals(wallet.getAddress(), WalletGenerator.fromPrivateKey(wallet.getPrivateKey()).getAddress());
+            addresses.add(wallet.getAddress());
+        }
+        assertEquals(100, addresses.size());
+    }
+}
@@ -0,0 +1,163 @@
+package com.nimiq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Test;
+
+/**
+ * WorkServerTest
+ */
+public class WorkServerTest {
+
+    private static NimiqClient createClient(AtomicReference<BlockTemplate> template, List<String> submitted) {
+        return new FakeNimiqClient()
+                .on("getBlockTemplate", args -> template.get())
+                .on("submitBlock", args -> {
+                    submitted.add((String) args[0]);
+                    return null;
+                })
+                .build();
+    }
+
+    private static int request(URL url, String method, String body, AtomicReference<Map<String, Object>> response)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> json = new ObjectMapper().readValue(out.toByteArray(), Map.class);
+            response.set(json);
+        }
+        return status;
+    }
+
+    /**
+     * Searches a nonce whose header hash meets the target or not.
+     */
+    private static byte[] mine(String data, int target, boolean valid) {
+        byte[] header = NimiqUtils.fromHex(data);
+        Argon2d argon2d = new Argon2d();
+        for (int nonce = 0;; nonce++) {
+            header[header.length - 1] = (byte) nonce;
+            byte[] hash = argon2d.hash(header, 0, header.length);
+            if (Miner.meetsTarget(hash, Miner.compactToTarget(target)) == valid) {
+                return header;
+            }
+        }
+    }
+
+    @Test
+    public void testServer() throws Exception {
+        // Half of the hashes meet the target
+        BlockTemplate first = BlockAssemblerTest.createTemplate(3, false);
+        first.setTarget(0x207fffff);
+        AtomicReference<BlockTemplate> template = new AtomicReference<>(first);
+        List<String> submitted = new CopyOnWriteArrayList<>();
+        try (WorkServer server = new WorkServer(createClient(template, submitted), "", "aa")) {
+            server.start(new InetSocketAddress("127.0.0.1", 0), 20);
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            AtomicReference<Map<String, Object>> response = new AtomicReference<>();
+
+            assertEquals(200, request(new URL(base + "/work"), "GET", null, response));
+            Map<String, Object> work = response.get();
+            assertEquals(1, work.get("id"));
+            assertEquals(0x207fffff, work.get("target"));
+            assertEquals("nimiq-argon2", work.get("algorithm"));
+            String data = (String) work.get("data");
+            String suffix = (String) work.get("suffix");
+            assertEquals(2 * BlockAssembler.HEADER_SIZE, data.length());
+
+            // Unique extra data per work
+            request(new URL(base + "/work"), "GET", null, response);
+            assertTrue(!data.equals(response.get().get("data")));
+
+            // Polls without changes keep the job
+            long polls = server.getPolls();
+            while (server.getPolls() < polls + 3) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, server.getJobId());
+
+            // Long poll until the transactions change
+            CompletableFuture<Map<String, Object>> next = CompletableFuture.supplyAsync(() -> {
+                try {
+                    AtomicReference<Map<String, Object>> result = new AtomicReference<>();
+                    request(new URL(base + "/work?id=1"), "GET", null, result);
+                    return result.get();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(100);
+            assertTrue(!next.isDone());
+            BlockTemplate second = BlockAssemblerTest.createTemplate(4, false);
+            second.setTarget(0x207fffff);
+            template.set(second);
+            Map<String, Object> latest = next.get(10, TimeUnit.SECONDS);
+            assertEquals(2, latest.get("id"));
+
+            // A valid header with a body that doesn't belong to it
+            String header = NimiqUtils.toHex(mine(data, 0x207fffff, true));
+            assertEquals(400, request(new URL(base + "/submit"), "POST", header + suffix + "00", response));
+            assertEquals("Block doesn't match the work", response.get().get("error"));
+            String garbage = header + suffix.substring(0, suffix.length() - 2) + "ff";
+            assertEquals(400, request(new URL(base + "/submit"), "POST", garbage, response));
+            assertEquals("Block doesn't match the work", response.get().get("error"));
+
+            // Blocks of the previous job still extend the same block
+            String block = header + suffix;
+            assertEquals(200, request(new URL(base + "/submit"), "POST", block, response));
+            assertEquals(true, response.get().get("accepted"));
+            assertEquals(1, submitted.size());
+            assertEquals(block, submitted.get(0));
+
+            assertEquals(400, request(new URL(base + "/submit"), "POST", block, response));
+            assertEquals("Duplicate block", response.get().get("error"));
+            // Another block of a later job on top of the same head
+            String other = NimiqUtils.toHex(mine((String) latest.get("data"), 0x207fffff, true))
+                    + latest.get("suffix");
+            assertEquals(400, request(new URL(base + "/submit"), "POST", other, response));
+            assertEquals("Duplicate block", response.get().get("error"));
+            String invalid = NimiqUtils.toHex(mine(data, 0x207fffff, false)) + suffix;
+            assertEquals(400, request(new URL(base + "/submit"), "POST", invalid, response));
+            assertEquals("Hash doesn't meet target", response.get().get("error"));
+            String stale = data.substring(0, 4) + "ff" + data.substring(6) + suffix;
+            assertEquals(400, request(new URL(base + "/submit"), "POST", stale, response));
+            assertEquals("Stale block", response.get().get("error"));
+            assertEquals(1, server.getAccepted());
+            assertEquals(6, server.getRejected());
+            assertEquals(1, submitted.size());
+        }
+    }
+}